@@ -0,0 +1,27 @@
+package app.lzc.emoji;
+
+import android.os.Debug;
+
+import app.lzc.emoji.core.AllocationCounter;
+
+/**
+ * Reads the ART runtime's cumulative allocation counter. The counter covers the whole process,
+ * so stage allocations include whatever other threads allocated meanwhile.
+ */
+final class ArtAllocationCounter implements AllocationCounter {
+
+    private static final String BYTES_ALLOCATED = "art.gc.bytes-allocated";
+
+    @Override
+    public long allocatedBytes() {
+        String value = Debug.getRuntimeStat(BYTES_ALLOCATED);
+        if (value == null) {
+            return UNAVAILABLE;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNAVAILABLE;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package app.lzc.emoji;
+
+import android.graphics.fonts.Font;
+import android.graphics.fonts.SystemFonts;
+import android.os.Build;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the key that decides whether cached probe results still apply to this device.
+ * The key changes with the OS build and with any change to the installed emoji font files,
+ * including emoji fonts updated outside of an OS update.
+ */
+final class DeviceFingerprint {
+
+    private static final String SYSTEM_FONTS_DIR = "/system/fonts";
+
+    private DeviceFingerprint() {
+    }
+
+    /**
+     * @return The OS build fingerprint combined with a hash of the emoji font files.
+     */
+    static String compute() {
+        return Build.FINGERPRINT + "#" + Long.toHexString(emojiFontHash());
+    }
+
+    /**
+     * Hashes path, size and modification time of every emoji font file. Hashing the contents of
+     * the color emoji font (several MB) would cost more than the probing it saves, and updated
+     * fonts always arrive as new files.
+     */
+    private static long emojiFontHash() {
+        List<String> descriptors = new ArrayList<>();
+        for (File file : emojiFontFiles()) {
+            descriptors.add(describe(file));
+        }
+        Collections.sort(descriptors); // Listing order is not stable
+
+        long hash = 0xCBF29CE484222325L;
+        for (String descriptor : descriptors) {
+            for (int i = 0; i < descriptor.length(); i++) {
+                hash = (hash ^ descriptor.charAt(i)) * 0x100000001B3L;
+            }
+            hash = (hash ^ '\n') * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * @return The installed emoji font files, in no particular order. A file may be listed once
+     *         per weight or TTC index it provides.
+     */
+    static List<File> emojiFontFiles() {
+        List<File> fonts = new ArrayList<>();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            // Includes fonts updated through the system font updater, which live outside /system/fonts
+            for (Font font : SystemFonts.getAvailableFonts()) {
+                File file = font.getFile();
+                if (file != null && isEmojiFont(file)) {
+                    fonts.add(file);
+                }
+            }
+        } else {
+            File[] files = new File(SYSTEM_FONTS_DIR).listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (isEmojiFont(file)) {
+                        fonts.add(file);
+                    }
+                }
+            }
+        }
+        return fonts;
+    }
+
+    private static boolean isEmojiFont(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).contains("emoji");
+    }
+
+    private static String describe(File file) {
+        return file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+    }
+}
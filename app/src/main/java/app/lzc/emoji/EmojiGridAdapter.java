@@ -0,0 +1,229 @@
+package app.lzc.emoji;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiVersions;
+
+/**
+ * Grid of the tested entries that have a result, filtered by support, group, version and search.
+ * <p>
+ * Items are entry indexes in ascending order. Results arrive out of order while the sweep runs;
+ * {@link #setResults} merges the newly visible entries into the list and notifies only the
+ * inserted ranges, so bound cells keep their position and are not rebound.
+ */
+final class EmojiGridAdapter extends RecyclerView.Adapter<EmojiGridAdapter.Holder> {
+
+    static final int SHOW_ALL = 0;
+    static final int SHOW_SUPPORTED = 1;
+    static final int SHOW_UNSUPPORTED = 2;
+    static final int ANY = -1; // Group or version filter that matches everything
+
+    private static final int UNSUPPORTED_BACKGROUND = 0x40FF5252;
+
+    private final EmojiDataset dataset;
+    private final GlyphBitmapCache glyphs;
+    private final int cellSize;
+    private long[] tested;
+    private long[] supported;
+    private int[] visible;
+    private int[] previous; // Second buffer for the visible list, swapped on each update
+    private int visibleCount = 0;
+
+    private int show = SHOW_UNSUPPORTED;
+    private int groupId = ANY;
+    private int versionId = ANY;
+    private long[] searchMatches; // Bitset of the entries matching the search, null when not searching
+
+    EmojiGridAdapter(EmojiDataset dataset, GlyphBitmapCache glyphs, int cellSize) {
+        this.dataset = dataset;
+        this.glyphs = glyphs;
+        this.cellSize = cellSize;
+        this.tested = new long[Bitsets.words(dataset.size())];
+        this.supported = new long[tested.length];
+        this.visible = new int[dataset.size()];
+        this.previous = new int[dataset.size()];
+        setHasStableIds(true);
+    }
+
+    /**
+     * @return Words needed for the result bitsets passed to {@link #setResults}.
+     */
+    int words() {
+        return tested.length;
+    }
+
+    /**
+     * Replaces the results. Entries may only gain results, which is what a running sweep does.
+     * @param testedBits Bitset of the entries with a result; the adapter keeps the array.
+     * @param supportedBits Bitset of the supported entries; the adapter keeps the array.
+     * @return The arrays previously held, for reuse by the caller.
+     */
+    long[][] setResults(long[] testedBits, long[] supportedBits) {
+        long[][] old = {tested, supported};
+        tested = testedBits;
+        supported = supportedBits;
+        int oldCount = visibleCount;
+        swapAndFilter();
+        if (!isSubsequence(previous, oldCount, visible, visibleCount)) {
+            notifyDataSetChanged();
+            return old;
+        }
+        // Walk both sorted lists and notify each run of inserted entries
+        int i = 0;
+        int j = 0;
+        while (j < visibleCount) {
+            if (i < oldCount && previous[i] == visible[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int start = j;
+            while (j < visibleCount && (i >= oldCount || visible[j] != previous[i])) {
+                j++;
+            }
+            notifyItemRangeInserted(start, j - start);
+        }
+        return old;
+    }
+
+    /**
+     * Changes the filters and rebuilds the list.
+     * @param show One of SHOW_ALL, SHOW_SUPPORTED and SHOW_UNSUPPORTED.
+     * @param groupId A group id or ANY.
+     * @param versionId A version id or ANY.
+     */
+    void setFilter(int show, int groupId, int versionId) {
+        if (show == this.show && groupId == this.groupId && versionId == this.versionId) {
+            return;
+        }
+        this.show = show;
+        this.groupId = groupId;
+        this.versionId = versionId;
+        swapAndFilter();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Restricts the list to the matches of a search and rebuilds it.
+     * @param matches Bitset of the matching entries, or null to show all entries. The adapter
+     *                reads the array until the next call, so the caller must not change it.
+     */
+    void setSearch(long[] matches) {
+        searchMatches = matches;
+        swapAndFilter();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @param entries A bitset of entries.
+     * @return How many of the entries are known to be supported so far.
+     */
+    int supportedCount(long[] entries) {
+        int count = 0;
+        for (int word = 0; word < supported.length; word++) {
+            count += Long.bitCount(entries[word] & supported[word]);
+        }
+        return count;
+    }
+
+    private void swapAndFilter() {
+        int[] swap = previous;
+        previous = visible;
+        visible = swap;
+        int count = 0;
+        for (int word = 0; word < tested.length; word++) {
+            long pending = tested[word];
+            if (show == SHOW_SUPPORTED) {
+                pending &= supported[word];
+            } else if (show == SHOW_UNSUPPORTED) {
+                pending &= ~supported[word];
+            }
+            if (searchMatches != null) {
+                pending &= searchMatches[word];
+            }
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                if ((groupId == ANY || dataset.groupId(entry) == groupId)
+                        && (versionId == ANY || dataset.versionId(entry) == versionId)) {
+                    visible[count++] = entry;
+                }
+            }
+        }
+        visibleCount = count;
+    }
+
+    private static boolean isSubsequence(int[] small, int smallCount, int[] large, int largeCount) {
+        int j = 0;
+        for (int i = 0; i < smallCount; i++) {
+            while (j < largeCount && large[j] < small[i]) {
+                j++;
+            }
+            if (j == largeCount || large[j] != small[i]) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+
+    @Override
+    public int getItemCount() {
+        return visibleCount;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return visible[position];
+    }
+
+    @NonNull
+    @Override
+    public Holder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        ImageView view = new ImageView(parent.getContext());
+        view.setLayoutParams(new RecyclerView.LayoutParams(cellSize, cellSize));
+        view.setScaleType(ImageView.ScaleType.CENTER);
+        Holder holder = new Holder(view);
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                showDetails(v, visible[position]);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull Holder holder, int position) {
+        int entry = visible[position];
+        holder.image.setImageBitmap(glyphs.get(entry));
+        holder.image.setBackgroundColor(Bitsets.get(supported, entry) ? 0 : UNSUPPORTED_BACKGROUND);
+    }
+
+    private void showDetails(View view, int entry) {
+        StringBuilder sb = new StringBuilder(dataset.name(entry)).append('\n');
+        dataset.appendHex(entry, sb);
+        sb.append("\nEmoji ").append(EmojiVersions.toString(dataset.emojiVersion(entry)))
+                .append(" · ").append(dataset.groupName(dataset.groupId(entry)))
+                .append(" · ").append(dataset.subgroupName(dataset.subgroupId(entry)))
+                .append(Bitsets.get(supported, entry) ? "\nSupported" : "\nNot supported");
+        Toast.makeText(view.getContext(), sb, Toast.LENGTH_SHORT).show();
+    }
+
+    static final class Holder extends RecyclerView.ViewHolder {
+        final ImageView image;
+
+        Holder(ImageView image) {
+            super(image);
+            this.image = image;
+        }
+    }
+}
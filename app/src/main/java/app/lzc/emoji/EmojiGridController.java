@@ -0,0 +1,272 @@
+package app.lzc.emoji;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.DisplayMetrics;
+import android.view.Choreographer;
+import android.view.View;
+import android.widget.AdapterView;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
+import android.widget.RadioGroup;
+import android.widget.Spinner;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.ResultCollector;
+import app.lzc.emoji.core.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connects the results of a run to the emoji grid, its filters and the search field.
+ * <p>
+ * While the sweep runs, a frame callback checks the {@link ResultCollector} revision on every
+ * frame, which is a single synchronized read, and copies new results into the adapter at most
+ * every {@link #SYNC_INTERVAL_NANOS}. Searches run against a {@link SearchIndex} on every keystroke
+ * and write into one of two reused bitsets. All methods must be called on the UI thread.
+ */
+final class EmojiGridController implements Choreographer.FrameCallback {
+
+    private static final int CELL_SIZE_DP = 48;
+    private static final long SYNC_INTERVAL_NANOS = 100_000_000L;
+    private static final int MIN_SUBSTRING_QUERY = 3; // Shorter queries match word starts only
+
+    private final RecyclerView gridView;
+    private final View filterBar;
+    private final RadioGroup statusFilter;
+    private final Spinner groupFilter;
+    private final Spinner versionFilter;
+    private final EditText searchField;
+    private final TextView searchSummary;
+    private final int textColor;
+
+    private EmojiDataset dataset;
+    private ResultCollector collector;
+    private EmojiGridAdapter adapter;
+    private GlyphBitmapCache glyphs;
+    private long[] tested;
+    private long[] supported;
+    private int syncedRevision = -1;
+    private long lastSyncNanos = 0;
+    private boolean running = false;
+    private SearchIndex searchIndex;
+    private long[] searchMatches;
+    private long[] spareMatches; // Written by the next search while the adapter reads searchMatches
+    private int searchCount = 0;
+    private boolean searching = false;
+
+    EmojiGridController(RecyclerView gridView, View filterBar, RadioGroup statusFilter,
+                        Spinner groupFilter, Spinner versionFilter, EditText searchField,
+                        TextView searchSummary, int textColor) {
+        this.gridView = gridView;
+        this.filterBar = filterBar;
+        this.statusFilter = statusFilter;
+        this.groupFilter = groupFilter;
+        this.versionFilter = versionFilter;
+        this.searchField = searchField;
+        this.searchSummary = searchSummary;
+        this.textColor = textColor;
+        searchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                search(s);
+            }
+        });
+    }
+
+    /**
+     * Shows the grid for a dataset and starts following the collector.
+     * @param dataset The dataset being tested.
+     * @param collector Receives the results of the run.
+     */
+    void attach(EmojiDataset dataset, ResultCollector collector) {
+        Context context = gridView.getContext();
+        DisplayMetrics display = context.getResources().getDisplayMetrics();
+        int cellSize = Math.round(CELL_SIZE_DP * display.density);
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        long cacheBytes = activityManager.getMemoryClass() * 1024L * 1024L / 8; // An eighth of the heap
+
+        this.dataset = dataset;
+        this.collector = collector;
+        if (glyphs != null) {
+            glyphs.clear();
+        }
+        glyphs = new GlyphBitmapCache(dataset, cellSize, cacheBytes, textColor);
+        adapter = new EmojiGridAdapter(dataset, glyphs, cellSize);
+        tested = new long[adapter.words()];
+        supported = new long[adapter.words()];
+        syncedRevision = -1;
+        searchIndex = null; // Built for the previous dataset
+        searching = false;
+        searchField.setEnabled(false);
+        searchSummary.setVisibility(View.GONE);
+
+        int spans = Math.max(1, (gridView.getWidth() > 0 ? gridView.getWidth() : display.widthPixels) / cellSize);
+        gridView.setLayoutManager(new GridLayoutManager(context, spans));
+        gridView.setHasFixedSize(true);
+        gridView.setItemAnimator(null); // Inserted cells appear in place instead of animating every sync
+        gridView.setAdapter(adapter);
+        setUpFilters(context, dataset);
+        filterBar.setVisibility(View.VISIBLE);
+        gridView.setVisibility(View.VISIBLE);
+
+        if (!running) {
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Enables the search field.
+     * @param dataset The dataset the index was built for.
+     * @param index The search index.
+     */
+    void setSearchIndex(EmojiDataset dataset, SearchIndex index) {
+        if (dataset != this.dataset) {
+            return; // Another dataset was attached in the meantime
+        }
+        searchIndex = index;
+        searchMatches = new long[adapter.words()];
+        spareMatches = new long[adapter.words()];
+        searchField.setEnabled(true);
+        search(searchField.getText());
+    }
+
+    /**
+     * Takes the final results and stops following the collector.
+     */
+    void finish() {
+        if (running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        sync();
+    }
+
+    /**
+     * Releases the cached bitmaps.
+     */
+    void release() {
+        finish();
+        if (glyphs != null) {
+            glyphs.clear();
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        if (frameTimeNanos - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+            lastSyncNanos = frameTimeNanos;
+            sync();
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void sync() {
+        if (collector == null || collector.revision() == syncedRevision) {
+            return;
+        }
+        syncedRevision = collector.copyTo(tested, supported);
+        long[][] old = adapter.setResults(tested, supported);
+        tested = old[0]; // The adapter keeps the new arrays, the old ones are copied into next time
+        supported = old[1];
+        if (searching) {
+            updateSearchSummary();
+        }
+    }
+
+    private void search(CharSequence query) {
+        if (searchIndex == null) {
+            return;
+        }
+        String trimmed = query.toString().trim();
+        if (trimmed.isEmpty()) {
+            if (searching) {
+                searching = false;
+                adapter.setSearch(null);
+                searchSummary.setVisibility(View.GONE);
+            }
+            return;
+        }
+        long[] matches = spareMatches;
+        searchCount = searchIndex.search(trimmed, trimmed.length() < MIN_SUBSTRING_QUERY, matches);
+        spareMatches = searchMatches;
+        searchMatches = matches;
+        searching = true;
+        adapter.setSearch(matches);
+        updateSearchSummary();
+    }
+
+    private void updateSearchSummary() {
+        searchSummary.setText(searchSummary.getContext().getString(R.string.search_summary,
+                searchCount, adapter.supportedCount(searchMatches)));
+        searchSummary.setVisibility(View.VISIBLE);
+    }
+
+    private void setUpFilters(Context context, EmojiDataset dataset) {
+        List<String> groups = new ArrayList<>();
+        groups.add(context.getString(R.string.filter_all_groups));
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            groups.add(dataset.groupName(id));
+        }
+        List<String> versions = new ArrayList<>();
+        versions.add(context.getString(R.string.filter_all_versions));
+        for (int id = dataset.versionCount() - 1; id >= 0; id--) { // Newest version first
+            versions.add(context.getString(R.string.filter_version, EmojiVersions.toString(dataset.version(id))));
+        }
+        groupFilter.setAdapter(spinnerAdapter(context, groups));
+        versionFilter.setAdapter(spinnerAdapter(context, versions));
+
+        AdapterView.OnItemSelectedListener listener = new AdapterView.OnItemSelectedListener() {
+            @Override
+            public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
+                applyFilter(dataset);
+            }
+
+            @Override
+            public void onNothingSelected(AdapterView<?> parent) {
+            }
+        };
+        groupFilter.setOnItemSelectedListener(listener);
+        versionFilter.setOnItemSelectedListener(listener);
+        statusFilter.setOnCheckedChangeListener((group, checkedId) -> applyFilter(dataset));
+        applyFilter(dataset);
+    }
+
+    private void applyFilter(EmojiDataset dataset) {
+        int checked = statusFilter.getCheckedRadioButtonId();
+        int show = checked == R.id.filterSupportedButton ? EmojiGridAdapter.SHOW_SUPPORTED
+                : checked == R.id.filterUnsupportedButton ? EmojiGridAdapter.SHOW_UNSUPPORTED
+                : EmojiGridAdapter.SHOW_ALL;
+        int group = groupFilter.getSelectedItemPosition();
+        int version = versionFilter.getSelectedItemPosition();
+        adapter.setFilter(show,
+                group <= 0 ? EmojiGridAdapter.ANY : group - 1,
+                version <= 0 ? EmojiGridAdapter.ANY : dataset.versionCount() - version);
+    }
+
+    private static ArrayAdapter<String> spinnerAdapter(Context context, List<String> items) {
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(context, android.R.layout.simple_spinner_item, items);
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        return adapter;
+    }
+}
@@ -0,0 +1,804 @@
+package app.lzc.emoji;
+
+import android.app.Application;
+import android.content.res.AssetFileDescriptor;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.CanonicalSequences;
+import app.lzc.emoji.core.CoverageMatrix;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiDatasetCodec;
+import app.lzc.emoji.core.EmojiTestDownloader;
+import app.lzc.emoji.core.EmojiTestParser;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.GlyphProbe;
+import app.lzc.emoji.core.GlyphProbeEngine;
+import app.lzc.emoji.core.ProbeResult;
+import app.lzc.emoji.core.ProgressChannel;
+import app.lzc.emoji.core.ResultCache;
+import app.lzc.emoji.core.ResultCollector;
+import app.lzc.emoji.core.RunCheckpoint;
+import app.lzc.emoji.core.RunMetrics;
+import app.lzc.emoji.core.SearchIndex;
+import app.lzc.emoji.core.SequenceSet;
+import app.lzc.emoji.core.StreamingProbe;
+import app.lzc.emoji.core.SupportReport;
+import app.lzc.emoji.core.SupportIndex;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the emoji test independently of the activity that shows it.
+ * <p>
+ * The run, its worker threads and its partial results outlive configuration changes such as a
+ * rotation: a recreated activity calls {@link #attach} and is brought up to date with whatever the
+ * run has published so far, then follows it from there. While probing, the collected results are
+ * checkpointed into the result cache every {@link #CHECKPOINT_INTERVAL_MS}, so a run that dies
+ * with its process resumes from the last checkpoint instead of probing everything again.
+ */
+public final class EmojiTestViewModel extends AndroidViewModel {
+
+    /**
+     * Receives what a run publishes, always on the UI thread. A newly attached host first gets
+     * everything published so far, in the original order.
+     */
+    interface Host {
+        /**
+         * @param dataset The dataset being tested.
+         * @param collector Receives the results of the run, including those still being probed.
+         */
+        void onDatasetReady(EmojiDataset dataset, ResultCollector collector);
+
+        /**
+         * @param result The combined cached and probed result.
+         */
+        void onRunFinished(ProbeResult result);
+
+        /**
+         * @param dataset The tested dataset.
+         * @param index The search index of its names.
+         */
+        void onSearchIndexReady(EmojiDataset dataset, SearchIndex index);
+
+        /**
+         * @param comparing Whether a font comparison is running.
+         * @param matrix The result of the last comparison, or null.
+         */
+        void onFontComparison(boolean comparing, CoverageMatrix matrix);
+    }
+
+    private static final String TAG = "EmojiTestApp"; // Tag for logging
+    private static final String UNICODE_EMOJI_TEST_URL = "https://www.unicode.org/Public/emoji/latest/emoji-test.txt";
+    private static final String EMOJI_TEST_FILENAME = "emoji-test.txt";
+    private static final String EMOJI_DATASET_FILENAME = "emoji-test.bin"; // Compiled emoji-test.txt, bundled asset and downloaded copy
+    private static final String RESULT_CACHE_FILENAME = "emoji-results.bin"; // Also holds the checkpoints of unfinished runs
+    private static final String RUN_REPORT_FILENAME = "emoji-run-report.json";
+    private static final String SUPPORT_REPORT_FILENAME = "emoji-support.bin"; // Compact results for collecting them from many devices
+    private static final String FONT_MATRIX_FILENAME = "emoji-font-matrix.json";
+    private static final String USER_FONTS_DIR = "fonts"; // In the external files dir, for TTF/OTF files to compare
+    private static final long CHECKPOINT_INTERVAL_MS = 2000;
+
+    /**
+     * State of one run. Fields other than the final ones and the volatile ones are only touched
+     * on the UI thread.
+     */
+    private static final class Run {
+        final int statuses;
+        final ProgressChannel progress = new ProgressChannel();
+        volatile RunMetrics metrics;
+        volatile RunCheckpoint checkpoint;
+        Future<?> task;
+        EmojiDataset dataset;
+        ResultCollector collector;
+        ProbeResult result;
+        SearchIndex searchIndex;
+        boolean comparing = false;
+        CoverageMatrix matrix;
+
+        Run(int statuses) {
+            this.statuses = statuses;
+        }
+    }
+
+    /**
+     * Feeds a downloaded file to a streaming probe and restarts the run's progress with its first
+     * line. Until then the progress shows the cached results of the local dataset, so a 304 or a
+     * failed request leaves them up. No probe has been queued at that point, so nothing of the
+     * new file reports before the reset.
+     */
+    private static final class ProgressRestartingHandler implements EmojiTestParser.Handler {
+        private final EmojiTestParser.Handler next;
+        private final ProgressChannel progress;
+        private boolean started = false;
+
+        ProgressRestartingHandler(EmojiTestParser.Handler next, ProgressChannel progress) {
+            this.next = next;
+            this.progress = progress;
+        }
+
+        private void start() {
+            if (!started) {
+                started = true;
+                progress.reset(0, 0, ProgressChannel.UNKNOWN_TOTAL); // The total is unknown until the file is parsed
+            }
+        }
+
+        @Override
+        public void onVersion(int version) {
+            start();
+            next.onVersion(version);
+        }
+
+        @Override
+        public void onGroup(String name) {
+            start();
+            next.onGroup(name);
+        }
+
+        @Override
+        public void onSubgroup(String name) {
+            start();
+            next.onSubgroup(name);
+        }
+
+        @Override
+        public void onEntry(int[] codepoints, int length, int status, int emojiVersion,
+                            byte[] line, int nameStart, int nameEnd) {
+            start();
+            next.onEntry(codepoints, length, status, emojiVersion, line, nameStart, nameEnd);
+        }
+    }
+
+    // Executor for background tasks to manage threads more efficiently
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // Worker pool for glyph probing, one thread per core
+    private final GlyphProbeEngine probeEngine = new GlyphProbeEngine(GlyphProbeEngine.defaultParallelism());
+    // Saves the results of the current run while it is probing
+    private final ScheduledExecutorService checkpointExecutor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile Run run;
+    private Host host;
+
+    public EmojiTestViewModel(@NonNull Application application) {
+        super(application);
+        checkpointExecutor.scheduleWithFixedDelay(this::saveCheckpoint,
+                CHECKPOINT_INTERVAL_MS, CHECKPOINT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts a run unless one with the same statuses is already running or finished. A run with
+     * other statuses is cancelled and replaced. Call on the UI thread.
+     * @param statuses Statuses to test, see {@link app.lzc.emoji.core.EmojiStatus#mask(int...)}.
+     */
+    void start(int statuses) {
+        Run current = run;
+        if (current != null) {
+            if (current.statuses == statuses) {
+                return;
+            }
+            current.task.cancel(true);
+        }
+        final Run next = new Run(statuses);
+        run = next;
+        next.task = executorService.submit(() -> startEmojiTest(next));
+    }
+
+    /**
+     * Connects a host and replays what the current run has published. Call on the UI thread.
+     * @param host The host, typically a newly created activity.
+     */
+    void attach(Host host) {
+        this.host = host;
+        Run current = run;
+        if (current == null) {
+            return;
+        }
+        if (current.dataset != null) {
+            host.onDatasetReady(current.dataset, current.collector);
+        }
+        if (current.result != null) {
+            host.onRunFinished(current.result);
+        }
+        if (current.searchIndex != null) {
+            host.onSearchIndexReady(current.dataset, current.searchIndex);
+        }
+        if (current.comparing || current.matrix != null) {
+            host.onFontComparison(current.comparing, current.matrix);
+        }
+    }
+
+    /**
+     * Disconnects a host, e.g. when its activity is destroyed. The run goes on. Call on the UI thread.
+     * @param host The host passed to {@link #attach}.
+     */
+    void detach(Host host) {
+        if (this.host == host) {
+            this.host = null;
+        }
+    }
+
+    /**
+     * @return The progress of the current run. Only valid after {@link #start}.
+     */
+    ProgressChannel progressChannel() {
+        return run.progress;
+    }
+
+    /**
+     * @return Stage timings and probe latencies of the current run, or null before it starts.
+     */
+    RunMetrics metrics() {
+        Run current = run;
+        return current == null ? null : current.metrics;
+    }
+
+    @Override
+    protected void onCleared() {
+        // The activity is finishing for good: stop the run, keeping what it has probed so far
+        executorService.shutdownNow(); // Interrupt any running tasks
+        probeEngine.shutdownNow();
+        checkpointExecutor.execute(this::saveCheckpoint);
+        checkpointExecutor.shutdown(); // Runs the last checkpoint, then ends the periodic ones
+        host = null;
+    }
+
+    /**
+     * Runs an update of a run's published state on the UI thread, unless the run has been
+     * replaced in the meantime.
+     */
+    private void post(final Run from, final Runnable update) {
+        mainHandler.post(() -> {
+            if (run == from) {
+                update.run();
+            }
+        });
+    }
+
+    private void toast(final String text, final int duration) {
+        mainHandler.post(() -> Toast.makeText(getApplication(), text, duration).show());
+    }
+
+    private void saveCheckpoint() {
+        Run current = run;
+        RunCheckpoint checkpoint = current == null ? null : current.checkpoint;
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            if (checkpoint.save()) {
+                Log.d(TAG, "Checkpoint saved");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving checkpoint: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Orchestrates the emoji test process: fetching test data and running checks.
+     * The results cached for the dataset already on the device are shown at once; then a changed
+     * emoji-test.txt is probed while it downloads, otherwise the local dataset is tested, with
+     * cached results filled in.
+     * @param run The run to carry out.
+     */
+    private void startEmojiTest(Run run) {
+        final RunMetrics metrics = new RunMetrics(new ArtAllocationCounter());
+        run.metrics = metrics;
+        GlyphProbe.Factory probes = metrics.probeTimings().wrap(PaintGlyphProbe.FACTORY);
+        ResultCollector collector = new ResultCollector(run.progress); // Per-entry results for the grid
+        File filesDir = getApplication().getFilesDir();
+        String deviceKey;
+        try (RunMetrics.Stage stage = metrics.stage("fingerprint")) {
+            deviceKey = DeviceFingerprint.compute();
+        }
+        ResultCache cache;
+        try (RunMetrics.Stage stage = metrics.stage("cache-read")) {
+            cache = readResultCache(deviceKey); // Includes the last checkpoint of an unfinished run
+        }
+        run.checkpoint = new RunCheckpoint(new File(filesDir, RESULT_CACHE_FILENAME), deviceKey, cache);
+        EmojiTestDownloader downloader;
+        try {
+            downloader = new EmojiTestDownloader(new URL(UNICODE_EMOJI_TEST_URL), new File(filesDir, EMOJI_TEST_FILENAME));
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+        // The compiled copy is only saved after probing; never let it outlive the text it came from
+        downloader.setDerivedFiles(new File(filesDir, EMOJI_DATASET_FILENAME));
+
+        // --- Map the last download, or else the bundled dataset, and show its cached results ---
+        EmojiDataset local;
+        try (RunMetrics.Stage stage = metrics.stage("dataset-load")) {
+            local = loadDownloadedDataset();
+        }
+        final boolean downloaded = local != null;
+        if (local == null) {
+            try (RunMetrics.Stage stage = metrics.stage("dataset-map")) {
+                local = loadBundledDataset();
+                Log.d(TAG, "Emoji dataset mapped from assets: " + local.size() + " entries");
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading emoji dataset from assets: " + e.getMessage(), e);
+            }
+        }
+        if (local != null && cache != null) {
+            try (RunMetrics.Stage stage = metrics.stage("cache-preview")) {
+                publishCachedResults(run, local, cache); // Stays up while the request below is pending
+            }
+        } else {
+            run.progress.reset(0, 0, ProgressChannel.UNKNOWN_TOTAL);
+        }
+
+        // --- Then a conditional download, probing while the bytes arrive. Sequences the cache
+        // knows are not probed again, so a changed file costs about the sequences it adds ---
+        StreamingProbe streamingProbe = new StreamingProbe(probeEngine, run.statuses, cache, probes, collector);
+        try {
+            EmojiTestDownloader.Outcome outcome;
+            try (RunMetrics.Stage stage = metrics.stage("download")) { // Includes parsing and queueing probes
+                outcome = downloader.download(new ProgressRestartingHandler(streamingProbe, run.progress));
+            }
+            if (outcome == EmojiTestDownloader.Outcome.DOWNLOADED) {
+                EmojiDataset dataset = streamingProbe.finish();
+                Log.d(TAG, "Emoji test file downloaded and parsed: " + dataset.size() + " entries");
+                // Only now are the total and the cache hits known; count them like processEmojiDataset
+                long[] cachedSupported = streamingProbe.cachedSupported();
+                collector.addAll(streamingProbe.cachedEntries(), cachedSupported);
+                run.progress.setTotal(Bitsets.cardinality(streamingProbe.selection()));
+                run.progress.addCached(streamingProbe.resolvedCount(), Bitsets.cardinality(cachedSupported));
+                publishDataset(run, dataset, collector); // Blocks still being probed fill in
+                run.checkpoint.track(dataset, collector);
+                String changes;
+                try (RunMetrics.Stage stage = metrics.stage("dataset-diff")) {
+                    changes = describeChanges(dataset, run.statuses);
+                }
+                toast("Emoji test file downloaded from network" + changes + ".", Toast.LENGTH_SHORT);
+                ProbeResult result;
+                try (RunMetrics.Stage stage = metrics.stage("probe-drain")) { // Probes still queued after the transfer
+                    result = streamingProbe.await();
+                }
+                try (RunMetrics.Stage stage = metrics.stage("dataset-save")) {
+                    saveDownloadedDataset(dataset);
+                }
+                finishRun(run, collector, dataset, streamingProbe.selection(), result, deviceKey, true);
+                return;
+            }
+            Log.d(TAG, "Emoji test file not modified since the last download");
+            if (!downloaded) {
+                downloader.clearValidators(); // The stored copy is unusable; force a full download next time
+            }
+        } catch (IOException e) {
+            streamingProbe.cancel(); // Returns once its blocks stopped reporting, so run.progress can be reset below
+            Log.e(TAG, "Network error downloading emoji test file: " + e.getMessage(), e);
+            toast("Network error downloading emoji test file. Using the local copy...", Toast.LENGTH_SHORT);
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Emoji test interrupted");
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        // --- No new file: test the local dataset ---
+        if (local == null) {
+            toast("Failed to initialize emoji data. No emoji test file available.", Toast.LENGTH_LONG);
+            return;
+        }
+        if (!downloaded) {
+            toast("Using emoji test file from assets.", Toast.LENGTH_LONG);
+        }
+        // A fresh collector: blocks of a failed download refer to the entries of another dataset
+        processEmojiDataset(run, probes, new ResultCollector(run.progress), local, cache, deviceKey);
+    }
+
+    /**
+     * Publishes a dataset with only the results the cache has for it, before anything is probed
+     * or downloaded.
+     * @param run The current run.
+     * @param dataset The dataset on the device.
+     * @param cache Cached results for this device.
+     */
+    private void publishCachedResults(Run run, EmojiDataset dataset, ResultCache cache) {
+        long[] selection = dataset.select(run.statuses);
+        long[] supported = new long[selection.length];
+        long[] pending = cache.resolve(dataset, selection, supported);
+        long[] cached = new long[selection.length];
+        for (int i = 0; i < selection.length; i++) {
+            cached[i] = selection[i] & ~pending[i];
+        }
+        ResultCollector preview = new ResultCollector(null);
+        preview.addAll(cached, supported);
+        run.progress.reset(Bitsets.cardinality(cached), Bitsets.cardinality(supported), Bitsets.cardinality(selection));
+        publishDataset(run, dataset, preview);
+        Log.d(TAG, "Showing " + Bitsets.cardinality(cached) + " cached results while checking for a new file");
+    }
+
+    /**
+     * @param deviceKey The key of the current device and font set.
+     * @return The result cache if it was written for this device, or null.
+     */
+    private ResultCache readResultCache(String deviceKey) {
+        try {
+            ResultCache cache = ResultCache.read(new File(getApplication().getFilesDir(), RESULT_CACHE_FILENAME));
+            if (cache != null && cache.matchesDevice(deviceKey)) {
+                return cache;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Ignoring unreadable result cache: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Loads the dataset of the last successful download, preferring its compiled form.
+     * @return The dataset, or null if there is no usable download.
+     */
+    private EmojiDataset loadDownloadedDataset() {
+        File filesDir = getApplication().getFilesDir();
+        File compiled = new File(filesDir, EMOJI_DATASET_FILENAME);
+        if (compiled.isFile()) {
+            try (FileInputStream in = new FileInputStream(compiled); FileChannel channel = in.getChannel()) {
+                return EmojiDatasetCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            } catch (IOException e) {
+                Log.w(TAG, "Ignoring unreadable compiled dataset: " + e.getMessage());
+            }
+        }
+        File text = new File(filesDir, EMOJI_TEST_FILENAME);
+        if (text.isFile()) {
+            try (InputStream in = Files.newInputStream(text.toPath())) {
+                EmojiDataset dataset = EmojiDataset.parse(in);
+                saveDownloadedDataset(dataset);
+                return dataset;
+            } catch (IOException e) {
+                Log.e(TAG, "Error reading emoji test file: " + e.getMessage(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the tested sequences of a downloaded dataset with those of the bundled one.
+     * @param downloaded The downloaded dataset.
+     * @param statuses The tested statuses.
+     * @return A summary such as ": 118 new, 2 dropped", or an empty string if nothing changed.
+     */
+    private String describeChanges(EmojiDataset downloaded, int statuses) {
+        EmojiDataset bundled;
+        try {
+            bundled = loadBundledDataset();
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot compare with the bundled dataset: " + e.getMessage());
+            return "";
+        }
+        SequenceSet current = SequenceSet.of(downloaded, downloaded.select(statuses));
+        SequenceSet previous = SequenceSet.of(bundled, bundled.select(statuses));
+        int added = current.minus(previous).size();
+        int dropped = previous.minus(current).size();
+        Log.d(TAG, "Downloaded dataset " + EmojiVersions.toString(downloaded.unicodeVersion()) + " vs bundled "
+                + EmojiVersions.toString(bundled.unicodeVersion()) + ": " + added + " new, " + dropped + " dropped");
+        if (added == 0 && dropped == 0) {
+            return "";
+        }
+        return ": " + added + " new, " + dropped + " dropped";
+    }
+
+    /**
+     * Stores the compiled form of a downloaded dataset, so later launches can map it.
+     * @param dataset The downloaded dataset.
+     */
+    private void saveDownloadedDataset(EmojiDataset dataset) {
+        File compiled = new File(getApplication().getFilesDir(), EMOJI_DATASET_FILENAME);
+        File temp = new File(compiled.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            EmojiDatasetCodec.write(dataset, out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving compiled dataset: " + e.getMessage(), e);
+            return;
+        }
+        if (!temp.renameTo(compiled)) {
+            Log.e(TAG, "Cannot replace " + compiled);
+        }
+    }
+
+    /**
+     * Memory-maps the binary dataset asset. The asset is stored uncompressed, so its bytes can be
+     * mapped straight out of the APK without copying the file first.
+     * @return The bundled dataset.
+     * @throws IOException If the asset cannot be opened or is malformed.
+     */
+    private EmojiDataset loadBundledDataset() throws IOException {
+        try (AssetFileDescriptor descriptor = getApplication().getAssets().openFd(EMOJI_DATASET_FILENAME);
+             FileInputStream in = descriptor.createInputStream();
+             FileChannel channel = in.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                    descriptor.getStartOffset(), descriptor.getLength());
+            return EmojiDatasetCodec.read(buffer);
+        }
+    }
+
+    /**
+     * Checks every tested entry of a locally stored dataset.
+     * @param run The current run.
+     * @param probes Creates the per-worker probes.
+     * @param collector Receives the progress and per-entry results.
+     * @param dataset The emoji test data.
+     * @param cache Cached results for this device, or null.
+     * @param deviceKey The key of the current device and font set.
+     */
+    private void processEmojiDataset(Run run, GlyphProbe.Factory probes, final ResultCollector collector,
+                                     final EmojiDataset dataset, ResultCache cache, String deviceKey) {
+        RunMetrics metrics = run.metrics;
+        final long[] selection = dataset.select(run.statuses);
+        final int total = Bitsets.cardinality(selection);
+
+        // Fill in whatever the result cache already knows for this device and font set
+        final long[] supportedBits = new long[selection.length];
+        long[] pending = selection.clone();
+        if (cache != null) {
+            try (RunMetrics.Stage stage = metrics.stage("cache-resolve")) {
+                pending = cache.resolve(dataset, selection, supportedBits);
+            }
+            Log.d(TAG, "Result cache hit" + (cache.matchesDataset(dataset) ? "" : " for an older dataset")
+                    + ", " + Bitsets.cardinality(pending) + " entries left to probe");
+        }
+
+        // Forms that differ only in FE0F render the same way; probe one of each and copy its result
+        final long[] toProbe;
+        final CanonicalSequences canonical;
+        try (RunMetrics.Stage stage = metrics.stage("dedup")) {
+            canonical = CanonicalSequences.build(dataset, selection);
+            toProbe = canonical.resolve(pending, supportedBits);
+        }
+        final int probeCount = Bitsets.cardinality(toProbe);
+        Log.d(TAG, total + " entries, " + canonical.distinctCount() + " distinct renderings, " + probeCount + " to probe");
+
+        run.progress.reset(total - probeCount, Bitsets.cardinality(supportedBits), total);
+
+        // Count the entries with a result into the support index; the sweep counts the probed ones
+        long[] cachedSelection = new long[selection.length];
+        for (int i = 0; i < selection.length; i++) {
+            cachedSelection[i] = selection[i] & ~pending[i];
+        }
+        SupportIndex.Builder index = new SupportIndex.Builder(dataset).addAll(cachedSelection, supportedBits);
+        collector.addAll(cachedSelection, supportedBits);
+        publishDataset(run, dataset, collector);
+        run.checkpoint.track(dataset, collector);
+
+        try {
+            if (probeCount > 0) {
+                ProbeResult probed;
+                try (RunMetrics.Stage stage = metrics.stage("probe")) {
+                    probed = probeEngine.probe(dataset, toProbe, probes, collector);
+                }
+                long[] probedBits = probed.supportedBits();
+                long[] variants = new long[selection.length];
+                for (int i = 0; i < supportedBits.length; i++) {
+                    supportedBits[i] |= probedBits[i];
+                    variants[i] = pending[i] & ~toProbe[i];
+                }
+                canonical.apply(variants, supportedBits);
+                index.merge(probed.index()).addAll(variants, supportedBits);
+            }
+            finishRun(run, collector, dataset, selection, new ProbeResult(supportedBits, total, index.build()), deviceKey, probeCount > 0);
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Emoji test interrupted");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publishDataset(final Run run, final EmojiDataset dataset, final ResultCollector collector) {
+        post(run, () -> {
+            run.dataset = dataset;
+            run.collector = collector;
+            if (host != null) {
+                host.onDatasetReady(dataset, collector);
+            }
+        });
+    }
+
+    /**
+     * Publishes the final result, updates the result cache and writes the run report.
+     * @param run The current run.
+     * @param collector Receives the final per-entry results.
+     * @param dataset The tested dataset.
+     * @param selection Bitset of the tested entries.
+     * @param result The combined cached and probed result.
+     * @param deviceKey The key of the current device and font set.
+     * @param probed Whether anything was actually probed, i.e. whether the cache is stale.
+     */
+    private void finishRun(final Run run, ResultCollector collector, final EmojiDataset dataset, long[] selection,
+                           final ProbeResult result, final String deviceKey, boolean probed) {
+        final RunMetrics metrics = run.metrics;
+        collector.addAll(selection, result.supportedBits()); // Includes entries the streaming probe took from the cache
+        Log.d(TAG, "Detected Unicode Emoji Version: " + EmojiVersions.toString(dataset.unicodeVersion()));
+        run.checkpoint.close(); // The complete cache replaces the checkpoints
+        if (probed) {
+            try (RunMetrics.Stage stage = metrics.stage("cache-write")) {
+                ResultCache.of(deviceKey, dataset, selection, result.supportedBits())
+                        .write(new File(getApplication().getFilesDir(), RESULT_CACHE_FILENAME));
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing result cache: " + e.getMessage(), e);
+            }
+        }
+        // Finalize UI after all processing, then index the names for search and write the report
+        // off the UI thread; the index is sorted only now so it does not compete with the probes
+        post(run, () -> {
+            run.result = result;
+            if (host != null) {
+                try (RunMetrics.Stage stage = metrics.stage("ui")) {
+                    host.onRunFinished(result);
+                }
+            }
+            if (!executorService.isShutdown()) {
+                executorService.execute(() -> {
+                    buildSearchIndex(run, dataset);
+                    writeRunReport(metrics, dataset, result);
+                    writeSupportReport(deviceKey, dataset, run.statuses, result);
+                });
+            }
+        });
+    }
+
+    /**
+     * Builds the search index of a dataset and publishes it.
+     * @param run The current run.
+     * @param dataset The tested dataset.
+     */
+    private void buildSearchIndex(final Run run, final EmojiDataset dataset) {
+        final SearchIndex index;
+        try (RunMetrics.Stage stage = run.metrics.stage("search-index")) {
+            index = SearchIndex.build(dataset);
+        }
+        Log.d(TAG, "Search index built: " + index.memoryBytes() / 1024 + " KB");
+        post(run, () -> {
+            run.searchIndex = index;
+            if (host != null) {
+                host.onSearchIndexReady(dataset, index);
+            }
+        });
+    }
+
+    /**
+     * Writes the metrics of a finished run as JSON to the app's files directory.
+     * @param metrics Metrics of the run.
+     * @param dataset The tested dataset.
+     * @param result The result of the run.
+     */
+    private void writeRunReport(RunMetrics metrics, EmojiDataset dataset, ProbeResult result) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("device", Build.MANUFACTURER + " " + Build.MODEL);
+        attributes.put("fingerprint", Build.FINGERPRINT);
+        attributes.put("sdk", Integer.toString(Build.VERSION.SDK_INT));
+        attributes.put("workers", Integer.toString(GlyphProbeEngine.defaultParallelism()));
+        attributes.put("dataset", EmojiVersions.toString(dataset.unicodeVersion()));
+        attributes.put("supported", result.supportedCount() + "/" + result.probedCount());
+        File report = new File(getApplication().getFilesDir(), RUN_REPORT_FILENAME);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            metrics.writeReport(out, attributes);
+            Log.d(TAG, "Run report written to " + report);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing run report: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the result of a finished run as a {@link SupportReport} to the app's files directory.
+     * @param deviceKey The key of the current device and font set.
+     * @param dataset The tested dataset.
+     * @param statuses The tested statuses.
+     * @param result The result of the run.
+     */
+    private void writeSupportReport(String deviceKey, EmojiDataset dataset, int statuses, ProbeResult result) {
+        SupportReport report = SupportReport.of(deviceKey, dataset, statuses, result.supportedBits());
+        File file = new File(getApplication().getFilesDir(), SUPPORT_REPORT_FILENAME);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            report.write(out);
+            Log.d(TAG, "Support report written to " + file + ": " + report.encodedLength() + " bytes");
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing support report: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Starts comparing the other fonts with the finished run, unless a comparison is running.
+     * Call on the UI thread.
+     */
+    void compareFonts() {
+        final Run current = run;
+        if (current == null || current.result == null || current.comparing || executorService.isShutdown()) {
+            return;
+        }
+        final ProbeResult reference = current.result;
+        final CoverageMatrix previous = current.matrix;
+        publishComparison(current, true, previous); // At once, so a second tap is ignored
+        executorService.execute(() -> {
+            CoverageMatrix matrix = null;
+            try {
+                matrix = compareFonts(current, reference);
+            } finally {
+                final CoverageMatrix shown = matrix != null ? matrix : previous;
+                post(current, () -> publishComparison(current, false, shown));
+            }
+        });
+    }
+
+    /**
+     * Updates the font comparison state of a run. Runs on the UI thread.
+     */
+    private void publishComparison(Run run, boolean comparing, CoverageMatrix matrix) {
+        run.comparing = comparing;
+        run.matrix = matrix;
+        if (host != null) {
+            host.onFontComparison(comparing, matrix);
+        }
+    }
+
+    /**
+     * Probes the installed emoji fonts and the user's font files in one sweep over the tested
+     * dataset, then saves the coverage matrix. The device's default font stack is not probed
+     * again; the finished run is its column.
+     * @param run The finished run.
+     * @param reference The result of the finished run.
+     * @return The matrix, or null if there is nothing to compare or the comparison was interrupted.
+     */
+    private CoverageMatrix compareFonts(Run run, ProbeResult reference) {
+        FontComparison fonts = FontComparison.load(getApplication().getExternalFilesDir(USER_FONTS_DIR));
+        if (fonts.size() == 0) {
+            toast("No fonts to compare.", Toast.LENGTH_SHORT);
+            return null;
+        }
+        toast("Comparing " + fonts.size() + " fonts...", Toast.LENGTH_SHORT);
+        EmojiDataset dataset = reference.index().dataset();
+        ProbeResult[] probed;
+        long start = System.nanoTime();
+        try {
+            probed = probeEngine.probeAll(dataset, dataset.select(run.statuses), fonts.factories(), null);
+        } catch (InterruptedException e) {
+            Log.d(TAG, "Font comparison interrupted");
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        Log.d(TAG, "Compared " + fonts.size() + " fonts in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        String[] names = new String[probed.length + 1];
+        ProbeResult[] results = new ProbeResult[probed.length + 1];
+        names[0] = "System default";
+        results[0] = reference;
+        System.arraycopy(fonts.names(), 0, names, 1, probed.length);
+        System.arraycopy(probed, 0, results, 1, probed.length);
+        CoverageMatrix matrix = new CoverageMatrix(names, results);
+
+        File report = new File(getApplication().getFilesDir(), FONT_MATRIX_FILENAME);
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(report), StandardCharsets.UTF_8)) {
+            matrix.writeReport(out);
+            Log.d(TAG, "Font matrix written to " + report);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing font matrix: " + e.getMessage(), e);
+        }
+        return matrix;
+    }
+}
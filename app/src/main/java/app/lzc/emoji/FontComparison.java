@@ -0,0 +1,94 @@
+package app.lzc.emoji;
+
+import android.graphics.Typeface;
+import android.graphics.fonts.Font;
+import android.graphics.fonts.FontFamily;
+import android.os.Build;
+import android.util.Log;
+
+import app.lzc.emoji.core.GlyphProbe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The typefaces compared against the device's default font stack: the installed emoji fonts and
+ * any TTF/OTF file the user copied into the app's external "fonts" directory.
+ * <p>
+ * From Android 10 each file is loaded as a typeface without system fallback, so its column shows
+ * what the file itself covers. Older versions can only use {@link Typeface#createFromFile(File)},
+ * whose fallback to the system fonts makes the column an upper bound.
+ */
+final class FontComparison {
+
+    private static final String TAG = "FontComparison";
+
+    private final List<String> names = new ArrayList<>();
+    private final List<GlyphProbe.Factory> factories = new ArrayList<>();
+
+    private FontComparison() {
+    }
+
+    /**
+     * Loads every font to compare. Files that cannot be loaded are logged and skipped.
+     * @param userFontsDir Directory holding the user's font files, or null.
+     * @return The loaded fonts, possibly none.
+     */
+    static FontComparison load(File userFontsDir) {
+        Set<File> files = new LinkedHashSet<>(DeviceFingerprint.emojiFontFiles()); // Drops per-weight duplicates
+        File[] userFiles = userFontsDir == null ? null : userFontsDir.listFiles();
+        if (userFiles != null) {
+            for (File file : userFiles) {
+                String name = file.getName().toLowerCase(Locale.ROOT);
+                if (file.isFile() && (name.endsWith(".ttf") || name.endsWith(".otf"))) {
+                    files.add(file);
+                }
+            }
+        }
+        FontComparison comparison = new FontComparison();
+        for (File file : files) {
+            try {
+                Typeface typeface = loadTypeface(file);
+                comparison.names.add(file.getName());
+                comparison.factories.add(PaintGlyphProbe.factory(typeface));
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Skipping font " + file + ": " + e.getMessage());
+            }
+        }
+        return comparison;
+    }
+
+    /**
+     * @return The number of loaded fonts.
+     */
+    int size() {
+        return names.size();
+    }
+
+    /**
+     * @return The file name of each font.
+     */
+    String[] names() {
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * @return A probe factory per font, in the order of {@link #names()}.
+     */
+    GlyphProbe.Factory[] factories() {
+        return factories.toArray(new GlyphProbe.Factory[0]);
+    }
+
+    private static Typeface loadTypeface(File file) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Font font = new Font.Builder(file).build();
+            return new Typeface.CustomFallbackBuilder(new FontFamily.Builder(font).build()).build();
+        }
+        return Typeface.createFromFile(file);
+    }
+}
@@ -0,0 +1,132 @@
+package app.lzc.emoji;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import app.lzc.emoji.core.EmojiDataset;
+
+/**
+ * Bounded LRU cache of rendered glyphs, keyed by dataset entry.
+ * <p>
+ * The LRU list is kept in int arrays indexed by entry, so lookups neither box keys nor allocate
+ * list nodes; a cell that scrolls back into view costs an array lookup instead of a text layout.
+ * Misses are drawn with one reused Paint, Canvas and char buffer. Not thread-safe; used on the UI
+ * thread only.
+ */
+final class GlyphBitmapCache {
+
+    private static final int NONE = -1;
+
+    private final EmojiDataset dataset;
+    private final int cellSize;
+    private final long maxBytes;
+    private final Bitmap[] bitmaps;
+    private final int[] newer;  // Towards the most recently used entry
+    private final int[] older;  // Towards the least recently used entry
+    private int newest = NONE;
+    private int oldest = NONE;
+    private long bytes = 0;
+
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Canvas canvas = new Canvas();
+    private final Paint.FontMetrics metrics = new Paint.FontMetrics();
+    private char[] chars = new char[64]; // Grown for longer sequences, e.g. in a downloaded file
+
+    /**
+     * @param dataset The dataset whose entries are drawn.
+     * @param cellSize Width and height of each bitmap in pixels.
+     * @param maxBytes Upper bound for the bitmaps held by the cache.
+     * @param textColor Color for glyphs without colors of their own, e.g. missing-glyph boxes.
+     */
+    GlyphBitmapCache(EmojiDataset dataset, int cellSize, long maxBytes, int textColor) {
+        this.dataset = dataset;
+        this.cellSize = cellSize;
+        this.maxBytes = maxBytes;
+        this.bitmaps = new Bitmap[dataset.size()];
+        this.newer = new int[dataset.size()];
+        this.older = new int[dataset.size()];
+        paint.setColor(textColor);
+        paint.setTextAlign(Paint.Align.CENTER);
+        paint.setTextSize(cellSize * 0.75f);
+        paint.getFontMetrics(metrics);
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The rendered glyph, drawn now if it was not cached.
+     */
+    Bitmap get(int entry) {
+        Bitmap bitmap = bitmaps[entry];
+        if (bitmap != null) {
+            unlink(entry);
+            linkNewest(entry);
+            return bitmap;
+        }
+        bitmap = render(entry);
+        int size = bitmap.getAllocationByteCount();
+        while (oldest != NONE && bytes + size > maxBytes) {
+            evict(oldest);
+        }
+        bitmaps[entry] = bitmap;
+        bytes += size;
+        linkNewest(entry);
+        return bitmap;
+    }
+
+    /**
+     * Drops all bitmaps, e.g. when the activity goes away.
+     */
+    void clear() {
+        while (oldest != NONE) {
+            evict(oldest);
+        }
+    }
+
+    private Bitmap render(int entry) {
+        // Not recycled on eviction: an evicted bitmap may still be shown by a bound cell
+        Bitmap bitmap = Bitmap.createBitmap(cellSize, cellSize, Bitmap.Config.ARGB_8888);
+        canvas.setBitmap(bitmap);
+        if (dataset.length(entry) * 2 > chars.length) {
+            chars = new char[dataset.length(entry) * 2]; // At most two chars per codepoint
+        }
+        int length = dataset.toChars(entry, chars);
+        float baseline = (cellSize - metrics.ascent - metrics.descent) / 2; // Centers ascent to descent
+        canvas.drawText(chars, 0, length, cellSize / 2f, baseline, paint);
+        canvas.setBitmap(null);
+        return bitmap;
+    }
+
+    private void evict(int entry) {
+        unlink(entry);
+        bytes -= bitmaps[entry].getAllocationByteCount();
+        bitmaps[entry] = null;
+    }
+
+    private void linkNewest(int entry) {
+        newer[entry] = NONE;
+        older[entry] = newest;
+        if (newest != NONE) {
+            newer[newest] = entry;
+        }
+        newest = entry;
+        if (oldest == NONE) {
+            oldest = entry;
+        }
+    }
+
+    private void unlink(int entry) {
+        int n = newer[entry];
+        int o = older[entry];
+        if (n != NONE) {
+            older[n] = o;
+        } else {
+            newest = o;
+        }
+        if (o != NONE) {
+            newer[o] = n;
+        } else {
+            oldest = n;
+        }
+    }
+}
@@ -1,47 +1,43 @@
 package app.lzc.emoji;
 
 import android.annotation.SuppressLint;
+import android.content.SharedPreferences;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.graphics.Paint;
 import android.os.Bundle;
-import android.text.Html;
 import android.util.Log;
 import android.view.View;
+import android.widget.CheckBox;
+import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
+import android.widget.RadioGroup;
+import android.widget.Spinner;
 import android.widget.TextView;
-import android.widget.Toast; // Import for showing toast messages
 
 import androidx.appcompat.app.AppCompatActivity;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.file.Files;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-public class MainActivity extends AppCompatActivity {
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.RecyclerView;
+
+import app.lzc.emoji.core.CoverageMatrix;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiReleases;
+import app.lzc.emoji.core.EmojiStatus;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.ProbeResult;
+import app.lzc.emoji.core.ResultCollector;
+import app.lzc.emoji.core.RunMetrics;
+import app.lzc.emoji.core.SearchIndex;
+import app.lzc.emoji.core.SequenceSet;
+import app.lzc.emoji.core.SupportIndex;
+
+public class MainActivity extends AppCompatActivity implements EmojiTestViewModel.Host {
 
     private static final String TAG = "EmojiTestApp"; // Tag for logging
-    private static final String UNICODE_EMOJI_TEST_URL = "https://www.unicode.org/Public/emoji/latest/emoji-test.txt";
-    private static final String EMOJI_TEST_FILENAME = "emoji-test.txt";
-
-    private int numValid = 0;
-    private int numMax = 0;
-    private String latestUnicodeEmojiVersion = "Unknown"; // Version from unicode.org emoji-test.txt
+    // Statuses that are probed by default; minimally-qualified and unqualified forms are skipped
+    private static final int DEFAULT_STATUSES = EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT);
+    private static final String PREFERENCES_NAME = "settings";
+    private static final String PREF_ALL_STATUSES = "all_statuses";
 
     // UI Elements
     private TextView titleTextView;
@@ -53,77 +49,19 @@ public class MainActivity extends AppCompatActivity {
     private ProgressBar progressBar;
     private LinearLayout emojiLinearLayout;
     private TextView resultTextView;
-
-    // Executor for background tasks to manage threads more efficiently
-    private ExecutorService executorService = Executors.newSingleThreadExecutor();
-
-    // Inner class to hold emoji version information
-    private static class EmojiVersionInfo {
-        String version;
-        String unicodeCodepoints; // Space-separated codepoints like "1F600" or "1F468 200D 1F469"
-
-        EmojiVersionInfo(String version, String unicodeCodepoints) {
-            this.version = version;
-            this.unicodeCodepoints = unicodeCodepoints;
-        }
-    }
-
-    // Hardcoded list of representative emojis for version detection.
-    // Sorted in descending order of version.
-    private static final ArrayList<EmojiVersionInfo> EMOJI_VERSIONS_TO_TEST = new ArrayList<>();
-
-    static {
-        // Initialize the list of emojis and their introduction versions.
-        // These are carefully chosen as representative for their respective versions.
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("17.0", "1FAEA")); // Distorted Face
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("16.0", "1FAE9")); // Face with Bags Under Eyes
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("15.1", "1F642 200D 2194 FE0F")); // Head Shaking Horizontally
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("15.0", "1FAE8")); // Shaking Face
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("14.0", "1FAE0")); // Melting Face
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("13.1", "1F636 200D 1F32B FE0F")); // Face in Clouds
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("13.0", "1F972")); // Smiling Face with Tear
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("12.1", "1F9D1 200D 1F9B0")); // Person: Red Hair
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("12.0", "1F971")); // Yawning Face
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("11.0", "1F970")); // Smiling Face with Hearts
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("5.0", "1F929"));  // Star-Struck
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("4.0", "1F471 200D 2640 FE0F"));  // Woman: Blond Hair
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("3.0", "1F923"));  // Rolling on the Floor Laughing
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("2.0", "1F441 FE0F 200D 1F5E8 FE0F"));  // Eye in Speech Bubble
-        EMOJI_VERSIONS_TO_TEST.add(new EmojiVersionInfo("1.0", "1F600"));  // Grinning Face
-
-        // Sort the list in descending order of version to find the highest supported version first.
-        Collections.sort(EMOJI_VERSIONS_TO_TEST, new Comparator<EmojiVersionInfo>() {
-            @Override
-            public int compare(EmojiVersionInfo o1, EmojiVersionInfo o2) {
-                return compareVersions(o2.version, o1.version); // o2 vs o1 for descending
-            }
-        });
-    }
-
-    /**
-     * Helper method to compare two version strings (e.g., "16.0" vs "15.1").
-     * @param v1 Version string 1
-     * @param v2 Version string 2
-     * @return A negative integer, zero, or a positive integer as the first version
-     * is less than, equal to, or greater than the second.
-     */
-    private static int compareVersions(String v1, String v2) {
-        String[] parts1 = v1.split("\\.");
-        String[] parts2 = v2.split("\\.");
-        int length = Math.max(parts1.length, parts2.length);
-        for (int i = 0; i < length; i++) {
-            int p1 = i < parts1.length ? Integer.parseInt(parts1[i]) : 0;
-            int p2 = i < parts2.length ? Integer.parseInt(parts2[i]) : 0;
-            if (p1 < p2) {
-                return -1;
-            }
-            if (p1 > p2) {
-                return 1;
-            }
-        }
-        return 0;
-    }
-
+    private View breakdownScrollView;
+    private TextView breakdownTextView;
+    private TextView debugTextView;
+    private View compareFontsButton;
+    private CheckBox allStatusesCheckBox;
+
+    // Runs the test and keeps its state across configuration changes
+    private EmojiTestViewModel viewModel;
+    private ProgressRenderer progressRenderer;
+    // Grid of the tested emojis, filled in while the sweep runs
+    private EmojiGridController gridController;
+    // Statuses probed by this run, chosen with the "all statuses" option
+    private int testedStatuses = DEFAULT_STATUSES;
 
     @SuppressLint("SetTextI18n")
     @Override
@@ -141,6 +79,32 @@ public class MainActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         emojiLinearLayout = findViewById(R.id.emojiLinearLayout);
         resultTextView = findViewById(R.id.resultTextView);
+        breakdownScrollView = findViewById(R.id.breakdownScrollView);
+        breakdownTextView = findViewById(R.id.breakdownTextView);
+        debugTextView = findViewById(R.id.debugTextView);
+        compareFontsButton = findViewById(R.id.compareFontsButton);
+        allStatusesCheckBox = findViewById(R.id.allStatusesCheckBox);
+
+        // Minimally-qualified and unqualified forms are optional; changing the option reruns the test
+        final SharedPreferences preferences = getSharedPreferences(PREFERENCES_NAME, MODE_PRIVATE);
+        boolean allStatuses = preferences.getBoolean(PREF_ALL_STATUSES, false);
+        testedStatuses = allStatuses ? EmojiStatus.ALL : DEFAULT_STATUSES;
+        allStatusesCheckBox.setChecked(allStatuses);
+        allStatusesCheckBox.setOnCheckedChangeListener((button, checked) -> {
+            preferences.edit().putBoolean(PREF_ALL_STATUSES, checked).apply();
+            recreate(); // The retained view model replaces the run when the statuses change
+        });
+
+        // Start the emoji test in the background, or reattach to the run of a previous instance
+        viewModel = new ViewModelProvider(this).get(EmojiTestViewModel.class);
+        viewModel.start(testedStatuses);
+        progressRenderer = new ProgressRenderer(viewModel.progressChannel(), emojiTextView, codeTextView,
+                countTextView, percentTextView, progressBar);
+        RecyclerView emojiGridView = findViewById(R.id.emojiGridView);
+        gridController = new EmojiGridController(emojiGridView, findViewById(R.id.filterBar),
+                (RadioGroup) findViewById(R.id.statusFilter), (Spinner) findViewById(R.id.groupFilter),
+                (Spinner) findViewById(R.id.versionFilter), (EditText) findViewById(R.id.searchField),
+                (TextView) findViewById(R.id.searchSummary), resultTextView.getCurrentTextColor());
 
         // Set app name and version
         titleTextView.setText(getResources().getString(R.string.app_name));
@@ -152,260 +116,83 @@ public class MainActivity extends AppCompatActivity {
             versionTextView.setText("N/A");
         }
 
-        // Start the emoji test in a background thread using the executor service
-        executorService.execute(this::startEmojiTest);
+        // Long-pressing the result toggles the debug panel with the run's timings
+        resultTextView.setOnLongClickListener(v -> {
+            toggleDebugPanel();
+            return true;
+        });
+
+        compareFontsButton.setOnClickListener(v -> viewModel.compareFonts());
+
+        progressRenderer.start();
+        viewModel.attach(this);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Shut down the executor service when the activity is destroyed
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdownNow(); // Interrupt any running tasks
-        }
+        // The run goes on in the view model; a recreated activity attaches to it again
+        viewModel.detach(this);
+        progressRenderer.stop();
+        gridController.release();
     }
 
-    /**
-     * Orchestrates the emoji test process: fetching test data and running checks.
-     */
-    private void startEmojiTest() {
-        File emojiTestFile = downloadEmojiTestFile(); // Downloads or loads from assets
-        if (emojiTestFile != null) {
-            processEmojiTestFile(emojiTestFile);
-        } else {
-            runOnUiThread(() -> Toast.makeText(MainActivity.this, "Failed to initialize emoji data. No emoji test file available.", Toast.LENGTH_LONG).show());
-        }
+    @Override
+    public void onDatasetReady(EmojiDataset dataset, ResultCollector collector) {
+        gridController.attach(dataset, collector);
     }
 
-    /**
-     * Downloads the emoji test file from the Unicode.org server.
-     * If download fails, it attempts to load the file from the app's assets folder.
-     * The file (either downloaded or from assets) is saved to internal storage.
-     * The method also extracts the version from the loaded file.
-     * @return The downloaded/loaded file in internal storage, or null if an error occurred.
-     */
-    private File downloadEmojiTestFile() {
-        HttpURLConnection connection = null;
-        InputStream inputStream = null;
-        FileOutputStream fileOutputStream = null;
-        File destinationFile = new File(getApplication().getFilesDir(), EMOJI_TEST_FILENAME);
-        boolean fileObtainedSuccessfully = false;
-
-        // --- Attempt to download from network first ---
-        try {
-            URL urlEmojiTest = new URL(UNICODE_EMOJI_TEST_URL);
-            connection = (HttpURLConnection) urlEmojiTest.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000); // 5 seconds connection timeout
-            connection.setReadTimeout(5000);    // 5 seconds read timeout
-            connection.connect();
-
-            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                inputStream = connection.getInputStream();
-                fileOutputStream = new FileOutputStream(destinationFile);
-                byte[] buffer = new byte[4096]; // Increased buffer size for efficiency
-                int len;
-                while ((len = inputStream.read(buffer)) != -1) {
-                    fileOutputStream.write(buffer, 0, len);
-                }
-                Log.d(TAG, "Emoji test file downloaded successfully to: " + destinationFile.getAbsolutePath());
-                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Emoji test file downloaded from network.", Toast.LENGTH_SHORT).show());
-                fileObtainedSuccessfully = true;
-            } else {
-                Log.e(TAG, "Failed to download emoji test file from network. HTTP error code: " + connection.getResponseCode());
-                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Failed to download emoji test file. Trying local asset...", Toast.LENGTH_SHORT).show());
-            }
-        } catch (IOException e) {
-            Log.e(TAG, "Network error downloading emoji test file: " + e.getMessage(), e);
-            runOnUiThread(() -> Toast.makeText(MainActivity.this, "Network error downloading emoji test file. Trying local asset...", Toast.LENGTH_SHORT).show());
-        } finally {
-            // Ensure streams and connections are closed after network attempt
-            try {
-                if (inputStream != null) {
-                    inputStream.close();
-                }
-                if (fileOutputStream != null) {
-                    fileOutputStream.close();
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Error closing streams after network attempt: " + e.getMessage());
-            }
-            if (connection != null) {
-                connection.disconnect();
-            }
-        }
-
-        // --- If network download failed, attempt to load from assets ---
-        if (!fileObtainedSuccessfully) {
-            try {
-                inputStream = getAssets().open(EMOJI_TEST_FILENAME);
-                fileOutputStream = new FileOutputStream(destinationFile); // Write asset to internal storage for consistent processing
-                byte[] buffer = new byte[4096];
-                int len;
-                while ((len = inputStream.read(buffer)) != -1) {
-                    fileOutputStream.write(buffer, 0, len);
-                }
-                Log.d(TAG, "Emoji test file loaded from assets to: " + destinationFile.getAbsolutePath());
-                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Using emoji test file from assets.", Toast.LENGTH_LONG).show());
-                fileObtainedSuccessfully = true;
-            } catch (IOException e) {
-                Log.e(TAG, "Error loading emoji test file from assets: " + e.getMessage(), e);
-                runOnUiThread(() -> Toast.makeText(MainActivity.this, "Failed to load emoji test file from assets.", Toast.LENGTH_LONG).show());
-                return null; // Both network and asset failed
-            } finally {
-                // Ensure streams are closed after asset attempt
-                try {
-                    if (inputStream != null) {
-                        inputStream.close();
-                    }
-                    if (fileOutputStream != null) {
-                        fileOutputStream.close();
-                    }
-                } catch (IOException e) {
-                    Log.e(TAG, "Error closing streams after asset attempt: " + e.getMessage());
-                }
-            }
-        }
-
-        // --- Parse version regardless of source (network or asset) ---
-        if (fileObtainedSuccessfully) {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new java.io.FileInputStream(destinationFile)))) {
-                String line;
-                // Pattern to match '# Version: X.Y' at the beginning of the file
-                Pattern versionPattern = Pattern.compile("^# Version: (\\d+\\.\\d+)$");
-                while ((line = reader.readLine()) != null) {
-                    Matcher matcher = versionPattern.matcher(line);
-                    if (matcher.find()) {
-                        latestUnicodeEmojiVersion = matcher.group(1);
-                        Log.d(TAG, "Detected Unicode Emoji Version: " + latestUnicodeEmojiVersion);
-                        break; // Found the version, no need to read further
-                    }
-                }
-            } catch (IOException e) {
-                Log.e(TAG, "Error reading file to extract version: " + e.getMessage(), e);
-            }
-            return destinationFile;
-        }
-        return null; // No file could be obtained successfully from either source
+    @Override
+    public void onRunFinished(ProbeResult result) {
+        finalizeUI(result);
     }
 
-    /**
-     * Processes the downloaded emoji-test.txt file line by line.
-     * @param emojiTestFile The file containing emoji test data.
-     */
-    private void processEmojiTestFile(File emojiTestFile) {
-        BufferedReader bufReader = null;
-        try {
-            bufReader = new BufferedReader(new InputStreamReader(Files.newInputStream(emojiTestFile.toPath())));
-            String line;
-            List<String> linesToProcess = new ArrayList<>(); // Renamed from 'lines' to avoid confusion with parameter 'line'
-            while ((line = bufReader.readLine()) != null) {
-                // Filter out comments, empty lines, and specific test types
-                if (line.startsWith("#") || line.trim().isEmpty() || line.contains("minimally-qualified") || line.contains("unqualified")) {
-                    continue;
-                }
-                linesToProcess.add(line);
-            }
-
-            // Reset counters for a fresh run
-            numValid = 0;
-            numMax = 0;
-
-            // Set max for progress bar once on the UI thread
-            runOnUiThread(() -> progressBar.setMax(linesToProcess.size()));
-
-            long lastUpdateTime = System.currentTimeMillis();
-            final long UPDATE_INTERVAL_MS = 50; // Update UI every 50 milliseconds or so
-
-            for (String currentLine : linesToProcess) {
-                String formattedUnicode = formatUnicode(currentLine);
-                numMax++; // Increment numMax for each processed line
-
-                if (validEmoji(formattedUnicode)) {
-                    numValid++;
-                }
-
-                // Update UI periodically based on time or when all lines are processed
-                long currentTime = System.currentTimeMillis();
-                if (currentTime - lastUpdateTime > UPDATE_INTERVAL_MS || numMax == linesToProcess.size()) {
-                    runOnUiThread(() -> updateProgressDisplay(numValid, numMax, formattedUnicode));
-                    lastUpdateTime = currentTime;
-                }
-            }
-            runOnUiThread(this::finalizeUI); // Finalize UI after all processing
-        } catch (IOException e) {
-            Log.e(TAG, "Error reading emoji test file: " + e.getMessage(), e);
-            runOnUiThread(() -> Toast.makeText(MainActivity.this, "Error reading emoji test file.", Toast.LENGTH_LONG).show());
-        } finally {
-            if (bufReader != null) {
-                try {
-                    bufReader.close();
-                } catch (IOException e) {
-                    Log.e(TAG, "Error closing BufferedReader: " + e.getMessage());
-                }
-            }
-        }
+    @Override
+    public void onSearchIndexReady(EmojiDataset dataset, SearchIndex index) {
+        gridController.setSearchIndex(dataset, index);
     }
 
-    /**
-     * Checks if a given unicode string represents a valid emoji on the device.
-     * Uses Paint.hasGlyph to determine if the system can render the emoji.
-     * @param unicode The unicode string in "&#xXXXX;" format.
-     * @return true if the emoji is valid and can be rendered, false otherwise.
-     */
-    private boolean validEmoji(String unicode) {
-        Paint paint = new Paint();
-        // Html.fromHtml is deprecated in newer APIs but used here for compatibility with original code.
-        // For new projects, consider using HtmlCompat.fromHtml from AndroidX.
-        String emoji = String.valueOf(Html.fromHtml(unicode, Html.FROM_HTML_MODE_COMPACT));
-        return paint.hasGlyph(emoji);
+    @Override
+    public void onFontComparison(boolean comparing, CoverageMatrix matrix) {
+        compareFontsButton.setEnabled(!comparing);
+        if (matrix != null) {
+            breakdownTextView.setText(formatMatrix(matrix));
+        }
     }
 
     /**
-     * Updates the UI with the current progress of the emoji test.
-     * This method runs on the UI thread and is called periodically from the background thread.
-     * @param currentValid The number of valid emojis found so far.
-     * @param currentMax The total number of emojis processed so far.
-     * @param lastFormattedUnicode The formatted Unicode string of the last emoji processed.
+     * Shows or hides the timings of the last run. Runs on the UI thread.
      */
-    @SuppressLint("SetTextI18n")
-    private void updateProgressDisplay(int currentValid, int currentMax, String lastFormattedUnicode) {
-        // Update the current emoji and its code that is being tested
-        emojiTextView.setText(Html.fromHtml(lastFormattedUnicode, Html.FROM_HTML_MODE_COMPACT));
-        String strDisplay = lastFormattedUnicode.replace("&#x", " ").trim();
-        codeTextView.setText(strDisplay);
-
-        // Update counts and percentage
-        @SuppressLint("DefaultLocale")
-        String percentage = String.format("%.2f", ((double) currentValid / currentMax) * 100);
-        countTextView.setText(currentValid + " / " + currentMax + " = ");
-        percentTextView.setText(percentage + "%");
-
-        // Update the progress bar
-        progressBar.setProgress(currentMax);
+    private void toggleDebugPanel() {
+        RunMetrics metrics = viewModel.metrics();
+        if (debugTextView.getVisibility() == View.VISIBLE || metrics == null) {
+            debugTextView.setVisibility(View.GONE);
+            return;
+        }
+        debugTextView.setText(metrics.summary());
+        debugTextView.setVisibility(View.VISIBLE);
     }
 
     /**
      * Finalizes the UI after all emoji tests are complete.
      * This method runs on the UI thread.
+     * @param result The result of the probing run.
      */
     @SuppressLint("SetTextI18n")
-    private void finalizeUI() {
+    private void finalizeUI(ProbeResult result) {
+        progressRenderer.stop(); // Draws the final counts
+        gridController.finish();
         emojiLinearLayout.setVisibility(View.GONE);
         progressBar.setVisibility(View.GONE);
 
-        // Determine the device's highest supported emoji version
-        String deviceSupportedEmojiVersion = "Unknown";
-        for (EmojiVersionInfo info : EMOJI_VERSIONS_TO_TEST) {
-            String formattedEmoji = formatUnicode(info.unicodeCodepoints);
-            // Log.d(TAG, "Checking emoji version " + info.version + " with emoji: " + formattedEmoji); // Debugging
-            if (validEmoji(formattedEmoji)) {
-                deviceSupportedEmojiVersion = info.version;
-                break; // Found the highest supported version
-            }
-        }
+        // Determine the device's highest supported emoji version from the per-version counts of the sweep
+        SupportIndex index = result.index();
+        int deviceVersion = index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE);
+        String deviceSupportedEmojiVersion = EmojiVersions.toString(deviceVersion);
 
         // Calculate percentage of supported emojis from the current emoji-test.txt
+        int numValid = result.supportedCount();
+        int numMax = result.probedCount();
         @SuppressLint("DefaultLocale")
         String supportedPercentage = (numMax > 0) ? String.format("%.2f", ((double) numValid / numMax) * 100) : "0.00";
 
@@ -413,35 +200,125 @@ public class MainActivity extends AppCompatActivity {
         // Display the Unicode standard emoji version, the device supported version,
         // and the percentage of supported emojis from the loaded test file.
         resultTextView.setText(
-                "Latest Emoji: \n" + latestUnicodeEmojiVersion + "\n\n" +
+                "Latest Emoji: \n" + EmojiVersions.toString(index.dataset().unicodeVersion()) + "\n\n" +
                         "Device Supported: \n" +
                         numValid + " / " + numMax + " (" + supportedPercentage + "%)" + "\n" +
                         "≈ Emoji " + deviceSupportedEmojiVersion
         );
+
+        breakdownScrollView.setVisibility(View.VISIBLE);
+        breakdownTextView.setText(formatReleases(result, testedStatuses) + "\n" + formatBreakdown(index));
+        compareFontsButton.setVisibility(View.VISIBLE);
+        allStatusesCheckBox.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * Formats a coverage matrix as a legend of the fonts followed by one line per emoji version
+     * and group, with the supported counts of the fonts side by side.
+     * @param matrix The matrix to format.
+     * @return The text.
+     */
+    private static String formatMatrix(CoverageMatrix matrix) {
+        EmojiDataset dataset = matrix.dataset();
+        SupportIndex reference = matrix.result(0).index();
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < matrix.columnCount(); c++) {
+            ProbeResult result = matrix.result(c);
+            sb.append(c + 1).append(": ").append(matrix.name(c)).append(" ")
+                    .append(result.supportedCount()).append(" / ").append(result.probedCount())
+                    .append(", ≈ Emoji ").append(EmojiVersions.toString(
+                            result.index().highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE)));
+            if (c > 0) {
+                sb.append(" (+").append(matrix.gainedOverReference(c))
+                        .append(" / -").append(matrix.lostAgainstReference(c)).append(')');
+            }
+            sb.append('\n');
+        }
+        sb.append('\n');
+        for (int id = dataset.versionCount() - 1; id >= 0; id--) { // Newest version first
+            int total = reference.versionTotal(id);
+            if (total > 0) {
+                sb.append("Emoji ").append(EmojiVersions.toString(dataset.version(id))).append(": ");
+                for (int c = 0; c < matrix.columnCount(); c++) {
+                    sb.append(c == 0 ? "" : " · ").append(matrix.result(c).index().versionSupported(id));
+                }
+                sb.append(" / ").append(total).append('\n');
+            }
+        }
+        sb.append('\n');
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            int total = reference.groupTotal(id);
+            if (total > 0) {
+                sb.append(dataset.groupName(id)).append(": ");
+                for (int c = 0; c < matrix.columnCount(); c++) {
+                    sb.append(c == 0 ? "" : " · ").append(matrix.result(c).index().groupSupported(id));
+                }
+                sb.append(" / ").append(total).append('\n');
+            }
+        }
+        return sb.toString();
+    }
 
     /**
-     * Formats a raw line from emoji-test.txt into HTML-compatible unicode escape sequences.
-     * Example: "1F600" becomes "&#x1F600;"
-     * Handles multiple codepoints: "1F468 200D 1F469 200D 1F467" becomes "&#x1F468;&#x200D;&#x1F469;&#x200D;&#x1F467;"
-     * @param line The raw line from emoji-test.txt.
-     * @return The formatted unicode string.
+     * Re-scores a result against every emoji release the dataset covers: the newest release the
+     * device supports completely, then for each newer release how many of its sequences and of
+     * the sequences it added are missing.
+     * @param result The result of the finished run.
+     * @param statuses The tested statuses.
+     * @return One line for the complete release and one per incomplete release, newest first.
      */
-    private String formatUnicode(String line) {
-        // Extract the part of the line before the '#' comment, then before the ';' property.
-        // This ensures we only get the hexadecimal codepoints.
-        String tempLine = line.split("#")[0]; // Get everything before the # comment
-        String codepointString = tempLine.split(";")[0].trim(); // Get everything before the ; property, then trim
+    private static String formatReleases(ProbeResult result, int statuses) {
+        EmojiDataset dataset = result.index().dataset();
+        EmojiReleases releases = EmojiReleases.of(dataset, statuses);
+        SequenceSet supported = SequenceSet.of(dataset, result.supportedBits());
+        int[] supportedCounts = releases.supportedPerRelease(supported);
+        int[] sizes = releases.sizePerRelease();
+        int complete = releases.newestCompleteRelease(supported);
+        StringBuilder sb = new StringBuilder();
+        sb.append("Complete through Emoji ")
+                .append(complete < 0 ? "-" : EmojiVersions.toString(releases.version(complete))).append('\n');
+        for (int release = releases.count() - 1; release > complete; release--) {
+            int additions = sizes[release] - (release == 0 ? 0 : sizes[release - 1]);
+            if (additions == 0) {
+                continue; // No tested sequences were introduced in this release
+            }
+            int missing = sizes[release] - supportedCounts[release];
+            int missingAdditions = missing - (release == 0 ? 0 : sizes[release - 1] - supportedCounts[release - 1]);
+            sb.append("Emoji ").append(EmojiVersions.toString(releases.version(release))).append(": ")
+                    .append(missing).append(" missing, ").append(missingAdditions).append(" of ")
+                    .append(additions).append(" additions\n");
+        }
+        return sb.toString();
+    }
 
-        // Replace one or more spaces with "&#x" to prepare for the HTML format.
-        // Then add "&#x" prefix to the beginning.
-        // Example: "1F600" -> "&#x1F600"
-        // Example: "1F468 200D 1F469" -> "&#x1F468;&#x200D;&#x1F469"
-        String result = "&#x" + codepointString.replaceAll("\\s+", "&#x");
+    /**
+     * Formats the supported/tested counts per emoji version and group.
+     * @param index The support index of the finished run.
+     * @return One line per version and group.
+     */
+    private static String formatBreakdown(SupportIndex index) {
+        EmojiDataset dataset = index.dataset();
+        StringBuilder sb = new StringBuilder();
+        for (int id = dataset.versionCount() - 1; id >= 0; id--) { // Newest version first
+            int total = index.versionTotal(id);
+            if (total > 0) {
+                appendBreakdownLine(sb, "Emoji " + EmojiVersions.toString(dataset.version(id)), index.versionSupported(id), total);
+            }
+        }
+        sb.append('\n');
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            int total = index.groupTotal(id);
+            if (total > 0) {
+                appendBreakdownLine(sb, dataset.groupName(id), index.groupSupported(id), total);
+            }
+        }
+        return sb.toString();
+    }
 
-        // Remove any trailing "&#x" that might occur if the line ended with a space
-        // before the comment or semicolon. This is a safety measure.
-        return result.replaceAll("&#x$", "");
+    @SuppressLint("DefaultLocale")
+    private static void appendBreakdownLine(StringBuilder sb, String label, int supported, int total) {
+        sb.append(label).append(": ").append(supported).append(" / ").append(total)
+                .append(String.format(" (%.1f%%)", (double) supported / total * 100)).append('\n');
     }
-}
+
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package app.lzc.emoji;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import app.lzc.emoji.core.GlyphProbe;
+
+/**
+ * {@link GlyphProbe} backed by {@link Paint#hasGlyph(String)}, i.e. the device's own font stack
+ * or a given typeface. Paint is not thread-safe, so every probe owns its Paint.
+ */
+final class PaintGlyphProbe implements GlyphProbe {
+
+    /** Creates a fresh probe, and with it a fresh Paint, for each worker thread. */
+    static final GlyphProbe.Factory FACTORY = PaintGlyphProbe::new;
+
+    private final Paint paint = new Paint();
+
+    private PaintGlyphProbe() {
+    }
+
+    private PaintGlyphProbe(Typeface typeface) {
+        paint.setTypeface(typeface);
+    }
+
+    /**
+     * @param typeface The typeface to probe; typefaces are immutable and shared by all workers.
+     * @return A factory of probes drawing with the typeface.
+     */
+    static GlyphProbe.Factory factory(final Typeface typeface) {
+        return () -> new PaintGlyphProbe(typeface);
+    }
+
+    @Override
+    public boolean hasGlyph(String text) {
+        return paint.hasGlyph(text);
+    }
+}
@@ -0,0 +1,142 @@
+package app.lzc.emoji;
+
+import android.view.Choreographer;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.ProgressChannel;
+
+/**
+ * Renders a {@link ProgressChannel} at most once per display frame.
+ * <p>
+ * Worker threads publish into the channel as fast as they like; this callback picks up the latest
+ * snapshot on each vsync and skips frames where nothing changed. Texts are built in reused
+ * buffers and handed to {@link TextView#setText(char[], int, int)}, so a frame allocates nothing.
+ * All methods must be called on the UI thread.
+ */
+final class ProgressRenderer implements Choreographer.FrameCallback {
+
+    private final ProgressChannel channel;
+    private final TextView emojiTextView;
+    private final TextView codeTextView;
+    private final TextView countTextView;
+    private final TextView percentTextView;
+    private final ProgressBar progressBar;
+
+    private final StringBuilder builder = new StringBuilder(64);
+    private char[] codeChars = new char[64];
+    private char[] countChars = new char[32];
+    private char[] percentChars = new char[16];
+    private boolean running = false;
+    private boolean indeterminate = true;
+
+    ProgressRenderer(ProgressChannel channel, TextView emojiTextView, TextView codeTextView,
+                     TextView countTextView, TextView percentTextView, ProgressBar progressBar) {
+        this.channel = channel;
+        this.emojiTextView = emojiTextView;
+        this.codeTextView = codeTextView;
+        this.countTextView = countTextView;
+        this.percentTextView = percentTextView;
+        this.progressBar = progressBar;
+    }
+
+    /**
+     * Starts rendering on every frame until {@link #stop()}. The progress bar is indeterminate
+     * until a snapshot with a known total arrives. The latest snapshot is drawn at once, so views
+     * recreated during a run show its progress before the next update.
+     */
+    void start() {
+        progressBar.setIndeterminate(true);
+        indeterminate = true;
+        ProgressChannel.Snapshot snapshot = channel.peek();
+        if (snapshot != null) {
+            render(snapshot);
+        }
+        if (!running) {
+            running = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Stops rendering after drawing the latest snapshot one last time.
+     */
+    void stop() {
+        if (running) {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        ProgressChannel.Snapshot snapshot = channel.poll();
+        if (snapshot != null) {
+            render(snapshot);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!running) {
+            return;
+        }
+        ProgressChannel.Snapshot snapshot = channel.poll();
+        if (snapshot != null) {
+            render(snapshot);
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void render(ProgressChannel.Snapshot snapshot) {
+        int probed = snapshot.probed();
+        int supported = snapshot.supported();
+
+        // Update the current emoji and its code that is being tested
+        String text = snapshot.text();
+        if (text != null) {
+            emojiTextView.setText(text);
+            builder.setLength(0);
+            EmojiDataset.appendTextHex(text, builder);
+            codeChars = setText(codeTextView, codeChars);
+        }
+
+        // Update counts and percentage; hundredths of a percent in integer math, rounded half up
+        builder.setLength(0);
+        builder.append(supported).append(" / ").append(probed).append(" = ");
+        countChars = setText(countTextView, countChars);
+        builder.setLength(0);
+        long hundredths = probed == 0 ? 0 : (supported * 20000L / probed + 1) / 2;
+        builder.append(hundredths / 100).append('.');
+        int fraction = (int) (hundredths % 100);
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        builder.append(fraction).append('%');
+        percentChars = setText(percentTextView, percentChars);
+
+        // Update the progress bar, which stays indeterminate until the total is known
+        int total = snapshot.total();
+        if (total != ProgressChannel.UNKNOWN_TOTAL) {
+            if (indeterminate) {
+                progressBar.setIndeterminate(false);
+                indeterminate = false;
+            }
+            if (progressBar.getMax() != total) {
+                progressBar.setMax(total);
+            }
+            progressBar.setProgress(probed);
+        }
+    }
+
+    /**
+     * Copies the builder into a reused buffer and shows it.
+     * @return The buffer, grown if the text did not fit.
+     */
+    private char[] setText(TextView view, char[] buffer) {
+        int length = builder.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        builder.getChars(0, length, buffer, 0);
+        view.setText(buffer, 0, length);
+        return buffer;
+    }
+}
@@ -0,0 +1,27 @@
+package app.lzc.emoji.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Loads the emoji-test.txt the benchmarks run on.
+ */
+final class BenchmarkData {
+
+    private static final String FILE_PROPERTY = "emoji.test.file";
+    private static final String DEFAULT_FILE = "app/src/main/emoji/emoji-test.txt";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return The raw bytes of the file named by the emoji.test.file system property, by default
+     *         the file bundled with the app.
+     * @throws IOException If the file cannot be read.
+     */
+    static byte[] emojiTestBytes() throws IOException {
+        File file = new File(System.getProperty(FILE_PROPERTY, DEFAULT_FILE));
+        return Files.readAllBytes(file.toPath());
+    }
+}
@@ -0,0 +1,93 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiStatus;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turning every tested entry into its display hex and its probe string, per full pass over the
+ * fully-qualified and component entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FormatBenchmark {
+
+    private String[] lines;
+    private EmojiDataset dataset;
+    private int[] entries;
+    private final StringBuilder hex = new StringBuilder();
+    private final char[] chars = new char[64];
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] text = BenchmarkData.emojiTestBytes();
+        List<String> legacyLines = Legacy.readLines(text);
+        lines = legacyLines.toArray(new String[0]);
+        dataset = EmojiDataset.parse(new ByteArrayInputStream(text));
+        long[] selection = dataset.select(EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT));
+        entries = new int[Bitsets.cardinality(selection)];
+        int n = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            if (Bitsets.get(selection, i)) {
+                entries[n++] = i;
+            }
+        }
+    }
+
+    /** Before: the split/replaceAll based formatUnicode. */
+    @Benchmark
+    public void legacyFormatUnicode(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(Legacy.formatUnicode(line));
+        }
+    }
+
+    /** After: hex straight from the codepoint pool into a reused builder. */
+    @Benchmark
+    public void appendHex(Blackhole bh) {
+        for (int entry : entries) {
+            hex.setLength(0);
+            dataset.appendHex(entry, hex);
+            bh.consume(hex.length());
+        }
+    }
+
+    /** Before: formatUnicode followed by HTML entity decoding to get the string to probe. */
+    @Benchmark
+    public void legacyProbeString(Blackhole bh) {
+        for (String line : lines) {
+            bh.consume(Legacy.decodeEntities(Legacy.formatUnicode(line)));
+        }
+    }
+
+    /** After: the probe string built from the codepoint pool. */
+    @Benchmark
+    public void probeString(Blackhole bh) {
+        for (int entry : entries) {
+            bh.consume(dataset.toString(entry));
+        }
+    }
+
+    /** After, without a String: UTF-16 into a reused buffer, as for TextView.setText(char[], int, int). */
+    @Benchmark
+    public void probeChars(Blackhole bh) {
+        for (int entry : entries) {
+            bh.consume(dataset.toChars(entry, chars));
+        }
+    }
+}
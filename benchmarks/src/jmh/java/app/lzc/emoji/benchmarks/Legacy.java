@@ -0,0 +1,105 @@
+package app.lzc.emoji.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copies of the string-based code that MainActivity used before the core module, kept as the
+ * "before" side of the comparisons. Do not optimize these.
+ */
+final class Legacy {
+
+    private static final Pattern HTML_ENTITY = Pattern.compile("&#x([0-9A-Fa-f]+);?");
+
+    private Legacy() {
+    }
+
+    /**
+     * The line filter of the old processEmojiTestFile.
+     * @param data Raw emoji-test.txt.
+     * @return The lines that were probed.
+     */
+    static List<String> readLines(byte[] data) throws IOException {
+        List<String> linesToProcess = new ArrayList<>();
+        try (BufferedReader bufReader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)))) {
+            String line;
+            while ((line = bufReader.readLine()) != null) {
+                // Filter out comments, empty lines, and specific test types
+                if (line.startsWith("#") || line.trim().isEmpty() || line.contains("minimally-qualified") || line.contains("unqualified")) {
+                    continue;
+                }
+                linesToProcess.add(line);
+            }
+        }
+        return linesToProcess;
+    }
+
+    /**
+     * The version scan of the old downloadEmojiTestFile, which re-read the file.
+     * @param data Raw emoji-test.txt.
+     * @return The version, or null.
+     */
+    static String scanVersion(byte[] data) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data)))) {
+            String line;
+            // Pattern to match '# Version: X.Y' at the beginning of the file
+            Pattern versionPattern = Pattern.compile("^# Version: (\\d+\\.\\d+)$");
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = versionPattern.matcher(line);
+                if (matcher.find()) {
+                    return matcher.group(1);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The old formatUnicode: "1F468 200D 1F469 ; ..." becomes "&#x1F468&#x200D&#x1F469".
+     */
+    static String formatUnicode(String line) {
+        String tempLine = line.split("#")[0]; // Get everything before the # comment
+        String codepointString = tempLine.split(";")[0].trim(); // Get everything before the ; property, then trim
+        String result = "&#x" + codepointString.replaceAll("\\s+", "&#x");
+        return result.replaceAll("&#x$", "");
+    }
+
+    /**
+     * Stand-in for the {@code Html.fromHtml} call that turned formatUnicode output into the probe
+     * string. It only decodes the hex entities, so it understates the cost of the real HTML parse.
+     */
+    static String decodeEntities(String html) {
+        Matcher matcher = HTML_ENTITY.matcher(html);
+        StringBuilder sb = new StringBuilder();
+        while (matcher.find()) {
+            sb.appendCodePoint(Integer.parseInt(matcher.group(1), 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The old compareVersions.
+     */
+    static int compareVersions(String v1, String v2) {
+        String[] parts1 = v1.split("\\.");
+        String[] parts2 = v2.split("\\.");
+        int length = Math.max(parts1.length, parts2.length);
+        for (int i = 0; i < length; i++) {
+            int p1 = i < parts1.length ? Integer.parseInt(parts1[i]) : 0;
+            int p2 = i < parts2.length ? Integer.parseInt(parts2[i]) : 0;
+            if (p1 < p2) {
+                return -1;
+            }
+            if (p1 > p2) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
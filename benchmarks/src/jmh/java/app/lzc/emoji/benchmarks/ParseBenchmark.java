@@ -0,0 +1,98 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiDatasetCodec;
+import app.lzc.emoji.core.EmojiTestParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Getting from the raw emoji-test.txt to something that can be probed: the old line-based
+ * reading, the streaming byte parser, and mapping the precompiled binary dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParseBenchmark {
+
+    private byte[] text;
+    private byte[] compiled;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkData.emojiTestBytes();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EmojiDatasetCodec.write(EmojiDataset.parse(new ByteArrayInputStream(text)), out);
+        compiled = out.toByteArray();
+    }
+
+    /** Before: filter the lines, then scan the file a second time for the version. */
+    @Benchmark
+    public void legacyReadLinesAndVersion(Blackhole bh) throws IOException {
+        List<String> lines = Legacy.readLines(text);
+        bh.consume(lines);
+        bh.consume(Legacy.scanVersion(text));
+    }
+
+    /** Before, including the per-line formatUnicode that produced the probe input. */
+    @Benchmark
+    public void legacyReadLinesAndFormat(Blackhole bh) throws IOException {
+        for (String line : Legacy.readLines(text)) {
+            bh.consume(Legacy.formatUnicode(line));
+        }
+    }
+
+    /** The byte-level parser alone, with a handler that drops everything. */
+    @Benchmark
+    public void parserOnly(final Blackhole bh) throws IOException {
+        EmojiTestParser.parse(new ByteArrayInputStream(text), new EmojiTestParser.Handler() {
+            @Override
+            public void onVersion(int version) {
+                bh.consume(version);
+            }
+
+            @Override
+            public void onGroup(String name) {
+                bh.consume(name);
+            }
+
+            @Override
+            public void onSubgroup(String name) {
+                bh.consume(name);
+            }
+
+            @Override
+            public void onEntry(int[] codepoints, int length, int status, int emojiVersion,
+                                byte[] line, int nameStart, int nameEnd) {
+                bh.consume(codepoints[length - 1]);
+                bh.consume(nameEnd - nameStart);
+            }
+        });
+    }
+
+    /** After: parse into the packed dataset, as for a fresh download. */
+    @Benchmark
+    public EmojiDataset parseDataset() throws IOException {
+        return EmojiDataset.parse(new ByteArrayInputStream(text));
+    }
+
+    /** After: read the precompiled dataset, as at startup. The app maps the asset instead of wrapping an array. */
+    @Benchmark
+    public EmojiDataset readCompiled() throws IOException {
+        return EmojiDatasetCodec.read(ByteBuffer.wrap(compiled));
+    }
+}
@@ -0,0 +1,79 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.SearchIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One keystroke of the grid's search: scanning every entry's name and hex against the
+ * {@link SearchIndex} lookup, plus the one-off cost of building the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @Param({"fa", "face", "squinting", "1f468"})
+    public String query;
+
+    private EmojiDataset dataset;
+    private String[] names;
+    private String[] hexes;
+    private SearchIndex index;
+    private long[] matches;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataset = EmojiDataset.parse(new ByteArrayInputStream(BenchmarkData.emojiTestBytes()));
+        names = new String[dataset.size()];
+        hexes = new String[dataset.size()];
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < dataset.size(); i++) {
+            names[i] = dataset.name(i).toLowerCase(Locale.ROOT);
+            hex.setLength(0);
+            dataset.appendHex(i, hex);
+            hexes[i] = hex.toString().toLowerCase(Locale.ROOT);
+        }
+        index = SearchIndex.build(dataset);
+        matches = new long[Bitsets.words(dataset.size())];
+    }
+
+    /** Before: String.contains over every prepared name and hex string. */
+    @Benchmark
+    public int scanNames() {
+        String q = query.toLowerCase(Locale.ROOT);
+        int found = 0;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].contains(q) || hexes[i].contains(q)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /** After: two binary searches over the suffix array, then one bit per matching suffix. */
+    @Benchmark
+    public int searchIndex() {
+        return index.search(query, false, matches);
+    }
+
+    /** Building the index, done once per dataset after the sweep. */
+    @Benchmark
+    public SearchIndex buildIndex() {
+        return SearchIndex.build(dataset);
+    }
+}
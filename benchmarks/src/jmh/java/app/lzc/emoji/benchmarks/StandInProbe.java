@@ -0,0 +1,47 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.GlyphProbe;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Headless stand-in for Paint.hasGlyph: a lookup in a fixed set of "supported" sequences after a
+ * pass over the codepoints, roughly what a cmap lookup costs. It is much cheaper than a real
+ * probe, so sweeps using it measure the pipeline around the probes rather than the font stack.
+ * The set is read-only after construction and shared between workers.
+ */
+final class StandInProbe implements GlyphProbe {
+
+    private final Set<String> supported;
+
+    StandInProbe(Set<String> supported) {
+        this.supported = supported;
+    }
+
+    /**
+     * @param texts All probe strings of the dataset.
+     * @return The set of those considered supported: everything below U+1FA00, like a font that
+     *         stopped at Emoji 11.
+     */
+    static Set<String> supportedSet(Iterable<String> texts) {
+        Set<String> set = new HashSet<>();
+        for (String text : texts) {
+            if (text.codePointAt(0) < 0x1FA00) {
+                set.add(text);
+            }
+        }
+        return set;
+    }
+
+    @Override
+    public boolean hasGlyph(String text) {
+        int mix = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codepoint = text.codePointAt(i);
+            mix = mix * 31 + codepoint;
+            i += Character.charCount(codepoint);
+        }
+        return mix != 0 && supported.contains(text);
+    }
+}
@@ -0,0 +1,83 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiStatus;
+import app.lzc.emoji.core.GlyphProbe;
+import app.lzc.emoji.core.GlyphProbeEngine;
+import app.lzc.emoji.core.ProbeResult;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole run from raw file to supported count with the {@link StandInProbe}, excluding the
+ * download and the UI.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SweepBenchmark {
+
+    private static final int TESTED_STATUSES = EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT);
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private byte[] text;
+    private Set<String> supported;
+    private GlyphProbe.Factory factory;
+    private GlyphProbeEngine engine;
+
+    @Setup
+    public void setUp() throws IOException {
+        text = BenchmarkData.emojiTestBytes();
+        EmojiDataset dataset = EmojiDataset.parse(new ByteArrayInputStream(text));
+        List<String> texts = new ArrayList<>(dataset.size());
+        for (int i = 0; i < dataset.size(); i++) {
+            texts.add(dataset.toString(i));
+        }
+        supported = StandInProbe.supportedSet(texts);
+        factory = () -> new StandInProbe(supported);
+        engine = new GlyphProbeEngine(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdownNow();
+    }
+
+    /** Before: read lines, format, decode and probe one by one on a single thread; threads is ignored. */
+    @Benchmark
+    public int legacySweep() throws IOException {
+        GlyphProbe probe = new StandInProbe(supported);
+        int valid = 0;
+        for (String line : Legacy.readLines(text)) {
+            if (probe.hasGlyph(Legacy.decodeEntities(Legacy.formatUnicode(line)))) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /** After: parse into the dataset, then probe the selection on the engine's workers. */
+    @Benchmark
+    public int engineSweep() throws IOException, InterruptedException {
+        EmojiDataset dataset = EmojiDataset.parse(new ByteArrayInputStream(text));
+        ProbeResult result = engine.probe(dataset, dataset.select(TESTED_STATUSES), factory, null);
+        return result.supportedCount();
+    }
+}
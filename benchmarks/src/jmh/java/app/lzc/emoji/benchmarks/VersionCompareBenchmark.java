@@ -0,0 +1,60 @@
+package app.lzc.emoji.benchmarks;
+
+import app.lzc.emoji.core.EmojiVersions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Comparing emoji versions as strings, the way the old hardcoded version list was sorted,
+ * against comparing the encoded ints the dataset stores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class VersionCompareBenchmark {
+
+    private static final String[] VERSIONS = {
+            "17.0", "16.0", "15.1", "15.0", "14.0", "13.1", "13.0", "12.1", "12.0", "11.0", "5.0", "4.0", "3.0", "2.0", "1.0"
+    };
+
+    private final String[] strings = VERSIONS.clone();
+    private final int[] encoded = new int[VERSIONS.length];
+
+    public VersionCompareBenchmark() {
+        for (int i = 0; i < VERSIONS.length; i++) {
+            String[] parts = VERSIONS[i].split("\\.");
+            encoded[i] = EmojiVersions.encode(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        }
+    }
+
+    /** Before: split and parse both strings on every comparison; all pairs of the list. */
+    @Benchmark
+    public int legacyCompareVersions() {
+        int sum = 0;
+        for (String a : strings) {
+            for (String b : strings) {
+                sum += Legacy.compareVersions(a, b);
+            }
+        }
+        return sum;
+    }
+
+    /** After: encoded versions compare as plain ints. */
+    @Benchmark
+    public int compareEncoded() {
+        int sum = 0;
+        for (int a : encoded) {
+            for (int b : encoded) {
+                sum += Integer.compare(a, b);
+            }
+        }
+        return sum;
+    }
+}
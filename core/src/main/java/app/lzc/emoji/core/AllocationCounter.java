@@ -0,0 +1,24 @@
+package app.lzc.emoji.core;
+
+/**
+ * Source of an allocation counter for {@link RunMetrics}, e.g. the ART runtime statistics on
+ * Android or the thread MXBean on a JVM.
+ */
+public interface AllocationCounter {
+
+    /**
+     * Returned by counters that are not supported on the current runtime.
+     */
+    long UNAVAILABLE = -1;
+
+    /**
+     * Counter for runtimes without allocation statistics.
+     */
+    AllocationCounter NONE = () -> UNAVAILABLE;
+
+    /**
+     * @return The number of bytes allocated so far, or {@link #UNAVAILABLE}. Only differences
+     *         between two calls are meaningful.
+     */
+    long allocatedBytes();
+}
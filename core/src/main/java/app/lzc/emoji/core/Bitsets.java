@@ -0,0 +1,44 @@
+package app.lzc.emoji.core;
+
+/**
+ * Helpers for bitsets stored as plain {@code long[]} words, one bit per dataset entry.
+ * Unlike {@link java.util.BitSet} the words can be written by several threads as long as each
+ * thread owns whole words.
+ */
+public final class Bitsets {
+
+    private Bitsets() {
+    }
+
+    /**
+     * @param bits Number of bits.
+     * @return Number of words needed to hold the bits.
+     */
+    public static int words(int bits) {
+        return (bits + 63) >>> 6;
+    }
+
+    public static boolean get(long[] words, int bit) {
+        return (words[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public static void set(long[] words, int bit) {
+        words[bit >>> 6] |= 1L << bit;
+    }
+
+    public static void clear(long[] words, int bit) {
+        words[bit >>> 6] &= ~(1L << bit);
+    }
+
+    /**
+     * @param words The bitset.
+     * @return Number of set bits.
+     */
+    public static int cardinality(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,119 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * Groups the selected entries of a dataset that differ only in U+FE0F, i.e. the fully-qualified,
+ * minimally-qualified and unqualified forms of one emoji, so each group is probed once.
+ * <p>
+ * Every group has one representative, its most qualified entry (component and fully-qualified
+ * before minimally-qualified before unqualified, then file order). Probing the representatives
+ * and copying their results to the other members covers every status at about the cost of
+ * probing the fully-qualified entries alone. Keys are {@link EmojiDataset#canonicalHash(int)}
+ * values held in a primitive hash map.
+ */
+public final class CanonicalSequences {
+
+    private final int[] representatives; // Per entry; -1 for entries that are not selected
+    private final int distinct;
+
+    private CanonicalSequences(int[] representatives, int distinct) {
+        this.representatives = representatives;
+        this.distinct = distinct;
+    }
+
+    /**
+     * @param dataset The dataset.
+     * @param selection Bitset of the entries to group.
+     * @return The groups of the selected entries.
+     */
+    public static CanonicalSequences build(EmojiDataset dataset, long[] selection) {
+        LongIntHashMap groups = new LongIntHashMap(Bitsets.cardinality(selection));
+        int[] representatives = new int[dataset.size()];
+        Arrays.fill(representatives, -1);
+        for (int word = 0; word < selection.length; word++) {
+            long pending = selection[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                long key = dataset.canonicalHash(entry);
+                int current = groups.putIfAbsent(key, entry);
+                if (current != LongIntHashMap.MISSING && dataset.status(entry) < dataset.status(current)) {
+                    groups.put(key, entry); // More qualified than the current representative
+                }
+            }
+        }
+        for (int word = 0; word < selection.length; word++) {
+            long pending = selection[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                representatives[entry] = groups.get(dataset.canonicalHash(entry));
+            }
+        }
+        return new CanonicalSequences(representatives, groups.size());
+    }
+
+    /**
+     * @return The number of groups, i.e. of distinct renderings to probe.
+     */
+    public int distinctCount() {
+        return distinct;
+    }
+
+    /**
+     * @param entry A selected entry.
+     * @return The representative of the entry's group; the entry itself for representatives.
+     */
+    public int representative(int entry) {
+        return representatives[entry];
+    }
+
+    /**
+     * Fills in the pending entries whose representative already has a result, e.g. from the
+     * result cache, and picks the entries that still need probing.
+     * @param pending Bitset of selected entries without a result. Entries resolved here are cleared.
+     * @param supported Results of the entries that are not pending; receives the resolved results.
+     * @return Bitset of the pending representatives, the only entries left to probe.
+     */
+    public long[] resolve(long[] pending, long[] supported) {
+        long[] toProbe = new long[pending.length];
+        for (int word = 0; word < pending.length; word++) {
+            long bits = pending[word];
+            while (bits != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                int representative = representatives[entry];
+                if (representative == entry) {
+                    Bitsets.set(toProbe, entry);
+                } else if (!Bitsets.get(pending, representative)) {
+                    Bitsets.clear(pending, entry);
+                    if (Bitsets.get(supported, representative)) {
+                        Bitsets.set(supported, entry);
+                    }
+                }
+            }
+        }
+        return toProbe;
+    }
+
+    /**
+     * Copies the results of the representatives to the other members of their groups.
+     * @param entries Bitset of the selected entries to fill in.
+     * @param supported Holds the results of the representatives; receives those of the entries.
+     */
+    public void apply(long[] entries, long[] supported) {
+        for (int word = 0; word < entries.length; word++) {
+            long bits = entries[word];
+            while (bits != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (Bitsets.get(supported, representatives[entry])) {
+                    Bitsets.set(supported, entry);
+                } else {
+                    Bitsets.clear(supported, entry);
+                }
+            }
+        }
+    }
+}
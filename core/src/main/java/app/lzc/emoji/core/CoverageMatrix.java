@@ -0,0 +1,136 @@
+package app.lzc.emoji.core;
+
+import java.io.IOException;
+
+/**
+ * Side-by-side results of one dataset probed against several font stacks, e.g. from
+ * {@link GlyphProbeEngine#probeAll}. Column 0 is the reference the other columns are compared
+ * with, typically the device's default font stack.
+ */
+public final class CoverageMatrix {
+
+    private final String[] names;
+    private final ProbeResult[] results;
+    private final long[][] supported;
+
+    /**
+     * @param names Name of each column, e.g. a font file name.
+     * @param results Result of each column, all for the same dataset and selection.
+     */
+    public CoverageMatrix(String[] names, ProbeResult[] results) {
+        if (names.length != results.length || results.length == 0) {
+            throw new IllegalArgumentException("Need one name per result and at least one column");
+        }
+        this.names = names.clone();
+        this.results = results.clone();
+        this.supported = new long[results.length][];
+        for (int c = 0; c < results.length; c++) {
+            supported[c] = results[c].supportedBits();
+        }
+    }
+
+    /**
+     * @return The dataset the columns were probed on.
+     */
+    public EmojiDataset dataset() {
+        return results[0].index().dataset();
+    }
+
+    public int columnCount() {
+        return results.length;
+    }
+
+    public String name(int column) {
+        return names[column];
+    }
+
+    public ProbeResult result(int column) {
+        return results[column];
+    }
+
+    /**
+     * @param column A column.
+     * @return The number of entries the column supports and the reference column does not, i.e.
+     *         what the font would add as a fallback.
+     */
+    public int gainedOverReference(int column) {
+        int count = 0;
+        for (int word = 0; word < supported[column].length; word++) {
+            count += Long.bitCount(supported[column][word] & ~supported[0][word]);
+        }
+        return count;
+    }
+
+    /**
+     * @param column A column.
+     * @return The number of entries the reference column supports and the column does not.
+     */
+    public int lostAgainstReference(int column) {
+        int count = 0;
+        for (int word = 0; word < supported[column].length; word++) {
+            count += Long.bitCount(supported[0][word] & ~supported[column][word]);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the matrix as a single JSON object: one entry per column with its totals and its
+     * supported counts per E-version and group, in the same order for every column.
+     * @param out Destination of the JSON text.
+     * @throws IOException If writing to out fails.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        EmojiDataset dataset = dataset();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        json.name("dataset").value(EmojiVersions.toString(dataset.unicodeVersion()));
+        json.name("versions").beginArray();
+        for (int id = 0; id < dataset.versionCount(); id++) {
+            json.value(EmojiVersions.toString(dataset.version(id)));
+        }
+        json.endArray();
+        json.name("groups").beginArray();
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            json.value(dataset.groupName(id));
+        }
+        json.endArray();
+
+        json.name("columns").beginArray();
+        for (int c = 0; c < results.length; c++) {
+            SupportIndex index = results[c].index();
+            json.beginObject()
+                    .name("name").value(names[c])
+                    .name("supported").value(results[c].supportedCount())
+                    .name("probed").value(results[c].probedCount())
+                    .name("emojiVersion").value(EmojiVersions.toString(
+                            index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE)))
+                    .name("gained").value(gainedOverReference(c))
+                    .name("lost").value(lostAgainstReference(c));
+            json.name("versionSupported").beginArray();
+            for (int id = 0; id < dataset.versionCount(); id++) {
+                json.value(index.versionSupported(id));
+            }
+            json.endArray();
+            json.name("groupSupported").beginArray();
+            for (int id = 0; id < dataset.groupCount(); id++) {
+                json.value(index.groupSupported(id));
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+
+        SupportIndex reference = results[0].index();
+        json.name("versionTotal").beginArray();
+        for (int id = 0; id < dataset.versionCount(); id++) {
+            json.value(reference.versionTotal(id));
+        }
+        json.endArray();
+        json.name("groupTotal").beginArray();
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            json.value(reference.groupTotal(id));
+        }
+        json.endArray();
+        json.endObject();
+    }
+}
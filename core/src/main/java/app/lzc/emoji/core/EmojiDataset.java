@@ -0,0 +1,526 @@
+package app.lzc.emoji.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable, packed view of an emoji-test.txt file.
+ * <p>
+ * All codepoints live in one int pool indexed by per-entry offsets. Status, E-version, group and
+ * subgroup are stored per entry in primitive arrays, with versions and names interned into small
+ * tables. The CLDR names of the entries share one UTF-8 byte pool the same way. Instances are safe
+ * to share between threads.
+ */
+public final class EmojiDataset {
+
+    /** U+FE0F VARIATION SELECTOR-16, which requests the emoji presentation of the preceding character. */
+    public static final int EMOJI_PRESENTATION_SELECTOR = 0xFE0F;
+
+    private final int unicodeVersion;
+    private final int[] codepoints;     // Codepoint pool for all entries
+    private final int[] offsets;        // Entry i spans codepoints[offsets[i] .. offsets[i + 1])
+    private final byte[] statuses;
+    private final byte[] versionIds;    // Index into versions
+    private final short[] subgroupIds;  // Index into subgroups
+    private final int[] versions;       // Distinct encoded E-versions, ascending
+    private final String[] groups;
+    private final String[] subgroups;
+    private final byte[] subgroupGroups; // Group id of each subgroup
+    private final byte[] names;         // UTF-8 name pool for all entries
+    private final int[] nameOffsets;    // Entry i's name spans names[nameOffsets[i] .. nameOffsets[i + 1])
+    private long fingerprint; // Lazily computed, 0 until then
+
+    EmojiDataset(int unicodeVersion, int[] codepoints, int[] offsets, byte[] statuses, byte[] versionIds,
+                 short[] subgroupIds, int[] versions, String[] groups, String[] subgroups, byte[] subgroupGroups,
+                 byte[] names, int[] nameOffsets) {
+        this.unicodeVersion = unicodeVersion;
+        this.codepoints = codepoints;
+        this.offsets = offsets;
+        this.statuses = statuses;
+        this.versionIds = versionIds;
+        this.subgroupIds = subgroupIds;
+        this.versions = versions;
+        this.groups = groups;
+        this.subgroups = subgroups;
+        this.subgroupGroups = subgroupGroups;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+    }
+
+    /**
+     * Parses a whole emoji-test.txt stream. The stream is not closed.
+     * @param in The stream to read from.
+     * @return The parsed dataset.
+     * @throws IOException If reading fails or the data is malformed.
+     */
+    public static EmojiDataset parse(InputStream in) throws IOException {
+        Builder builder = new Builder();
+        EmojiTestParser.parse(in, builder);
+        return builder.build();
+    }
+
+    /**
+     * @return The Unicode emoji version from the "# Version:" header, or {@link EmojiVersions#UNKNOWN}.
+     */
+    public int unicodeVersion() {
+        return unicodeVersion;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int size() {
+        return statuses.length;
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The number of codepoints in the entry.
+     */
+    public int length(int entry) {
+        return offsets[entry + 1] - offsets[entry];
+    }
+
+    /**
+     * @param entry Entry index.
+     * @param index Index of the codepoint within the entry.
+     * @return The codepoint.
+     */
+    public int codepointAt(int entry, int index) {
+        return codepoints[offsets[entry] + index];
+    }
+
+    /**
+     * Copies the codepoints of an entry.
+     * @param entry Entry index.
+     * @param dst Destination array, at least {@link #length(int)} long from dstOffset.
+     * @param dstOffset Offset in the destination.
+     */
+    public void getCodepoints(int entry, int[] dst, int dstOffset) {
+        System.arraycopy(codepoints, offsets[entry], dst, dstOffset, length(entry));
+    }
+
+    /**
+     * Builds the text of an entry as UTF-16 chars.
+     * @param entry Entry index.
+     * @param dst Destination, sized for at least 2 chars per codepoint.
+     * @return The number of chars written.
+     */
+    public int toChars(int entry, char[] dst) {
+        int n = 0;
+        for (int i = offsets[entry], end = offsets[entry + 1]; i < end; i++) {
+            n += Character.toChars(codepoints[i], dst, n);
+        }
+        return n;
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The text of the entry, ready to draw or probe.
+     */
+    public String toString(int entry) {
+        return new String(codepoints, offsets[entry], length(entry));
+    }
+
+    /**
+     * Appends the codepoints of an entry as space-separated hex, e.g. "1F468 200D 1F469".
+     * @param entry Entry index.
+     * @param sb The builder to append to.
+     */
+    public void appendHex(int entry, StringBuilder sb) {
+        for (int i = offsets[entry], end = offsets[entry + 1]; i < end; i++) {
+            if (i > offsets[entry]) {
+                sb.append(' ');
+            }
+            appendCodepointHex(codepoints[i], sb);
+        }
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The CLDR name of the entry, e.g. "grinning squinting face", or "" if the file has none.
+     */
+    public String name(int entry) {
+        return new String(names, nameOffsets[entry], nameLength(entry), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The length of the entry's name in UTF-8 bytes.
+     */
+    public int nameLength(int entry) {
+        return nameOffsets[entry + 1] - nameOffsets[entry];
+    }
+
+    /**
+     * Copies the UTF-8 bytes of an entry's name.
+     * @param entry Entry index.
+     * @param dst Destination array, at least {@link #nameLength(int)} long from dstOffset.
+     * @param dstOffset Offset in the destination.
+     */
+    public void getNameBytes(int entry, byte[] dst, int dstOffset) {
+        System.arraycopy(names, nameOffsets[entry], dst, dstOffset, nameLength(entry));
+    }
+
+    /**
+     * Hashes the codepoints of an entry. Equal sequences hash equally in every dataset, so the
+     * hash identifies an emoji across emoji-test.txt releases.
+     * @param entry Entry index.
+     * @return A 64-bit hash of the codepoint sequence.
+     */
+    public long sequenceHash(int entry) {
+        return hashSequence(codepoints, offsets[entry], offsets[entry + 1]);
+    }
+
+    /**
+     * Hashes the codepoints of an entry without its emoji presentation selectors (U+FE0F), so
+     * the fully-qualified, minimally-qualified and unqualified forms of an emoji hash equally.
+     * @param entry Entry index.
+     * @return A 64-bit hash of the sequence without FE0F.
+     */
+    public long canonicalHash(int entry) {
+        return hashCanonicalSequence(codepoints, offsets[entry], offsets[entry + 1]);
+    }
+
+    /**
+     * @return A 64-bit hash of all entries and their statuses, versions and groups.
+     */
+    public long fingerprint() {
+        long hash = fingerprint;
+        if (hash == 0) {
+            hash = hashSequence(codepoints, 0, codepoints.length);
+            hash = mix(hash ^ hashBytes(statuses) ^ Long.rotateLeft(hashBytes(versionIds), 21));
+            for (int i = 0; i < offsets.length; i++) {
+                hash = mix(hash + offsets[i]);
+            }
+            for (int i = 0; i < subgroupIds.length; i++) {
+                hash = hash * 31 + subgroupIds[i];
+            }
+            hash = mix(hash ^ unicodeVersion);
+            if (hash == 0) {
+                hash = 1;
+            }
+            fingerprint = hash; // Benign race: every thread computes the same value
+        }
+        return hash;
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The status of the entry, see {@link EmojiStatus}.
+     */
+    public int status(int entry) {
+        return statuses[entry];
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The encoded E-version of the entry.
+     */
+    public int emojiVersion(int entry) {
+        return versions[versionIds[entry]];
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The interned id of the entry's E-version, see {@link #version(int)}.
+     */
+    public int versionId(int entry) {
+        return versionIds[entry];
+    }
+
+    /**
+     * @return The number of distinct E-versions.
+     */
+    public int versionCount() {
+        return versions.length;
+    }
+
+    /**
+     * @param versionId An id from {@link #versionId(int)}. Ids are in ascending version order.
+     * @return The encoded version.
+     */
+    public int version(int versionId) {
+        return versions[versionId];
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The id of the entry's group.
+     */
+    public int groupId(int entry) {
+        return subgroupGroups[subgroupIds[entry]];
+    }
+
+    /**
+     * @return The number of groups.
+     */
+    public int groupCount() {
+        return groups.length;
+    }
+
+    public String groupName(int groupId) {
+        return groups[groupId];
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return The id of the entry's subgroup.
+     */
+    public int subgroupId(int entry) {
+        return subgroupIds[entry];
+    }
+
+    /**
+     * @return The number of subgroups.
+     */
+    public int subgroupCount() {
+        return subgroups.length;
+    }
+
+    public String subgroupName(int subgroupId) {
+        return subgroups[subgroupId];
+    }
+
+    /**
+     * @param subgroupId A subgroup id.
+     * @return The id of the group containing the subgroup.
+     */
+    public int subgroupGroup(int subgroupId) {
+        return subgroupGroups[subgroupId];
+    }
+
+    /**
+     * @param statusMask Statuses to select, see {@link EmojiStatus#mask(int...)}.
+     * @return A bitset with one bit set for every entry whose status is in the mask.
+     */
+    public long[] select(int statusMask) {
+        long[] selection = new long[Bitsets.words(size())];
+        for (int i = 0; i < statuses.length; i++) {
+            if (EmojiStatus.matches(statusMask, statuses[i])) {
+                Bitsets.set(selection, i);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Appends a codepoint as upper-case hex with at least four digits.
+     * @param codepoint The codepoint.
+     * @param sb The builder to append to.
+     */
+    public static void appendCodepointHex(int codepoint, StringBuilder sb) {
+        int digits = Math.max(4, (32 - Integer.numberOfLeadingZeros(codepoint) + 3) / 4);
+        for (int shift = (digits - 1) * 4; shift >= 0; shift -= 4) {
+            sb.append(Character.toUpperCase(Character.forDigit((codepoint >>> shift) & 0xF, 16)));
+        }
+    }
+
+    /**
+     * Appends the codepoints of a text as space-separated hex, like {@link #appendHex(int, StringBuilder)}.
+     * @param text The text, e.g. an emoji sequence.
+     * @param sb The builder to append to.
+     */
+    public static void appendTextHex(CharSequence text, StringBuilder sb) {
+        for (int i = 0; i < text.length(); ) {
+            int codepoint = Character.codePointAt(text, i);
+            if (i > 0) {
+                sb.append(' ');
+            }
+            appendCodepointHex(codepoint, sb);
+            i += Character.charCount(codepoint);
+        }
+    }
+
+    /**
+     * Hashes a codepoint sequence.
+     * @param codepoints Array holding the sequence.
+     * @param start First codepoint.
+     * @param end End of the sequence (exclusive).
+     * @return A 64-bit hash of the sequence.
+     */
+    public static long hashSequence(int[] codepoints, int start, int end) {
+        long hash = 0x9E3779B97F4A7C15L ^ (end - start);
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ codepoints[i]) * 0x100000001B3L;
+            hash = Long.rotateLeft(hash, 29);
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Hashes a codepoint sequence like {@link #hashSequence}, skipping U+FE0F.
+     * @param codepoints Array holding the sequence.
+     * @param start First codepoint.
+     * @param end End of the sequence (exclusive).
+     * @return A 64-bit hash of the sequence without FE0F.
+     */
+    public static long hashCanonicalSequence(int[] codepoints, int start, int end) {
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            if (codepoints[i] != EMOJI_PRESENTATION_SELECTOR) {
+                length++;
+            }
+        }
+        long hash = 0x9E3779B97F4A7C15L ^ length;
+        for (int i = start; i < end; i++) {
+            if (codepoints[i] != EMOJI_PRESENTATION_SELECTOR) {
+                hash = (hash ^ codepoints[i]) * 0x100000001B3L;
+                hash = Long.rotateLeft(hash, 29);
+            }
+        }
+        return mix(hash);
+    }
+
+    private static long hashBytes(byte[] bytes) {
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : bytes) {
+            hash = (hash ^ b) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // Final avalanche step from MurmurHash3
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Collects parser output into a dataset.
+     */
+    public static final class Builder implements EmojiTestParser.Handler {
+
+        private int unicodeVersion = EmojiVersions.UNKNOWN;
+        private int[] codepoints = new int[8 * 1024];
+        private int codepointCount = 0;
+        private int[] offsets = new int[1024];
+        private byte[] statuses = new byte[1024];
+        private int[] rawVersions = new int[1024];
+        private short[] subgroupIds = new short[1024];
+        private int size = 0;
+        private final List<String> groups = new ArrayList<>();
+        private final List<String> subgroups = new ArrayList<>();
+        private byte[] subgroupGroups = new byte[128];
+        private byte[] names = new byte[64 * 1024];
+        private int nameByteCount = 0;
+        private int[] nameOffsets = new int[1024];
+
+        @Override
+        public void onVersion(int version) {
+            unicodeVersion = version;
+        }
+
+        @Override
+        public void onGroup(String name) {
+            if (groups.size() > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many groups");
+            }
+            groups.add(name);
+        }
+
+        @Override
+        public void onSubgroup(String name) {
+            if (groups.isEmpty()) {
+                onGroup("");
+            }
+            if (subgroups.size() > Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many subgroups");
+            }
+            if (subgroups.size() == subgroupGroups.length) {
+                subgroupGroups = Arrays.copyOf(subgroupGroups, subgroupGroups.length * 2);
+            }
+            subgroupGroups[subgroups.size()] = (byte) (groups.size() - 1);
+            subgroups.add(name);
+        }
+
+        @Override
+        public void onEntry(int[] cps, int length, int status, int emojiVersion,
+                            byte[] line, int nameStart, int nameEnd) {
+            if (subgroups.isEmpty() || subgroupGroups[subgroups.size() - 1] != groups.size() - 1) {
+                // Entry outside of any subgroup header of the current group
+                onSubgroup("");
+            }
+            if (size + 1 >= offsets.length) {
+                int capacity = offsets.length * 2;
+                offsets = Arrays.copyOf(offsets, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+                rawVersions = Arrays.copyOf(rawVersions, capacity);
+                subgroupIds = Arrays.copyOf(subgroupIds, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity);
+            }
+            if (codepointCount + length > codepoints.length) {
+                codepoints = Arrays.copyOf(codepoints, Math.max(codepoints.length * 2, codepointCount + length));
+            }
+            System.arraycopy(cps, 0, codepoints, codepointCount, length);
+            offsets[size] = codepointCount;
+            codepointCount += length;
+            statuses[size] = (byte) status;
+            rawVersions[size] = emojiVersion;
+            subgroupIds[size] = (short) (subgroups.size() - 1);
+            int nameLength = nameEnd - nameStart;
+            if (nameByteCount + nameLength > names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, nameByteCount + nameLength));
+            }
+            System.arraycopy(line, nameStart, names, nameByteCount, nameLength);
+            nameOffsets[size] = nameByteCount;
+            nameByteCount += nameLength;
+            size++;
+        }
+
+        /**
+         * @return The number of entries collected so far.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return The dataset holding everything collected so far.
+         */
+        public EmojiDataset build() {
+            // Intern E-versions into an ascending table
+            int[] versions = Arrays.copyOf(rawVersions, size);
+            Arrays.sort(versions);
+            int distinct = 0;
+            for (int i = 0; i < versions.length; i++) {
+                if (i == 0 || versions[i] != versions[i - 1]) {
+                    versions[distinct++] = versions[i];
+                }
+            }
+            versions = Arrays.copyOf(versions, distinct);
+            if (versions.length > Byte.MAX_VALUE) {
+                throw new IllegalStateException("Too many emoji versions");
+            }
+            byte[] versionIds = new byte[size];
+            for (int i = 0; i < size; i++) {
+                versionIds[i] = (byte) Arrays.binarySearch(versions, rawVersions[i]);
+            }
+
+            int[] packedOffsets = Arrays.copyOf(offsets, size + 1);
+            packedOffsets[size] = codepointCount;
+            int[] packedNameOffsets = Arrays.copyOf(nameOffsets, size + 1);
+            packedNameOffsets[size] = nameByteCount;
+            return new EmojiDataset(unicodeVersion,
+                    Arrays.copyOf(codepoints, codepointCount),
+                    packedOffsets,
+                    Arrays.copyOf(statuses, size),
+                    versionIds,
+                    Arrays.copyOf(subgroupIds, size),
+                    versions,
+                    groups.toArray(new String[0]),
+                    subgroups.toArray(new String[0]),
+                    Arrays.copyOf(subgroupGroups, subgroups.size()),
+                    Arrays.copyOf(names, nameByteCount),
+                    packedNameOffsets);
+        }
+    }
+}
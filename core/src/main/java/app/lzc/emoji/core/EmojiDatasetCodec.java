@@ -0,0 +1,235 @@
+package app.lzc.emoji.core;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary form of an {@link EmojiDataset}, compiled at build time so the app can map it
+ * instead of parsing text on every launch.
+ * <p>
+ * Layout (big-endian): a fixed header of nine ints (magic, format, Unicode version, entry count,
+ * codepoint count, version count, group count, subgroup count, name byte count), then the int
+ * tables (codepoint pool, entry offsets, E-versions, name offsets), the subgroup id shorts, the
+ * byte tables (statuses, version ids, subgroup groups, UTF-8 name pool) and finally the group and
+ * subgroup names as length-prefixed UTF-8. The int and short tables come first so they stay
+ * aligned for bulk reads from a mapped buffer.
+ */
+public final class EmojiDatasetCodec {
+
+    private static final int MAGIC = 0x454D4A44; // "EMJD"
+    private static final int FORMAT_VERSION = 2; // 2: entry names
+
+    private EmojiDatasetCodec() {
+    }
+
+    /**
+     * Writes a dataset in the binary format. The stream is flushed but not closed.
+     * @param dataset The dataset to write.
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public static void write(EmojiDataset dataset, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        int size = dataset.size();
+        int codepointCount = 0;
+        int nameByteCount = 0;
+        for (int i = 0; i < size; i++) {
+            codepointCount += dataset.length(i);
+            nameByteCount += dataset.nameLength(i);
+        }
+
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(dataset.unicodeVersion());
+        data.writeInt(size);
+        data.writeInt(codepointCount);
+        data.writeInt(dataset.versionCount());
+        data.writeInt(dataset.groupCount());
+        data.writeInt(dataset.subgroupCount());
+        data.writeInt(nameByteCount);
+
+        for (int i = 0; i < size; i++) {
+            for (int k = 0; k < dataset.length(i); k++) {
+                data.writeInt(dataset.codepointAt(i, k));
+            }
+        }
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            data.writeInt(offset);
+            offset += dataset.length(i);
+        }
+        data.writeInt(offset);
+        for (int v = 0; v < dataset.versionCount(); v++) {
+            data.writeInt(dataset.version(v));
+        }
+        int nameOffset = 0;
+        for (int i = 0; i < size; i++) {
+            data.writeInt(nameOffset);
+            nameOffset += dataset.nameLength(i);
+        }
+        data.writeInt(nameOffset);
+        for (int i = 0; i < size; i++) {
+            data.writeShort(dataset.subgroupId(i));
+        }
+        for (int i = 0; i < size; i++) {
+            data.writeByte(dataset.status(i));
+        }
+        for (int i = 0; i < size; i++) {
+            data.writeByte(dataset.versionId(i));
+        }
+        for (int s = 0; s < dataset.subgroupCount(); s++) {
+            data.writeByte(dataset.subgroupGroup(s));
+        }
+        byte[] name = new byte[64];
+        for (int i = 0; i < size; i++) {
+            int length = dataset.nameLength(i);
+            if (length > name.length) {
+                name = new byte[length];
+            }
+            dataset.getNameBytes(i, name, 0);
+            data.write(name, 0, length);
+        }
+        for (int g = 0; g < dataset.groupCount(); g++) {
+            writeName(data, dataset.groupName(g));
+        }
+        for (int s = 0; s < dataset.subgroupCount(); s++) {
+            writeName(data, dataset.subgroupName(s));
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads a dataset from a buffer, typically a memory-mapped asset. The tables are bulk-copied
+     * out of the buffer, so it can be unmapped or discarded afterwards.
+     * @param buffer The buffer, positioned at the start of the data. Its position is advanced.
+     * @return The dataset.
+     * @throws EmojiTestFormatException If the buffer does not hold a supported dataset.
+     */
+    public static EmojiDataset read(ByteBuffer buffer) throws EmojiTestFormatException {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new EmojiTestFormatException(0, "Not an emoji dataset");
+            }
+            int format = buffer.getInt();
+            if (format != FORMAT_VERSION) {
+                throw new EmojiTestFormatException(0, "Unsupported emoji dataset format " + format);
+            }
+            int unicodeVersion = buffer.getInt();
+            int size = buffer.getInt();
+            int codepointCount = buffer.getInt();
+            int versionCount = buffer.getInt();
+            int groupCount = buffer.getInt();
+            int subgroupCount = buffer.getInt();
+            int nameByteCount = buffer.getInt();
+            if (size < 0 || codepointCount < 0 || versionCount < 0 || groupCount < 0 || subgroupCount < 0
+                    || nameByteCount < 0) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: negative count");
+            }
+            // Checked before allocating, so a corrupt count cannot ask for gigabytes
+            long tableBytes = 4L * codepointCount + 8L * (size + 1) + 4L * versionCount + 4L * size
+                    + subgroupCount + nameByteCount;
+            if (tableBytes > buffer.remaining()) {
+                throw new EmojiTestFormatException(0, "Truncated emoji dataset");
+            }
+
+            int[] codepoints = readInts(buffer, codepointCount);
+            int[] offsets = readInts(buffer, size + 1);
+            int[] versions = readInts(buffer, versionCount);
+            int[] nameOffsets = readInts(buffer, size + 1);
+            short[] subgroupIds = new short[size];
+            buffer.asShortBuffer().get(subgroupIds);
+            buffer.position(buffer.position() + size * 2);
+            byte[] statuses = new byte[size];
+            buffer.get(statuses);
+            byte[] versionIds = new byte[size];
+            buffer.get(versionIds);
+            byte[] subgroupGroups = new byte[subgroupCount];
+            buffer.get(subgroupGroups);
+            byte[] names = new byte[nameByteCount];
+            buffer.get(names);
+            String[] groups = new String[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                groups[g] = readName(buffer);
+            }
+            String[] subgroups = new String[subgroupCount];
+            for (int s = 0; s < subgroupCount; s++) {
+                subgroups[s] = readName(buffer);
+            }
+            checkTables(codepoints, offsets, statuses, versionIds, versionCount, subgroupIds, subgroupCount,
+                    subgroupGroups, groupCount, nameOffsets, nameByteCount);
+            return new EmojiDataset(unicodeVersion, codepoints, offsets, statuses, versionIds,
+                    subgroupIds, versions, groups, subgroups, subgroupGroups, names, nameOffsets);
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            throw new EmojiTestFormatException(0, "Truncated emoji dataset");
+        }
+    }
+
+    /**
+     * Checks that every offset and id read from the buffer indexes its table, so a corrupt file
+     * fails here rather than with an exception on first use of the entry.
+     */
+    private static void checkTables(int[] codepoints, int[] offsets, byte[] statuses, byte[] versionIds,
+                                    int versionCount, short[] subgroupIds, int subgroupCount,
+                                    byte[] subgroupGroups, int groupCount, int[] nameOffsets,
+                                    int nameByteCount) throws EmojiTestFormatException {
+        checkOffsets(offsets, codepoints.length, "codepoint");
+        checkOffsets(nameOffsets, nameByteCount, "name");
+        for (int codepoint : codepoints) {
+            if (!Character.isValidCodePoint(codepoint)) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: codepoint " + codepoint);
+            }
+        }
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] < 0 || statuses[i] >= EmojiStatus.COUNT) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: status of entry " + i);
+            }
+            if (versionIds[i] < 0 || versionIds[i] >= versionCount) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: version of entry " + i);
+            }
+            if (subgroupIds[i] < 0 || subgroupIds[i] >= subgroupCount) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: subgroup of entry " + i);
+            }
+        }
+        for (int s = 0; s < subgroupGroups.length; s++) {
+            if (subgroupGroups[s] < 0 || subgroupGroups[s] >= groupCount) {
+                throw new EmojiTestFormatException(0, "Corrupt emoji dataset: group of subgroup " + s);
+            }
+        }
+    }
+
+    private static void checkOffsets(int[] offsets, int end, String table) throws EmojiTestFormatException {
+        boolean valid = offsets[0] == 0 && offsets[offsets.length - 1] == end;
+        for (int i = 1; i < offsets.length && valid; i++) {
+            valid = offsets[i] >= offsets[i - 1];
+        }
+        if (!valid) {
+            throw new EmojiTestFormatException(0, "Corrupt emoji dataset: " + table + " offsets");
+        }
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeName(DataOutputStream data, String name) throws IOException {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        data.writeShort(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
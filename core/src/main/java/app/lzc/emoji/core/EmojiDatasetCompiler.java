@@ -0,0 +1,40 @@
+package app.lzc.emoji.core;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Build-time entry point that compiles emoji-test.txt into the binary dataset asset.
+ * Usage: {@code EmojiDatasetCompiler <emoji-test.txt> <output.bin>}
+ */
+public final class EmojiDatasetCompiler {
+
+    private EmojiDatasetCompiler() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: EmojiDatasetCompiler <emoji-test.txt> <output.bin>");
+            System.exit(2);
+        }
+        EmojiDataset dataset;
+        try (InputStream in = new FileInputStream(args[0])) {
+            dataset = EmojiDataset.parse(in);
+        }
+        File output = new File(args[1]);
+        File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            EmojiDatasetCodec.write(dataset, out);
+        }
+        System.out.println("Compiled " + dataset.size() + " entries (Emoji "
+                + EmojiVersions.toString(dataset.unicodeVersion()) + ") to " + output);
+    }
+}
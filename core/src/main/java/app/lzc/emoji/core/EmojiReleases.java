@@ -0,0 +1,183 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * The emoji releases covered by a dataset, as sets of sequences.
+ * <p>
+ * emoji-test.txt tags every entry with the E-version that introduced it, so one file describes all
+ * earlier releases as well: release r holds the entries introduced in r or before. The store keeps
+ * the tested sequences once, as ascending hashes packed in a long array with the release that
+ * introduced each one in a parallel byte array, and builds the {@link SequenceSet} of a release or
+ * of the changes between two releases with one pass over them. Sequences that a later release
+ * dropped are not known to the file, so they are missing from the older releases too.
+ */
+public final class EmojiReleases {
+
+    private final int[] versions;      // Encoded E-version of each release, ascending
+    private final long[] hashes;       // Ascending, distinct
+    private final byte[] introduced;   // Release of each hash
+
+    private EmojiReleases(int[] versions, long[] hashes, byte[] introduced) {
+        this.versions = versions;
+        this.hashes = hashes;
+        this.introduced = introduced;
+    }
+
+    /**
+     * @param dataset The dataset, typically the newest known emoji-test.txt.
+     * @param statusMask Statuses of the entries to include, see {@link EmojiStatus#mask(int...)}.
+     * @return The releases of the dataset.
+     */
+    public static EmojiReleases of(EmojiDataset dataset, int statusMask) {
+        long[] selection = dataset.select(statusMask);
+        int[] entries = new int[Bitsets.cardinality(selection)];
+        long[] entryHashes = new long[entries.length];
+        int n = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long pending = selection[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                entries[n] = entry;
+                entryHashes[n++] = dataset.sequenceHash(entry);
+            }
+        }
+        long[] hashes = entryHashes.clone();
+        Arrays.sort(hashes);
+        hashes = SequenceSet.ofSorted(hashes, n).hashes();
+        byte[] introduced = new byte[hashes.length];
+        Arrays.fill(introduced, (byte) 0xFF);
+        for (int i = 0; i < n; i++) {
+            int index = Arrays.binarySearch(hashes, entryHashes[i]);
+            int release = dataset.versionId(entries[i]);
+            if ((introduced[index] & 0xFF) > release) {
+                introduced[index] = (byte) release; // The earliest entry of a repeated sequence
+            }
+        }
+        int[] versions = new int[dataset.versionCount()];
+        for (int id = 0; id < versions.length; id++) {
+            versions[id] = dataset.version(id);
+        }
+        return new EmojiReleases(versions, hashes, introduced);
+    }
+
+    /**
+     * @return The number of releases.
+     */
+    public int count() {
+        return versions.length;
+    }
+
+    /**
+     * @param release A release, 0 for the oldest.
+     * @return Its encoded E-version.
+     */
+    public int version(int release) {
+        return versions[release];
+    }
+
+    /**
+     * @param version An encoded E-version, e.g. {@code EmojiVersions.encode(15, 1)}.
+     * @return The release with that version, or -1 if the dataset has no entries of it.
+     */
+    public int indexOf(int version) {
+        int index = Arrays.binarySearch(versions, version);
+        return index < 0 ? -1 : index;
+    }
+
+    /**
+     * @param sequenceHash A hash from {@link EmojiDataset#sequenceHash(int)}.
+     * @return The release that introduced the sequence, or -1 if it is in none.
+     */
+    public int introducedIn(long sequenceHash) {
+        int index = Arrays.binarySearch(hashes, sequenceHash);
+        return index < 0 ? -1 : introduced[index] & 0xFF;
+    }
+
+    /**
+     * @param release A release.
+     * @return Every sequence of the release, including those of earlier releases.
+     */
+    public SequenceSet release(int release) {
+        return changes(-1, release);
+    }
+
+    /**
+     * @param release A release.
+     * @return The sequences introduced in exactly that release.
+     */
+    public SequenceSet additions(int release) {
+        return changes(release - 1, release);
+    }
+
+    /**
+     * @param from A release, or -1 for none.
+     * @param to A later release.
+     * @return The sequences introduced after from, up to and including to.
+     */
+    public SequenceSet changes(int from, int to) {
+        long[] out = new long[hashes.length];
+        int n = 0;
+        for (int i = 0; i < hashes.length; i++) {
+            int release = introduced[i] & 0xFF;
+            if (release > from && release <= to) {
+                out[n++] = hashes[i];
+            }
+        }
+        return SequenceSet.ofSorted(out, n);
+    }
+
+    /**
+     * Scores a device's result against every release, without probing again.
+     * @param supported The supported sequences, e.g. {@code SequenceSet.of(dataset, supportedBits)}.
+     * @return The supported count of each release, cumulative like {@link #release(int)}.
+     */
+    public int[] supportedPerRelease(SequenceSet supported) {
+        int[] counts = new int[versions.length];
+        long[] other = supported.hashes();
+        for (int i = 0, j = 0; i < hashes.length && j < other.length; ) { // Merge of both sorted arrays
+            if (hashes[i] < other[j]) {
+                i++;
+            } else if (hashes[i] > other[j]) {
+                j++;
+            } else {
+                counts[introduced[i] & 0xFF]++;
+                i++;
+                j++;
+            }
+        }
+        for (int release = 1; release < counts.length; release++) {
+            counts[release] += counts[release - 1];
+        }
+        return counts;
+    }
+
+    /**
+     * @return The number of sequences of each release, cumulative like {@link #release(int)}.
+     */
+    public int[] sizePerRelease() {
+        int[] counts = new int[versions.length];
+        for (byte release : introduced) {
+            counts[release & 0xFF]++;
+        }
+        for (int release = 1; release < counts.length; release++) {
+            counts[release] += counts[release - 1];
+        }
+        return counts;
+    }
+
+    /**
+     * @param supported The supported sequences.
+     * @return The newest release whose every sequence is supported, or -1 if not even the oldest is.
+     */
+    public int newestCompleteRelease(SequenceSet supported) {
+        int[] supportedCounts = supportedPerRelease(supported);
+        int[] sizes = sizePerRelease();
+        int complete = -1;
+        while (complete + 1 < sizes.length && supportedCounts[complete + 1] == sizes[complete + 1]) {
+            complete++;
+        }
+        return complete;
+    }
+}
@@ -0,0 +1,80 @@
+package app.lzc.emoji.core;
+
+/**
+ * Qualification statuses used in the second field of emoji-test.txt.
+ * Statuses are plain ints so they can be stored in primitive arrays and combined into masks.
+ */
+public final class EmojiStatus {
+
+    public static final int COMPONENT = 0;
+    public static final int FULLY_QUALIFIED = 1;
+    public static final int MINIMALLY_QUALIFIED = 2;
+    public static final int UNQUALIFIED = 3;
+
+    /** Number of distinct statuses. */
+    public static final int COUNT = 4;
+
+    /** Mask matching every status. */
+    public static final int ALL = (1 << COUNT) - 1;
+
+    private static final String[] NAMES = {
+            "component", "fully-qualified", "minimally-qualified", "unqualified"
+    };
+
+    private EmojiStatus() {
+    }
+
+    /**
+     * Builds a status mask from individual statuses.
+     * @param statuses Statuses to include.
+     * @return A mask with one bit per status.
+     */
+    public static int mask(int... statuses) {
+        int mask = 0;
+        for (int status : statuses) {
+            mask |= 1 << status;
+        }
+        return mask;
+    }
+
+    /**
+     * @param mask A status mask built with {@link #mask(int...)}.
+     * @param status The status to test.
+     * @return true if the mask includes the status.
+     */
+    public static boolean matches(int mask, int status) {
+        return (mask & (1 << status)) != 0;
+    }
+
+    /**
+     * @param status A status constant.
+     * @return The name used for the status in emoji-test.txt.
+     */
+    public static String name(int status) {
+        return NAMES[status];
+    }
+
+    /**
+     * Matches an ASCII status name in place, without creating a String.
+     * @param buf Buffer holding the name.
+     * @param start First byte of the name.
+     * @param end End of the name (exclusive).
+     * @return The status constant, or -1 if the name is not a known status.
+     */
+    static int parse(byte[] buf, int start, int end) {
+        for (int status = 0; status < COUNT; status++) {
+            String name = NAMES[status];
+            if (name.length() != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && buf[start + i] == name.charAt(i)) {
+                i++;
+            }
+            if (i == name.length()) {
+                return status;
+            }
+        }
+        return -1;
+    }
+}
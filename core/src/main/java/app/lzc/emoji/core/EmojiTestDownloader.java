@@ -0,0 +1,188 @@
+package app.lzc.emoji.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Conditional, streaming download of emoji-test.txt.
+ * <p>
+ * The ETag and Last-Modified validators of the last download are kept next to the file and sent
+ * back as If-None-Match / If-Modified-Since, so an unchanged file costs one round trip. A changed
+ * file is requested gzip-compressed, written to a temporary file that atomically replaces the
+ * previous copy once complete, and fed to an {@link EmojiTestParser} chunk by chunk as it
+ * arrives, so parsing and probing overlap the transfer.
+ */
+public final class EmojiTestDownloader {
+
+    /**
+     * How a download attempt ended.
+     */
+    public enum Outcome {
+        /** A new file was downloaded and fed to the handler. */
+        DOWNLOADED,
+        /** The server copy matches the stored file; the handler was not called. */
+        NOT_MODIFIED
+    }
+
+    private static final String ETAG = "etag";
+    private static final String LAST_MODIFIED = "last-modified";
+
+    private final URL url;
+    private final File destination;
+    private final File validatorsFile;
+    private File[] derivedFiles = new File[0];
+    private int connectTimeoutMs = 5000;
+    private int readTimeoutMs = 5000;
+
+    /**
+     * @param url The location of emoji-test.txt.
+     * @param destination Where the downloaded file is kept.
+     */
+    public EmojiTestDownloader(URL url, File destination) {
+        this.url = url;
+        this.destination = destination;
+        this.validatorsFile = new File(destination.getPath() + ".validators");
+    }
+
+    public void setTimeouts(int connectTimeoutMs, int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    /**
+     * @param derivedFiles Files computed from the stored copy, e.g. its compiled form. They are
+     *                     deleted before a new copy and its validators replace the stored ones,
+     *                     so a crash in between never leaves them describing the old copy while
+     *                     the validators already claim the new one.
+     */
+    public void setDerivedFiles(File... derivedFiles) {
+        this.derivedFiles = derivedFiles.clone();
+    }
+
+    /**
+     * Downloads the file if it changed since the stored copy.
+     * @param handler Receives the parsed content of a new file.
+     * @return Whether a new file was downloaded.
+     * @throws IOException If the request fails or the new file is malformed. The stored copy
+     *                     and its validators are left untouched in that case.
+     */
+    public Outcome download(EmojiTestParser.Handler handler) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(connectTimeoutMs);
+            connection.setReadTimeout(readTimeoutMs);
+            // Setting this header ourselves turns off transparent decompression, see below
+            connection.setRequestProperty("Accept-Encoding", "gzip");
+            Properties validators = destination.isFile() ? readValidators() : new Properties();
+            String etag = validators.getProperty(ETAG);
+            if (etag != null) {
+                connection.setRequestProperty("If-None-Match", etag);
+            }
+            String lastModified = validators.getProperty(LAST_MODIFIED);
+            if (lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return Outcome.NOT_MODIFIED;
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP error code: " + responseCode);
+            }
+
+            File temp = new File(destination.getPath() + ".part");
+            boolean complete = false;
+            try {
+                try (InputStream in = openBody(connection); OutputStream out = new FileOutputStream(temp)) {
+                    EmojiTestParser parser = new EmojiTestParser(handler);
+                    byte[] buffer = new byte[16 * 1024];
+                    int len;
+                    while ((len = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, len);
+                        parser.feed(buffer, 0, len);
+                    }
+                    parser.finish();
+                }
+                for (File derived : derivedFiles) {
+                    if (!derived.delete() && derived.exists()) {
+                        throw new IOException("Cannot delete " + derived);
+                    }
+                }
+                replace(temp, destination);
+                complete = true;
+            } finally {
+                if (!complete && !temp.delete()) {
+                    temp.deleteOnExit();
+                }
+            }
+
+            Properties received = new Properties();
+            if (connection.getHeaderField("ETag") != null) {
+                received.setProperty(ETAG, connection.getHeaderField("ETag"));
+            }
+            if (connection.getHeaderField("Last-Modified") != null) {
+                received.setProperty(LAST_MODIFIED, connection.getHeaderField("Last-Modified"));
+            }
+            writeValidators(received);
+            return Outcome.DOWNLOADED;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Forgets the stored validators so the next download is unconditional, e.g. when the stored
+     * copy turned out to be unusable.
+     */
+    public void clearValidators() {
+        if (!validatorsFile.delete() && validatorsFile.exists()) {
+            validatorsFile.deleteOnExit();
+        }
+    }
+
+    private static InputStream openBody(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getInputStream();
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            return new GZIPInputStream(in, 16 * 1024);
+        }
+        return in;
+    }
+
+    private Properties readValidators() {
+        Properties validators = new Properties();
+        try (InputStream in = new FileInputStream(validatorsFile)) {
+            validators.load(in);
+        } catch (FileNotFoundException e) {
+            // First download
+        } catch (IOException | IllegalArgumentException e) {
+            validators.clear(); // Unreadable validators just mean an unconditional request
+        }
+        return validators;
+    }
+
+    private void writeValidators(Properties validators) throws IOException {
+        File temp = new File(validatorsFile.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            validators.store(out, null);
+        }
+        replace(temp, validatorsFile);
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        // rename(2) replaces the target atomically on the same file system
+        if (!source.renameTo(target)) {
+            throw new IOException("Cannot replace " + target);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package app.lzc.emoji.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown when emoji-test data cannot be parsed.
+ */
+public class EmojiTestFormatException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int lineNumber;
+
+    public EmojiTestFormatException(int lineNumber, String message) {
+        super(lineNumber > 0 ? message + " at line " + lineNumber : message);
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return The 1-based line the error was found on, or 0 if it is not tied to a line.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,283 @@
+package app.lzc.emoji.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for Unicode's emoji-test.txt.
+ * <p>
+ * The parser scans raw UTF-8 bytes and reports each data line to a {@link Handler} as a reused
+ * codepoint buffer, so no String or array is created per line. Bytes can be pushed in chunks of
+ * any size with {@link #feed(byte[], int, int)}, which lets callers parse while a download is
+ * still in progress. Instances are not thread-safe.
+ */
+public final class EmojiTestParser {
+
+    /**
+     * Receives parsed content in file order.
+     */
+    public interface Handler {
+        /**
+         * Called for the "# Version: X.Y" header.
+         * @param version The encoded Unicode emoji version, see {@link EmojiVersions}.
+         */
+        void onVersion(int version);
+
+        /**
+         * Called for each "# group:" header.
+         * @param name The group name.
+         */
+        void onGroup(String name);
+
+        /**
+         * Called for each "# subgroup:" header.
+         * @param name The subgroup name.
+         */
+        void onSubgroup(String name);
+
+        /**
+         * Called for each data line.
+         * @param codepoints Buffer holding the codepoints. It is reused for the next line.
+         * @param length Number of codepoints in the buffer.
+         * @param status The status, see {@link EmojiStatus}.
+         * @param emojiVersion The encoded E-version of the entry, or {@link EmojiVersions#UNKNOWN}.
+         * @param line Buffer holding the line, for reading the name. It is reused for the next line.
+         * @param nameStart Start of the UTF-8 CLDR name in line, e.g. "grinning face".
+         * @param nameEnd End of the name (exclusive); equal to nameStart if the line has no name.
+         */
+        void onEntry(int[] codepoints, int length, int status, int emojiVersion, byte[] line, int nameStart, int nameEnd);
+    }
+
+    private static final byte[] VERSION_PREFIX = ascii("# Version:");
+    private static final byte[] GROUP_PREFIX = ascii("# group:");
+    private static final byte[] SUBGROUP_PREFIX = ascii("# subgroup:");
+
+    private final Handler handler;
+    private byte[] lineBuffer = new byte[256]; // Holds a line split across two feed() calls
+    private int lineLength = 0;
+    private int[] codepoints = new int[16];
+    private int lineNumber = 0;
+
+    public EmojiTestParser(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses a whole stream. The stream is not closed.
+     * @param in The stream to read from.
+     * @param handler The handler receiving the parsed content.
+     * @throws IOException If reading fails or the data is malformed.
+     */
+    public static void parse(InputStream in, Handler handler) throws IOException {
+        EmojiTestParser parser = new EmojiTestParser(handler);
+        byte[] buffer = new byte[16 * 1024];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            parser.feed(buffer, 0, len);
+        }
+        parser.finish();
+    }
+
+    /**
+     * Parses the next chunk of bytes. Lines may span chunk boundaries.
+     * @param buf Buffer holding the chunk.
+     * @param off Offset of the chunk.
+     * @param len Length of the chunk.
+     * @throws EmojiTestFormatException If a complete line is malformed.
+     */
+    public void feed(byte[] buf, int off, int len) throws EmojiTestFormatException {
+        int end = off + len;
+        int start = off;
+        for (int i = off; i < end; i++) {
+            if (buf[i] != '\n') {
+                continue;
+            }
+            if (lineLength == 0) {
+                // Common case: the whole line is inside this chunk, parse it in place
+                parseLine(buf, start, i);
+            } else {
+                append(buf, start, i - start);
+                parseLine(lineBuffer, 0, lineLength);
+                lineLength = 0;
+            }
+            start = i + 1;
+        }
+        if (start < end) {
+            append(buf, start, end - start);
+        }
+    }
+
+    /**
+     * Parses any trailing line that was not terminated by a newline.
+     * @throws EmojiTestFormatException If the trailing line is malformed.
+     */
+    public void finish() throws EmojiTestFormatException {
+        if (lineLength > 0) {
+            parseLine(lineBuffer, 0, lineLength);
+            lineLength = 0;
+        }
+    }
+
+    private void append(byte[] buf, int off, int len) {
+        if (lineLength + len > lineBuffer.length) {
+            byte[] grown = new byte[Math.max(lineBuffer.length * 2, lineLength + len)];
+            System.arraycopy(lineBuffer, 0, grown, 0, lineLength);
+            lineBuffer = grown;
+        }
+        System.arraycopy(buf, off, lineBuffer, lineLength, len);
+        lineLength += len;
+    }
+
+    private void parseLine(byte[] buf, int start, int end) throws EmojiTestFormatException {
+        lineNumber++;
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        start = skipSpaces(buf, start, end);
+        if (start == end) {
+            return;
+        }
+        if (buf[start] == '#') {
+            parseComment(buf, start, end);
+        } else {
+            parseEntry(buf, start, end);
+        }
+    }
+
+    private void parseComment(byte[] buf, int start, int end) throws EmojiTestFormatException {
+        if (startsWith(buf, start, end, SUBGROUP_PREFIX)) {
+            handler.onSubgroup(text(buf, start + SUBGROUP_PREFIX.length, end));
+        } else if (startsWith(buf, start, end, GROUP_PREFIX)) {
+            handler.onGroup(text(buf, start + GROUP_PREFIX.length, end));
+        } else if (startsWith(buf, start, end, VERSION_PREFIX)) {
+            int from = skipSpaces(buf, start + VERSION_PREFIX.length, end);
+            int version = EmojiVersions.parse(buf, from, trimEnd(buf, from, end));
+            if (version == EmojiVersions.UNKNOWN) {
+                throw new EmojiTestFormatException(lineNumber, "Malformed version header");
+            }
+            handler.onVersion(version);
+        }
+    }
+
+    private void parseEntry(byte[] buf, int start, int end) throws EmojiTestFormatException {
+        // Field 1: space-separated hex codepoints, terminated by ';'
+        int count = 0;
+        int i = start;
+        while (true) {
+            i = skipSpaces(buf, i, end);
+            if (i == end) {
+                throw new EmojiTestFormatException(lineNumber, "Missing status field");
+            }
+            if (buf[i] == ';') {
+                break;
+            }
+            int value = 0;
+            int digits = 0;
+            int digit;
+            while (i < end && (digit = hexValue(buf[i])) >= 0) {
+                value = (value << 4) | digit;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 6 || value > Character.MAX_CODE_POINT) {
+                throw new EmojiTestFormatException(lineNumber, "Malformed codepoint");
+            }
+            if (count == codepoints.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(codepoints, 0, grown, 0, count);
+                codepoints = grown;
+            }
+            codepoints[count++] = value;
+        }
+        if (count == 0) {
+            throw new EmojiTestFormatException(lineNumber, "Missing codepoints");
+        }
+
+        // Field 2: status, terminated by '#' or end of line
+        int statusStart = skipSpaces(buf, i + 1, end);
+        int statusEnd = statusStart;
+        while (statusEnd < end && buf[statusEnd] != '#' && buf[statusEnd] != ' ' && buf[statusEnd] != '\t') {
+            statusEnd++;
+        }
+        int status = EmojiStatus.parse(buf, statusStart, statusEnd);
+        if (status < 0) {
+            throw new EmojiTestFormatException(lineNumber, "Unknown status");
+        }
+
+        // Comment: "# <emoji> E<version> <name>"
+        int emojiVersion = EmojiVersions.UNKNOWN;
+        int nameStart = end;
+        int hash = statusEnd;
+        while (hash < end && buf[hash] != '#') {
+            hash++;
+        }
+        if (hash < end) {
+            int token = skipSpaces(buf, hash + 1, end);
+            token = skipToken(buf, token, end); // The rendered emoji itself
+            token = skipSpaces(buf, token, end);
+            int tokenEnd = skipToken(buf, token, end);
+            if (token < end && buf[token] == 'E') {
+                emojiVersion = EmojiVersions.parse(buf, token, tokenEnd);
+                token = skipSpaces(buf, tokenEnd, end);
+            }
+            nameStart = token; // Older files have no E-version, the name follows the emoji
+        }
+        handler.onEntry(codepoints, count, status, emojiVersion, buf, nameStart, trimEnd(buf, nameStart, end));
+    }
+
+    private static int hexValue(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(byte[] buf, int i, int end) {
+        while (i < end && (buf[i] == ' ' || buf[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipToken(byte[] buf, int i, int end) {
+        while (i < end && buf[i] != ' ' && buf[i] != '\t') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(byte[] buf, int start, int end) {
+        while (end > start && (buf[end - 1] == ' ' || buf[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean startsWith(byte[] buf, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buf[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text(byte[] buf, int start, int end) {
+        start = skipSpaces(buf, start, end);
+        return new String(buf, start, trimEnd(buf, start, end) - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
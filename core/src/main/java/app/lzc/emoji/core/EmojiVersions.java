@@ -0,0 +1,102 @@
+package app.lzc.emoji.core;
+
+/**
+ * Helpers for emoji versions such as "E0.6" or "15.1".
+ * Versions are encoded as {@code major << 8 | minor} so they compare correctly as plain ints.
+ */
+public final class EmojiVersions {
+
+    /** Encoded value used when no version is known. */
+    public static final int UNKNOWN = -1;
+
+    private EmojiVersions() {
+    }
+
+    /**
+     * @param major Major version, e.g. 15 for "15.1".
+     * @param minor Minor version, e.g. 1 for "15.1".
+     * @return The encoded version.
+     */
+    public static int encode(int major, int minor) {
+        return (major << 8) | minor;
+    }
+
+    public static int major(int version) {
+        return version >>> 8;
+    }
+
+    public static int minor(int version) {
+        return version & 0xFF;
+    }
+
+    /**
+     * @param version An encoded version.
+     * @return The version as "major.minor", or "Unknown".
+     */
+    public static String toString(int version) {
+        if (version == UNKNOWN) {
+            return "Unknown";
+        }
+        return major(version) + "." + minor(version);
+    }
+
+    /**
+     * Parses "major.minor" (optionally prefixed with 'E') from ASCII bytes.
+     * @param buf Buffer holding the version.
+     * @param start First byte of the version.
+     * @param end End of the version (exclusive).
+     * @return The encoded version, or {@link #UNKNOWN} if the bytes are not a version.
+     */
+    public static int parse(byte[] buf, int start, int end) {
+        int i = start;
+        if (i < end && buf[i] == 'E') {
+            i++;
+        }
+        int major = 0;
+        int digits = 0;
+        while (i < end && buf[i] >= '0' && buf[i] <= '9') {
+            major = major * 10 + (buf[i++] - '0');
+            digits++;
+        }
+        if (digits == 0 || digits > 3) {
+            return UNKNOWN;
+        }
+        int minor = 0;
+        if (i < end && buf[i] == '.') {
+            i++;
+            digits = 0;
+            while (i < end && buf[i] >= '0' && buf[i] <= '9') {
+                minor = minor * 10 + (buf[i++] - '0');
+                digits++;
+            }
+            if (digits == 0 || minor > 0xFF) {
+                return UNKNOWN;
+            }
+        }
+        return i == end ? encode(major, minor) : UNKNOWN;
+    }
+
+    /**
+     * Helper method to compare two version strings (e.g., "16.0" vs "15.1").
+     * @param v1 Version string 1
+     * @param v2 Version string 2
+     * @return A negative integer, zero, or a positive integer as the first version
+     * is less than, equal to, or greater than the second.
+     */
+    public static int compare(String v1, String v2) {
+        String[] parts1 = v1.split("\\.");
+        String[] parts2 = v2.split("\\.");
+        int length = Math.max(parts1.length, parts2.length);
+        for (int i = 0; i < length; i++) {
+            int p1 = i < parts1.length ? Integer.parseInt(parts1[i]) : 0;
+            int p2 = i < parts2.length ? Integer.parseInt(parts2[i]) : 0;
+            if (p1 < p2) {
+                return -1;
+            }
+            if (p1 > p2) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,24 @@
+package app.lzc.emoji.core;
+
+/**
+ * Decides whether an emoji sequence can be rendered by some font stack.
+ * <p>
+ * Backends include Android's {@code Paint.hasGlyph} and desktop font files, so the same dataset
+ * and engine can test a phone or a font file. Probes are not required to be thread-safe: the
+ * engine asks the {@link Factory} for one probe per worker thread and only uses it there.
+ */
+public interface GlyphProbe {
+
+    /**
+     * @param text The emoji sequence, built from its codepoints.
+     * @return true if the sequence renders as a single supported glyph.
+     */
+    boolean hasGlyph(String text);
+
+    /**
+     * Creates probes for worker threads. Must be thread-safe.
+     */
+    interface Factory {
+        GlyphProbe create();
+    }
+}
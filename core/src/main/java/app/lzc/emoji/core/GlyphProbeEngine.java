@@ -0,0 +1,352 @@
+package app.lzc.emoji.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Probes dataset entries for glyph support on a bounded pool of worker threads.
+ * <p>
+ * Entries are handed out in blocks of 64, one bitset word each, so every worker writes only the
+ * result words it claimed and no locking is needed. Each worker creates its own {@link GlyphProbe}
+ * through a {@link GlyphProbe.Factory}, which keeps non-thread-safe probes such as Android's Paint
+ * confined to one thread. Progress counts are merged with striped {@link LongAdder}s; the
+ * per-version and per-category counts of a {@link SupportIndex} are kept per worker and merged
+ * once at the end.
+ */
+public final class GlyphProbeEngine {
+
+    /**
+     * Receives progress from worker threads after each block.
+     */
+    public interface Listener {
+        /**
+         * @param probed Entries probed so far in this run.
+         * @param supported Supported entries found so far in this run.
+         * @param lastEntry Index of the last entry probed by the reporting worker.
+         * @param lastText Text of that entry.
+         */
+        void onProgress(int probed, int supported, int lastEntry, String lastText);
+
+        /**
+         * Called with the results of each block before {@link #onProgress}, e.g. to show them
+         * while the run is still going.
+         * @param word Index of the block, i.e. its first entry divided by 64.
+         * @param tested Bits of the entries probed in the block.
+         * @param supported Bits of the supported entries among them.
+         */
+        default void onBlock(int word, long tested, long supported) {
+        }
+    }
+
+    private static final int BLOCK_SHIFT = 6; // 64 entries per block, one result word
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * @param parallelism Number of worker threads, see {@link #defaultParallelism()}.
+     */
+    public GlyphProbeEngine(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+        this.executor = Executors.newFixedThreadPool(parallelism, new WorkerThreadFactory());
+    }
+
+    /**
+     * @return One worker per available core.
+     */
+    public static int defaultParallelism() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Probes the selected entries and blocks until all of them are done.
+     * @param dataset The dataset to probe.
+     * @param selection Bitset of entries to probe, see {@link EmojiDataset#select(int)}.
+     * @param factory Creates the per-worker probes.
+     * @param listener Receives progress, or null.
+     * @return The result of the run.
+     * @throws InterruptedException If the calling thread or a worker is interrupted before every
+     *                              entry was probed; workers are cancelled.
+     */
+    public ProbeResult probe(EmojiDataset dataset, long[] selection, GlyphProbe.Factory factory,
+                             Listener listener) throws InterruptedException {
+        return probeAll(dataset, selection, new GlyphProbe.Factory[]{factory}, listener)[0];
+    }
+
+    /**
+     * Probes the selected entries against several font stacks in one sweep, e.g. to compare
+     * typefaces. Each worker holds one probe per factory and builds each entry's text once for
+     * all of them. Blocks until all entries are done.
+     * @param dataset The dataset to probe.
+     * @param selection Bitset of entries to probe, see {@link EmojiDataset#select(int)}.
+     * @param factories Create the per-worker probes, one per font stack.
+     * @param listener Receives progress of the first factory's probes, or null.
+     * @return One result per factory, in the same order.
+     * @throws InterruptedException If the calling thread or a worker is interrupted before every
+     *                              entry was probed; workers are cancelled. A partial sweep is
+     *                              never returned, since its unprobed entries would read as
+     *                              unsupported.
+     */
+    public ProbeResult[] probeAll(final EmojiDataset dataset, final long[] selection, final GlyphProbe.Factory[] factories,
+                                  final Listener listener) throws InterruptedException {
+        final int columns = factories.length;
+        final long[][] supported = new long[columns][selection.length];
+        final AtomicInteger nextWord = new AtomicInteger();
+        final LongAdder probedCount = new LongAdder();
+        final LongAdder supportedCount = new LongAdder();
+
+        int workers = Math.min(parallelism, Math.max(1, selection.length));
+        List<Callable<Void>> tasks = new ArrayList<>(workers);
+        final List<SupportIndex.Builder[]> indexes = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            final SupportIndex.Builder[] index = new SupportIndex.Builder[columns]; // Merged after the sweep
+            for (int c = 0; c < columns; c++) {
+                index[c] = new SupportIndex.Builder(dataset);
+            }
+            indexes.add(index);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    GlyphProbe[] probes = new GlyphProbe[columns];
+                    for (int c = 0; c < columns; c++) {
+                        probes[c] = factories[c].create();
+                    }
+                    long[] bits = new long[columns];
+                    int word;
+                    while ((word = nextWord.getAndIncrement()) < selection.length) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException("Glyph probe worker interrupted");
+                        }
+                        long pending = selection[word];
+                        if (pending == 0) {
+                            continue;
+                        }
+                        Arrays.fill(bits, 0L);
+                        int entry = 0;
+                        String text = null;
+                        while (pending != 0) {
+                            int bit = Long.numberOfTrailingZeros(pending);
+                            pending &= pending - 1;
+                            entry = (word << BLOCK_SHIFT) + bit;
+                            text = dataset.toString(entry);
+                            for (int c = 0; c < columns; c++) {
+                                boolean hasGlyph = probes[c].hasGlyph(text);
+                                if (hasGlyph) {
+                                    bits[c] |= 1L << bit;
+                                }
+                                index[c].add(entry, hasGlyph);
+                            }
+                        }
+                        for (int c = 0; c < columns; c++) {
+                            supported[c][word] = bits[c];
+                        }
+                        probedCount.add(Long.bitCount(selection[word]));
+                        supportedCount.add(Long.bitCount(bits[0]));
+                        if (listener != null) {
+                            listener.onBlock(word, selection[word], bits[0]);
+                            listener.onProgress(probedCount.intValue(), supportedCount.intValue(), entry, text);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        try {
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw failure(e);
+        } catch (CancellationException e) {
+            throw cancelled(e);
+        } finally {
+            for (Future<Void> future : futures) {
+                future.cancel(true); // No-op for finished workers
+            }
+        }
+        ProbeResult[] results = new ProbeResult[columns];
+        for (int c = 0; c < columns; c++) {
+            SupportIndex.Builder index = indexes.get(0)[c];
+            for (int w = 1; w < workers; w++) {
+                index.merge(indexes.get(w)[c]); // Workers are done, future.get() published their counts
+            }
+            results[c] = new ProbeResult(supported[c], probedCount.intValue(), index.build());
+        }
+        return results;
+    }
+
+    /**
+     * Opens a session for probing entries while they are still being parsed.
+     * @param factory Creates the per-thread probes.
+     * @param listener Receives progress, or null.
+     * @return The session.
+     */
+    public Session openSession(GlyphProbe.Factory factory, Listener listener) {
+        return new Session(factory, listener);
+    }
+
+    /**
+     * Stops the worker threads, interrupting any running probe.
+     */
+    public void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Probes blocks of entries as they are submitted, e.g. by a parser fed from a download.
+     * Blocks must be submitted in ascending word order from a single thread.
+     */
+    public final class Session {
+        private final GlyphProbe.Factory factory;
+        private final Listener listener;
+        private final ThreadLocal<GlyphProbe> probes = new ThreadLocal<>(); // One probe per worker thread
+        private final List<Future<Long>> blocks = new ArrayList<>();
+        private final LongAdder probedCount = new LongAdder();
+        private final LongAdder supportedCount = new LongAdder();
+        private final Object reportLock = new Object(); // Held while a block reports to the listener
+        private boolean cancelled = false; // Guarded by reportLock
+
+        private Session(GlyphProbe.Factory factory, Listener listener) {
+            this.factory = factory;
+            this.listener = listener;
+        }
+
+        /**
+         * Queues one block of up to 64 entries.
+         * @param word Index of the block, i.e. its first entry divided by 64.
+         * @param texts Texts of the block's entries; only those with a bit set in mask are probed.
+         *              The array is owned by the session after the call.
+         * @param mask Bits of the entries to probe.
+         */
+        public void submit(final int word, final String[] texts, final long mask) {
+            while (blocks.size() < word) {
+                blocks.add(null); // Nothing to probe in skipped blocks
+            }
+            blocks.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws InterruptedException {
+                    GlyphProbe probe = probes.get();
+                    if (probe == null) {
+                        probe = factory.create();
+                        probes.set(probe);
+                    }
+                    long bits = 0;
+                    long pending = mask;
+                    int bit = 0;
+                    while (pending != 0) {
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException("Glyph probe block interrupted"); // Never a partial block
+                        }
+                        bit = Long.numberOfTrailingZeros(pending);
+                        pending &= pending - 1;
+                        if (probe.hasGlyph(texts[bit])) {
+                            bits |= 1L << bit;
+                        }
+                    }
+                    synchronized (reportLock) {
+                        if (cancelled) {
+                            throw new InterruptedException("Glyph probe session cancelled");
+                        }
+                        probedCount.add(Long.bitCount(mask));
+                        supportedCount.add(Long.bitCount(bits));
+                        if (listener != null) {
+                            listener.onBlock(word, mask, bits);
+                            listener.onProgress(probedCount.intValue(), supportedCount.intValue(), (word << BLOCK_SHIFT) + bit, texts[bit]);
+                        }
+                    }
+                    return bits;
+                }
+            }));
+        }
+
+        /**
+         * Waits for every submitted block.
+         * @param words Number of result words to return, at least the number of submitted blocks.
+         * @return The supported bitset of the probed entries.
+         * @throws InterruptedException If the calling thread is interrupted, or a block was
+         *                              interrupted or cancelled before it finished; the session
+         *                              is cancelled.
+         */
+        public long[] await(int words) throws InterruptedException {
+            long[] supported = new long[words];
+            try {
+                for (int word = 0; word < blocks.size(); word++) {
+                    Future<Long> block = blocks.get(word);
+                    if (block != null) {
+                        supported[word] = block.get();
+                    }
+                }
+            } catch (ExecutionException e) {
+                cancel();
+                throw failure(e);
+            } catch (CancellationException e) {
+                throw cancelled(e);
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            }
+            return supported;
+        }
+
+        /**
+         * Cancels all blocks that have not finished yet. Once this returns, no block reports to
+         * the listener any more, even one that was still running, so the listener can be reused,
+         * e.g. a {@link ProgressChannel} reset for another run.
+         */
+        public void cancel() {
+            synchronized (reportLock) {
+                cancelled = true; // Waits for a block that is reporting right now
+            }
+            for (Future<Long> block : blocks) {
+                if (block != null) {
+                    block.cancel(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The InterruptedException of an interrupted worker; throws for any other failure.
+     */
+    private static InterruptedException failure(ExecutionException e) {
+        if (e.getCause() instanceof InterruptedException) {
+            return (InterruptedException) e.getCause();
+        }
+        throw new IllegalStateException("Glyph probe failed", e.getCause());
+    }
+
+    private static InterruptedException cancelled(CancellationException e) {
+        InterruptedException interrupted = new InterruptedException("Glyph probe cancelled");
+        interrupted.initCause(e);
+        return interrupted;
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "glyph-probe-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
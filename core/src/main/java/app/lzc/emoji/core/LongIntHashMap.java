@@ -0,0 +1,105 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from long keys to non-negative int values, e.g. from sequence hashes to
+ * entry indexes, without boxing or per-entry nodes. Keys are expected to be well-mixed hashes,
+ * so slots are taken from their low bits directly. Not thread-safe.
+ */
+final class LongIntHashMap {
+
+    static final int MISSING = -1;
+
+    private long[] keys;
+    private int[] values; // MISSING marks a free slot
+    private int size = 0;
+
+    /**
+     * @param expected Number of keys to hold without growing.
+     */
+    LongIntHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1; // Load factor below 0.5
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key The key.
+     * @return The value of the key, or {@link #MISSING}.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = (int) key & mask; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Sets the value of a key.
+     * @param key The key.
+     * @param value A non-negative value.
+     * @return The previous value of the key, or {@link #MISSING}.
+     */
+    int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must not be negative");
+        }
+        int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        for (; values[slot] != MISSING; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                int previous = values[slot];
+                values[slot] = value;
+                return previous;
+            }
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            grow();
+        }
+        return MISSING;
+    }
+
+    /**
+     * Sets the value of a key unless it already has one.
+     * @param key The key.
+     * @param value A non-negative value.
+     * @return The existing value, or {@link #MISSING} if value was stored.
+     */
+    int putIfAbsent(long key, int value) {
+        int existing = get(key);
+        if (existing == MISSING) {
+            put(key, value);
+        }
+        return existing;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, MISSING);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = (int) oldKeys[i] & mask;
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package app.lzc.emoji.core;
+
+/**
+ * Outcome of a probing run: one bit per dataset entry, set if the entry is supported.
+ */
+public final class ProbeResult {
+
+    private final long[] supported;
+    private final int probedCount;
+    private final int supportedCount;
+    private final SupportIndex index;
+
+    public ProbeResult(long[] supported, int probedCount, SupportIndex index) {
+        this.supported = supported;
+        this.probedCount = probedCount;
+        this.supportedCount = Bitsets.cardinality(supported);
+        this.index = index;
+    }
+
+    /**
+     * @param entry Entry index.
+     * @return true if the entry was probed and is supported.
+     */
+    public boolean isSupported(int entry) {
+        return Bitsets.get(supported, entry);
+    }
+
+    /**
+     * @return The number of entries that were probed.
+     */
+    public int probedCount() {
+        return probedCount;
+    }
+
+    /**
+     * @return The number of probed entries that are supported.
+     */
+    public int supportedCount() {
+        return supportedCount;
+    }
+
+    /**
+     * @return A copy of the supported bitset.
+     */
+    public long[] supportedBits() {
+        return supported.clone();
+    }
+
+    /**
+     * @return Supported and tested counts per version, group and subgroup.
+     */
+    public SupportIndex index() {
+        return index;
+    }
+}
@@ -0,0 +1,249 @@
+package app.lzc.emoji.core;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency histogram and slowest sequences of individual {@link GlyphProbe#hasGlyph} calls.
+ * <p>
+ * {@link #wrap(GlyphProbe.Factory)} decorates each worker's probe with a recorder that only
+ * touches its own arrays: two {@code System.nanoTime()} calls, one bucket increment and,
+ * rarely, an update of the slowest list per probe. Buckets are powers of two of nanoseconds.
+ * Recorders are merged by {@link #summarize()} once the run is over.
+ */
+public final class ProbeTimings {
+
+    /**
+     * Bucket b holds durations in [2^(b-1), 2^b) nanoseconds; bucket 0 holds zero.
+     */
+    public static final int BUCKETS = 64;
+
+    private final int slowestCount;
+    private final LongSupplier clock;
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param slowestCount Number of slowest sequences to keep.
+     */
+    public ProbeTimings(int slowestCount) {
+        this(slowestCount, System::nanoTime);
+    }
+
+    /**
+     * @param slowestCount Number of slowest sequences to keep.
+     * @param clock Source of nanosecond timestamps; tests pass a fake one.
+     */
+    ProbeTimings(int slowestCount, LongSupplier clock) {
+        this.slowestCount = slowestCount;
+        this.clock = clock;
+    }
+
+    /**
+     * @param factory The factory of the probes to time.
+     * @return A factory whose probes record into these timings.
+     */
+    public GlyphProbe.Factory wrap(final GlyphProbe.Factory factory) {
+        return () -> {
+            Recorder recorder = new Recorder(factory.create(), slowestCount, clock);
+            recorders.add(recorder);
+            return recorder;
+        };
+    }
+
+    /**
+     * Merges the recorders. Call only after the probing workers are done, e.g. after
+     * {@link GlyphProbeEngine#probe} returned; their writes are not synchronized.
+     * @return The merged timings.
+     */
+    public Summary summarize() {
+        long[] histogram = new long[BUCKETS];
+        long count = 0;
+        long totalNanos = 0;
+        long maxNanos = 0;
+        long[] slowestNanos = new long[slowestCount];
+        String[] slowestTexts = new String[slowestCount];
+        int slowest = 0;
+        for (Recorder recorder : recorders) {
+            for (int b = 0; b < BUCKETS; b++) {
+                histogram[b] += recorder.histogram[b];
+            }
+            count += recorder.count;
+            totalNanos += recorder.totalNanos;
+            maxNanos = Math.max(maxNanos, recorder.maxNanos);
+            for (int i = 0; i < recorder.slowestSize; i++) {
+                // Insertion into the descending merged list
+                long nanos = recorder.slowestNanos[i];
+                int pos = slowest;
+                while (pos > 0 && slowestNanos[pos - 1] < nanos) {
+                    pos--;
+                }
+                if (pos >= slowestCount) {
+                    continue;
+                }
+                int moved = Math.min(slowest, slowestCount - 1) - pos;
+                System.arraycopy(slowestNanos, pos, slowestNanos, pos + 1, moved);
+                System.arraycopy(slowestTexts, pos, slowestTexts, pos + 1, moved);
+                slowestNanos[pos] = nanos;
+                slowestTexts[pos] = recorder.slowestTexts[i];
+                slowest = Math.min(slowest + 1, slowestCount);
+            }
+        }
+        return new Summary(histogram, count, totalNanos, maxNanos, slowestNanos, slowestTexts, slowest);
+    }
+
+    /**
+     * Merged probe timings.
+     */
+    public static final class Summary {
+        private final long[] histogram;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] slowestNanos;
+        private final String[] slowestTexts;
+        private final int slowestSize;
+
+        Summary(long[] histogram, long count, long totalNanos, long maxNanos,
+                long[] slowestNanos, String[] slowestTexts, int slowestSize) {
+            this.histogram = histogram;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.slowestNanos = slowestNanos;
+            this.slowestTexts = slowestTexts;
+            this.slowestSize = slowestSize;
+        }
+
+        /**
+         * @return The number of timed probes.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return The summed duration of all probes, which exceeds wall time with several workers.
+         */
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        public long maxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @param bucket A bucket index below {@link #BUCKETS}.
+         * @return The number of probes in the bucket.
+         */
+        public long bucketCount(int bucket) {
+            return histogram[bucket];
+        }
+
+        /**
+         * @param bucket A bucket index below {@link #BUCKETS}.
+         * @return The exclusive upper bound of the bucket in nanoseconds.
+         */
+        public static long bucketLimitNanos(int bucket) {
+            return bucket == 0 ? 1 : 1L << bucket;
+        }
+
+        /**
+         * Estimates a percentile from the histogram.
+         * @param percentile Between 0 and 100.
+         * @return The upper bound of the bucket containing the percentile, at most the maximum,
+         *         or 0 if nothing was timed.
+         */
+        public long percentileNanos(double percentile) {
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                seen += histogram[b];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(bucketLimitNanos(b), maxNanos);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return The number of entries in the slowest list.
+         */
+        public int slowestCount() {
+            return slowestSize;
+        }
+
+        /**
+         * @param rank 0 for the slowest probe.
+         * @return The probe's duration.
+         */
+        public long slowestNanos(int rank) {
+            return slowestNanos[rank];
+        }
+
+        /**
+         * @param rank 0 for the slowest probe.
+         * @return The probed text.
+         */
+        public String slowestText(int rank) {
+            return slowestTexts[rank];
+        }
+    }
+
+    private static final class Recorder implements GlyphProbe {
+        private final GlyphProbe delegate;
+        private final LongSupplier clock;
+        private final long[] histogram = new long[BUCKETS];
+        private final long[] slowestNanos;
+        private final String[] slowestTexts;
+        private int slowestSize = 0;
+        private int fastestSlot = 0; // Slot of the smallest duration once the slowest list is full
+        private long count = 0;
+        private long totalNanos = 0;
+        private long maxNanos = 0;
+
+        Recorder(GlyphProbe delegate, int slowestCount, LongSupplier clock) {
+            this.delegate = delegate;
+            this.clock = clock;
+            this.slowestNanos = new long[slowestCount];
+            this.slowestTexts = new String[slowestCount];
+        }
+
+        @Override
+        public boolean hasGlyph(String text) {
+            long start = clock.getAsLong();
+            boolean result = delegate.hasGlyph(text);
+            long nanos = clock.getAsLong() - start;
+            histogram[64 - Long.numberOfLeadingZeros(nanos)]++;
+            count++;
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            if (slowestSize < slowestNanos.length) {
+                slowestNanos[slowestSize] = nanos;
+                slowestTexts[slowestSize] = text;
+                slowestSize++;
+                if (slowestSize == slowestNanos.length) {
+                    updateFastestSlot();
+                }
+            } else if (slowestSize > 0 && nanos > slowestNanos[fastestSlot]) {
+                slowestNanos[fastestSlot] = nanos;
+                slowestTexts[fastestSlot] = text;
+                updateFastestSlot();
+            }
+            return result;
+        }
+
+        private void updateFastestSlot() {
+            int slot = 0;
+            for (int i = 1; i < slowestSize; i++) {
+                if (slowestNanos[i] < slowestNanos[slot]) {
+                    slot = i;
+                }
+            }
+            fastestSlot = slot;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package app.lzc.emoji.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands progress from the probing workers to a single consumer, typically the UI thread.
+ * <p>
+ * Workers publish immutable {@link Snapshot}s into a single slot; a newer snapshot replaces one
+ * the consumer has not seen yet, so the consumer only ever renders the latest state, however
+ * often it is published. Publishing is lock-free and never moves the counts backwards when
+ * workers race each other. A snapshot keeps the counts resolved without probing apart from the
+ * workers' counts, so the run can add the former while the workers publish the latter.
+ */
+public final class ProgressChannel implements GlyphProbeEngine.Listener {
+
+    /**
+     * Progress at one point in time. Counts include the entries resolved before probing started.
+     */
+    public static final class Snapshot {
+        private final int baseProbed;      // Resolved without probing
+        private final int baseSupported;
+        private final int workerProbed;    // As reported by the workers
+        private final int workerSupported;
+        private final int total;
+        private final String text;
+
+        Snapshot(int baseProbed, int baseSupported, int workerProbed, int workerSupported, int total,
+                 String text) {
+            this.baseProbed = baseProbed;
+            this.baseSupported = baseSupported;
+            this.workerProbed = workerProbed;
+            this.workerSupported = workerSupported;
+            this.total = total;
+            this.text = text;
+        }
+
+        /**
+         * @return The number of entries tested so far.
+         */
+        public int probed() {
+            return baseProbed + workerProbed;
+        }
+
+        /**
+         * @return The number of supported entries found so far.
+         */
+        public int supported() {
+            return baseSupported + workerSupported;
+        }
+
+        /**
+         * @return The number of entries to test, or {@link #UNKNOWN_TOTAL}.
+         */
+        public int total() {
+            return total;
+        }
+
+        /**
+         * @return The text of the last probed entry, or null if nothing was probed yet.
+         */
+        public String text() {
+            return text;
+        }
+    }
+
+    /**
+     * Total of a run whose size is not known yet, e.g. while the file is still being downloaded.
+     */
+    public static final int UNKNOWN_TOTAL = -1;
+
+    private static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, UNKNOWN_TOTAL, null);
+
+    private final AtomicReference<Snapshot> slot = new AtomicReference<>();
+    private Snapshot lastPolled; // Only touched by the consumer
+
+    /**
+     * Starts a new run. Must not be called while workers of the previous run are still publishing;
+     * a {@link GlyphProbeEngine.Session} of that run must be cancelled first.
+     * @param cachedCount Entries resolved without probing, added to the probed count.
+     * @param cachedSupported Supported entries among them.
+     * @param total Number of entries to test, or {@link #UNKNOWN_TOTAL}.
+     */
+    public void reset(int cachedCount, int cachedSupported, int total) {
+        Snapshot previous = slot.get();
+        slot.set(new Snapshot(cachedCount, cachedSupported, 0, 0, total, previous == null ? null : previous.text));
+    }
+
+    /**
+     * Sets the total once it is known, e.g. when a streamed file has been parsed. Workers may
+     * keep publishing meanwhile.
+     * @param total Number of entries to test.
+     */
+    public void setTotal(int total) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = slot.get();
+            Snapshot state = current == null ? EMPTY : current;
+            next = new Snapshot(state.baseProbed, state.baseSupported, state.workerProbed,
+                    state.workerSupported, total, state.text);
+        } while (!slot.compareAndSet(current, next));
+    }
+
+    /**
+     * Adds entries resolved without probing once they are known, e.g. the cache hits of a
+     * streamed file. Workers may keep publishing meanwhile; the counts only grow.
+     * @param cachedCount Entries resolved without probing, added to the probed count.
+     * @param cachedSupported Supported entries among them.
+     */
+    public void addCached(int cachedCount, int cachedSupported) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = slot.get();
+            Snapshot state = current == null ? EMPTY : current;
+            next = new Snapshot(state.baseProbed + cachedCount, state.baseSupported + cachedSupported,
+                    state.workerProbed, state.workerSupported, state.total, state.text);
+        } while (!slot.compareAndSet(current, next));
+    }
+
+    @Override
+    public void onProgress(int probed, int supported, int lastEntry, String lastText) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = slot.get();
+            Snapshot state = current == null ? EMPTY : current;
+            if (state.workerProbed > probed) {
+                return; // A faster worker already published a later state
+            }
+            next = new Snapshot(state.baseProbed, state.baseSupported, probed, supported, state.total, lastText);
+        } while (!slot.compareAndSet(current, next));
+    }
+
+    /**
+     * Called by the consumer, e.g. once per display frame.
+     * @return The latest snapshot if it changed since the last call, otherwise null.
+     */
+    public Snapshot poll() {
+        Snapshot current = slot.get();
+        if (current == lastPolled) {
+            return null;
+        }
+        lastPolled = current;
+        return current;
+    }
+
+    /**
+     * @return The latest snapshot regardless of what was polled, or null if nothing was published.
+     */
+    public Snapshot peek() {
+        return slot.get();
+    }
+}
@@ -0,0 +1,186 @@
+package app.lzc.emoji.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Persisted probe results for one device and font configuration.
+ * <p>
+ * Results are stored per codepoint sequence (by {@link EmojiDataset#sequenceHash(int)}) rather
+ * than per entry index, so they stay valid when a newer emoji-test.txt adds, drops or reorders
+ * entries: only sequences the cache has never seen need probing. The whole cache is discarded
+ * when the device key, which covers the OS build and the emoji fonts, changes.
+ */
+public final class ResultCache {
+
+    private static final int MAGIC = 0x454D4A52; // "EMJR"
+    private static final int FORMAT_VERSION = 1;
+
+    private final String deviceKey;
+    private final long datasetFingerprint;
+    private final long[] sequenceHashes; // Ascending
+    private final long[] supported;      // Bit i belongs to sequenceHashes[i]
+
+    private ResultCache(String deviceKey, long datasetFingerprint, long[] sequenceHashes, long[] supported) {
+        this.deviceKey = deviceKey;
+        this.datasetFingerprint = datasetFingerprint;
+        this.sequenceHashes = sequenceHashes;
+        this.supported = supported;
+    }
+
+    /**
+     * Captures the results of probed entries.
+     * @param deviceKey Identifies the device and its fonts.
+     * @param dataset The dataset the results belong to.
+     * @param probed Bitset of entries that were probed.
+     * @param supported Bitset of probed entries that are supported.
+     * @return The cache.
+     */
+    public static ResultCache of(String deviceKey, EmojiDataset dataset, long[] probed, long[] supported) {
+        int count = Bitsets.cardinality(probed);
+        // Pack (hash, supported) pairs so they can be sorted together: the low bit carries the result
+        long[] packed = new long[count];
+        int n = 0;
+        for (int i = 0; i < dataset.size(); i++) {
+            if (Bitsets.get(probed, i)) {
+                packed[n++] = (dataset.sequenceHash(i) & ~1L) | (Bitsets.get(supported, i) ? 1 : 0);
+            }
+        }
+        Arrays.sort(packed);
+        long[] hashes = new long[count];
+        long[] bits = new long[Bitsets.words(count)];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = packed[i] & ~1L;
+            if ((packed[i] & 1) != 0) {
+                Bitsets.set(bits, i);
+            }
+        }
+        return new ResultCache(deviceKey, dataset.fingerprint(), hashes, bits);
+    }
+
+    /**
+     * @param file The cache file.
+     * @return The cache, or null if the file does not exist.
+     * @throws IOException If the file cannot be read or is not a cache file.
+     */
+    public static ResultCache read(File file) throws IOException {
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new EmojiTestFormatException(0, "Not a result cache");
+            }
+            String deviceKey = in.readUTF();
+            long datasetFingerprint = in.readLong();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new EmojiTestFormatException(0, "Corrupt result cache");
+            }
+            long[] hashes = new long[count];
+            for (int i = 0; i < count; i++) {
+                hashes[i] = in.readLong();
+            }
+            long[] bits = new long[Bitsets.words(count)];
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] = in.readLong();
+            }
+            return new ResultCache(deviceKey, datasetFingerprint, hashes, bits);
+        } catch (EOFException e) {
+            throw new EmojiTestFormatException(0, "Truncated result cache");
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the cache through a temporary file, so a crash never leaves a partial cache behind.
+     * @param file The cache file.
+     * @throws IOException If writing fails.
+     */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(deviceKey);
+            out.writeLong(datasetFingerprint);
+            out.writeInt(sequenceHashes.length);
+            for (long hash : sequenceHashes) {
+                out.writeLong(hash);
+            }
+            for (long word : supported) {
+                out.writeLong(word);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    /**
+     * @param deviceKey The current device key.
+     * @return true if the cached results were measured with the same OS build and fonts.
+     */
+    public boolean matchesDevice(String deviceKey) {
+        return this.deviceKey.equals(deviceKey);
+    }
+
+    /**
+     * @param dataset The current dataset.
+     * @return true if the results were captured from exactly this dataset.
+     */
+    public boolean matchesDataset(EmojiDataset dataset) {
+        return datasetFingerprint == dataset.fingerprint();
+    }
+
+    /**
+     * @param sequenceHash A hash from {@link EmojiDataset#sequenceHash(int)}.
+     * @return 1 if the sequence is cached as supported, 0 if cached as unsupported, -1 if unknown.
+     */
+    public int lookup(long sequenceHash) {
+        int index = Arrays.binarySearch(sequenceHashes, sequenceHash & ~1L);
+        if (index < 0) {
+            return -1;
+        }
+        return Bitsets.get(supported, index) ? 1 : 0;
+    }
+
+    /**
+     * Fills in cached results for the selected entries.
+     * @param dataset The dataset being tested.
+     * @param selection Bitset of entries to test.
+     * @param supportedOut Receives a set bit for each selected entry the cache knows is supported.
+     * @return Bitset of selected entries the cache knows nothing about and that still need probing.
+     */
+    public long[] resolve(EmojiDataset dataset, long[] selection, long[] supportedOut) {
+        long[] remaining = selection.clone();
+        for (int word = 0; word < selection.length; word++) {
+            long pending = selection[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                int cached = lookup(dataset.sequenceHash(entry));
+                if (cached >= 0) {
+                    Bitsets.clear(remaining, entry);
+                    if (cached == 1) {
+                        Bitsets.set(supportedOut, entry);
+                    }
+                }
+            }
+        }
+        return remaining;
+    }
+}
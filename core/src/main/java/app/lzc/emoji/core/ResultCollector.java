@@ -0,0 +1,88 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * Collects per-entry results of a run while it is still going, for consumers that show them
+ * incrementally. Workers add whole blocks through {@link #onBlock}; progress is forwarded to
+ * another listener.
+ * <p>
+ * Blocks arrive once per 64 entries, so a plain lock is cheap here; consumers copy the bits out
+ * with {@link #copyTo} and use the returned revision to skip copies when nothing changed.
+ */
+public final class ResultCollector implements GlyphProbeEngine.Listener {
+
+    private final GlyphProbeEngine.Listener next;
+    private long[] tested = new long[64];
+    private long[] supported = new long[64];
+    private int revision = 0;
+
+    /**
+     * @param next Receives the progress callbacks, or null.
+     */
+    public ResultCollector(GlyphProbeEngine.Listener next) {
+        this.next = next;
+    }
+
+    @Override
+    public void onProgress(int probed, int supported, int lastEntry, String lastText) {
+        if (next != null) {
+            next.onProgress(probed, supported, lastEntry, lastText);
+        }
+    }
+
+    @Override
+    public synchronized void onBlock(int word, long tested, long supported) {
+        ensureWords(word + 1);
+        this.tested[word] |= tested;
+        this.supported[word] |= supported;
+        revision++;
+        if (next != null) {
+            next.onBlock(word, tested, supported);
+        }
+    }
+
+    /**
+     * Adds results that did not come from probing, e.g. cache hits or a finished run.
+     * @param tested Bitset of the tested entries.
+     * @param supported Bitset of the supported entries.
+     */
+    public synchronized void addAll(long[] tested, long[] supported) {
+        ensureWords(tested.length);
+        for (int i = 0; i < tested.length; i++) {
+            this.tested[i] |= tested[i];
+            this.supported[i] |= supported[i] & tested[i];
+        }
+        revision++;
+    }
+
+    /**
+     * @return A counter that changes whenever results are added.
+     */
+    public synchronized int revision() {
+        return revision;
+    }
+
+    /**
+     * Copies the results collected so far; words beyond the collected ones are cleared.
+     * @param testedDst Receives the tested bits.
+     * @param supportedDst Receives the supported bits, same length as testedDst.
+     * @return The revision of the copied state.
+     */
+    public synchronized int copyTo(long[] testedDst, long[] supportedDst) {
+        int words = Math.min(testedDst.length, tested.length);
+        System.arraycopy(tested, 0, testedDst, 0, words);
+        System.arraycopy(supported, 0, supportedDst, 0, words);
+        Arrays.fill(testedDst, words, testedDst.length, 0);
+        Arrays.fill(supportedDst, words, supportedDst.length, 0);
+        return revision;
+    }
+
+    private void ensureWords(int words) {
+        if (words > tested.length) {
+            int length = Math.max(words, tested.length * 2);
+            tested = Arrays.copyOf(tested, length);
+            supported = Arrays.copyOf(supported, length);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package app.lzc.emoji.core;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Saves the results a run has collected so far as a {@link ResultCache}, so a run that dies
+ * half-way, e.g. with its process, resumes from the last checkpoint: the next run fills in the
+ * saved entries like any other cached result and probes only the rest.
+ * <p>
+ * A checkpoint holds the tested and supported bitsets of the run's {@link ResultCollector} rather
+ * than a cursor, since blocks finish out of order on the engine's workers. Entries the run has
+ * not reached yet keep their results from the previous cache. Methods may be called from any
+ * thread; saves are serialized and skipped when nothing changed since the last one.
+ */
+public final class RunCheckpoint {
+
+    private final File file;
+    private final String deviceKey;
+    private final ResultCache previous;
+    private EmojiDataset dataset;
+    private ResultCollector collector;
+    private int savedRevision = -1;
+    private boolean closed = false;
+
+    /**
+     * @param file The result cache file to write.
+     * @param deviceKey Identifies the device and its fonts.
+     * @param previous The cache the run started from, or null.
+     */
+    public RunCheckpoint(File file, String deviceKey, ResultCache previous) {
+        this.file = file;
+        this.deviceKey = deviceKey;
+        this.previous = previous;
+    }
+
+    /**
+     * Starts saving the results of a collector. Nothing is saved before this is called, e.g.
+     * while a streamed file is still being parsed.
+     * @param dataset The dataset being tested.
+     * @param collector Receives the results of the run.
+     */
+    public synchronized void track(EmojiDataset dataset, ResultCollector collector) {
+        this.dataset = dataset;
+        this.collector = collector;
+        savedRevision = -1;
+    }
+
+    /**
+     * Writes a checkpoint if the collector has new results.
+     * @return true if a checkpoint was written.
+     * @throws IOException If writing fails.
+     */
+    public synchronized boolean save() throws IOException {
+        if (closed || collector == null) {
+            return false;
+        }
+        int words = Bitsets.words(dataset.size());
+        long[] tested = new long[words];
+        long[] supported = new long[words];
+        int revision = collector.copyTo(tested, supported);
+        if (revision == savedRevision) {
+            return false;
+        }
+        if (previous != null) {
+            // Carry over what the previous cache knows about the entries not tested yet
+            long[] untested = new long[words];
+            for (int i = 0; i < words; i++) {
+                untested[i] = ~tested[i];
+            }
+            if ((dataset.size() & 63) != 0) {
+                untested[words - 1] &= (1L << dataset.size()) - 1;
+            }
+            long[] unknown = previous.resolve(dataset, untested, supported);
+            for (int i = 0; i < words; i++) {
+                tested[i] |= untested[i] & ~unknown[i];
+            }
+        }
+        ResultCache.of(deviceKey, dataset, tested, supported).write(file);
+        savedRevision = revision;
+        return true;
+    }
+
+    /**
+     * Stops saving, e.g. before the finished run writes its complete cache to the same file.
+     * Waits for a save in progress.
+     */
+    public synchronized void close() {
+        closed = true;
+    }
+}
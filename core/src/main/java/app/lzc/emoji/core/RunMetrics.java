@@ -0,0 +1,175 @@
+package app.lzc.emoji.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Wall time and allocation of the stages of one test run, plus the {@link ProbeTimings} of its
+ * glyph probes, exportable as a JSON report.
+ * <p>
+ * Stages are measured with try-with-resources:
+ * <pre>
+ *   try (RunMetrics.Stage stage = metrics.stage("parse")) {
+ *       ...
+ *   }
+ * </pre>
+ * Allocation is whatever the {@link AllocationCounter} reports, which may be process-wide.
+ */
+public final class RunMetrics {
+
+    private static final int SLOWEST_PROBES = 10;
+
+    private final AllocationCounter allocations;
+    private final ProbeTimings probeTimings = new ProbeTimings(SLOWEST_PROBES);
+    private final List<String> stageNames = new ArrayList<>();
+    private final List<long[]> stageValues = new ArrayList<>(); // {wall nanos, allocated bytes}
+
+    /**
+     * @param allocations Allocation counter of the runtime, or {@link AllocationCounter#NONE}.
+     */
+    public RunMetrics(AllocationCounter allocations) {
+        this.allocations = allocations;
+    }
+
+    /**
+     * Starts measuring a stage; closing the returned handle records it.
+     * @param name Name of the stage in the report.
+     * @return The open stage.
+     */
+    public Stage stage(String name) {
+        return new Stage(name);
+    }
+
+    /**
+     * @return The probe timings; wrap the probe factory with them to time each probe.
+     */
+    public ProbeTimings probeTimings() {
+        return probeTimings;
+    }
+
+    /**
+     * Writes the report as a single JSON object.
+     * @param out Destination of the JSON text.
+     * @param attributes Extra top-level string fields, e.g. the device and dataset versions.
+     * @throws IOException If writing to out fails.
+     */
+    public void writeReport(Appendable out, Map<String, String> attributes) throws IOException {
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject();
+        for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+            json.name(attribute.getKey()).value(attribute.getValue());
+        }
+
+        json.name("stages").beginArray();
+        synchronized (this) {
+            for (int i = 0; i < stageNames.size(); i++) {
+                long[] values = stageValues.get(i);
+                json.beginObject()
+                        .name("name").value(stageNames.get(i))
+                        .name("wallMs").value(values[0] / 1e6);
+                if (values[1] != AllocationCounter.UNAVAILABLE) {
+                    json.name("allocatedBytes").value(values[1]);
+                }
+                json.endObject();
+            }
+        }
+        json.endArray();
+
+        ProbeTimings.Summary probes = probeTimings.summarize();
+        json.name("probes").beginObject()
+                .name("count").value(probes.count())
+                .name("totalMs").value(probes.totalNanos() / 1e6)
+                .name("meanUs").value(probes.count() == 0 ? 0.0 : probes.totalNanos() / 1e3 / probes.count())
+                .name("p50Us").value(probes.percentileNanos(50) / 1e3)
+                .name("p90Us").value(probes.percentileNanos(90) / 1e3)
+                .name("p99Us").value(probes.percentileNanos(99) / 1e3)
+                .name("maxUs").value(probes.maxNanos() / 1e3);
+        json.name("histogram").beginArray();
+        for (int b = 0; b < ProbeTimings.BUCKETS; b++) {
+            if (probes.bucketCount(b) > 0) {
+                json.beginObject()
+                        .name("belowUs").value(ProbeTimings.Summary.bucketLimitNanos(b) / 1e3)
+                        .name("count").value(probes.bucketCount(b))
+                        .endObject();
+            }
+        }
+        json.endArray();
+        json.name("slowest").beginArray();
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < probes.slowestCount(); i++) {
+            hex.setLength(0);
+            EmojiDataset.appendTextHex(probes.slowestText(i), hex);
+            json.beginObject()
+                    .name("sequence").value(hex.toString())
+                    .name("us").value(probes.slowestNanos(i) / 1e3)
+                    .endObject();
+        }
+        json.endArray();
+        json.endObject();
+
+        json.endObject();
+    }
+
+    /**
+     * @return A few lines of text summarizing the stages and probes, e.g. for a debug panel.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (this) {
+            for (int i = 0; i < stageNames.size(); i++) {
+                long[] values = stageValues.get(i);
+                sb.append(String.format(Locale.ROOT, "%-14s %8.1f ms", stageNames.get(i), values[0] / 1e6));
+                if (values[1] != AllocationCounter.UNAVAILABLE) {
+                    sb.append(String.format(Locale.ROOT, " %8d KB", values[1] / 1024));
+                }
+                sb.append('\n');
+            }
+        }
+        ProbeTimings.Summary probes = probeTimings.summarize();
+        sb.append(String.format(Locale.ROOT, "%d probes, p50 %.0f us, p99 %.0f us, max %.0f us%n",
+                probes.count(), probes.percentileNanos(50) / 1e3, probes.percentileNanos(99) / 1e3, probes.maxNanos() / 1e3));
+        for (int i = 0; i < Math.min(3, probes.slowestCount()); i++) {
+            sb.append("  ");
+            EmojiDataset.appendTextHex(probes.slowestText(i), sb);
+            sb.append(String.format(Locale.ROOT, ": %.0f us%n", probes.slowestNanos(i) / 1e3));
+        }
+        return sb.toString();
+    }
+
+    private synchronized void record(String name, long wallNanos, long allocatedBytes) {
+        stageNames.add(name);
+        stageValues.add(new long[]{wallNanos, allocatedBytes});
+    }
+
+    /**
+     * A stage being measured. Stages may nest; each is recorded when it is closed.
+     */
+    public final class Stage implements AutoCloseable {
+        private final String name;
+        private final long startNanos;
+        private final long startBytes;
+        private boolean closed = false;
+
+        private Stage(String name) {
+            this.name = name;
+            this.startBytes = allocations.allocatedBytes();
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            long wallNanos = System.nanoTime() - startNanos;
+            if (closed) {
+                return;
+            }
+            closed = true;
+            long endBytes = allocations.allocatedBytes();
+            long allocated = startBytes == AllocationCounter.UNAVAILABLE || endBytes == AllocationCounter.UNAVAILABLE
+                    ? AllocationCounter.UNAVAILABLE : endBytes - startBytes;
+            record(name, wallNanos, allocated);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package app.lzc.emoji.core;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Substring and word-prefix search over the names and codepoint hex of a dataset's entries.
+ * <p>
+ * Every entry contributes one key, its lower-case UTF-8 name and its codepoints as lower-case hex,
+ * e.g. "grinning squinting face\u00011f606", terminated by a zero byte. The keys share one byte
+ * array and a sorted suffix array of int positions indexes them, so a query is two binary searches
+ * plus one bit per matching suffix; nothing is scanned per entry. In names, suffixes start at every
+ * letter, digit and first byte of a non-ASCII character; in the hex only at each codepoint, so hex
+ * queries match whole leading codepoints. Instances are immutable and safe to share between threads.
+ */
+public final class SearchIndex {
+
+    private static final byte END = 0;        // Ends each key; sorts before every other byte
+    private static final byte SEPARATOR = 1;  // Between the name and the hex of a key
+    private static final int INSERTION_SORT_THRESHOLD = 12;
+
+    private final int size;
+    private final byte[] text;
+    private final int[] keyStarts; // Text offset of each entry's key, ascending
+    private final int[] suffixes;  // Text positions in the order of the suffixes starting there
+
+    private SearchIndex(int size, byte[] text, int[] keyStarts, int[] suffixes) {
+        this.size = size;
+        this.text = text;
+        this.keyStarts = keyStarts;
+        this.suffixes = suffixes;
+    }
+
+    /**
+     * Builds the index of a dataset. Takes tens of milliseconds for a full emoji-test.txt, so call
+     * it off the UI thread.
+     * @param dataset The dataset.
+     * @return The index.
+     */
+    public static SearchIndex build(EmojiDataset dataset) {
+        int size = dataset.size();
+        int[] keyStarts = new int[size];
+        byte[] text = new byte[size * 48];
+        int length = 0;
+        StringBuilder hex = new StringBuilder();
+        for (int entry = 0; entry < size; entry++) {
+            byte[] name = dataset.name(entry).toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+            hex.setLength(0);
+            dataset.appendHex(entry, hex);
+            int needed = name.length + hex.length() + 2;
+            if (length + needed > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, length + needed));
+            }
+            keyStarts[entry] = length;
+            System.arraycopy(name, 0, text, length, name.length);
+            length += name.length;
+            text[length++] = SEPARATOR;
+            for (int i = 0; i < hex.length(); i++) {
+                text[length++] = (byte) Character.toLowerCase(hex.charAt(i));
+            }
+            text[length++] = END;
+        }
+        text = Arrays.copyOf(text, length);
+
+        int[] suffixes = new int[collectSuffixes(text, null)]; // Counted first to size the array exactly
+        collectSuffixes(text, suffixes);
+        sort(text, suffixes, 0, suffixes.length, 0);
+        return new SearchIndex(size, text, keyStarts, suffixes);
+    }
+
+    /**
+     * @return The number of entries of the indexed dataset.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The bytes held by the index.
+     */
+    public long memoryBytes() {
+        return text.length + 4L * keyStarts.length + 4L * suffixes.length;
+    }
+
+    /**
+     * Finds the entries whose name or hex contains a query. The query is matched case-insensitively;
+     * leading punctuation and "U+" prefixes are ignored, so "U+1F606" finds the same as "1f606".
+     * @param query The query, e.g. "squint", "flag: ja" or "1f468 200d".
+     * @param wordPrefix True to match only at the start of a word, e.g. "face" but not "ace".
+     * @param matches Receives one bit per matching entry; it is cleared first and must hold
+     *                {@link Bitsets#words(int)} of {@link #size()} words.
+     * @return The number of matching entries, 0 for an empty query.
+     */
+    public int search(CharSequence query, boolean wordPrefix, long[] matches) {
+        Arrays.fill(matches, 0L);
+        byte[] key = normalize(query);
+        if (key.length == 0) {
+            return 0;
+        }
+        int from = bound(key, false);
+        int to = bound(key, true);
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            int position = suffixes[i];
+            if (wordPrefix && continuesWord(position)) {
+                continue;
+            }
+            int entry = Arrays.binarySearch(keyStarts, position);
+            if (entry < 0) {
+                entry = -entry - 2; // The key starting before the position
+            }
+            long bit = 1L << entry;
+            if ((matches[entry >>> 6] & bit) == 0) {
+                matches[entry >>> 6] |= bit;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private boolean continuesWord(int position) {
+        return position > 0 && isWordByte(text[position - 1]);
+    }
+
+    /**
+     * @param key The normalized query.
+     * @param upper False for the first suffix starting with the key, true for the first one after.
+     * @return An index into the suffix array.
+     */
+    private int bound(byte[] key, boolean upper) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(suffixes[mid], key);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Negative, zero or positive as the suffix at position sorts before, starts with or
+     *         sorts after the key.
+     */
+    private int compare(int position, byte[] key) {
+        for (int k = 0; k < key.length; k++) {
+            int c = text[position + k] & 0xFF;
+            int q = key[k] & 0xFF;
+            if (c != q) {
+                return c - q; // Reaching END ends the comparison, it sorts first
+            }
+        }
+        return 0;
+    }
+
+    private static byte[] normalize(CharSequence query) {
+        String lower = query.toString().toLowerCase(Locale.ROOT).replace("u+", "");
+        byte[] bytes = lower.getBytes(StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < bytes.length && !isSuffixStart(bytes[start])) {
+            start++;
+        }
+        int end = bytes.length;
+        while (end > start && bytes[end - 1] == ' ') {
+            end--;
+        }
+        return Arrays.copyOfRange(bytes, start, end);
+    }
+
+    /**
+     * @param text The keys.
+     * @param dst Receives the indexed positions, or null to only count them.
+     * @return The number of indexed positions.
+     */
+    private static int collectSuffixes(byte[] text, int[] dst) {
+        int count = 0;
+        boolean hex = false;
+        for (int i = 0; i < text.length; i++) {
+            byte b = text[i];
+            if (b == SEPARATOR || b == END) {
+                hex = b == SEPARATOR;
+            } else if (isSuffixStart(b) && (!hex || text[i - 1] == SEPARATOR || text[i - 1] == ' ')) {
+                if (dst != null) {
+                    dst[count] = i;
+                }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isWordByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b < 0;
+    }
+
+    private static boolean isSuffixStart(byte b) {
+        // Letters, digits and UTF-8 lead bytes, but not continuation bytes 10xxxxxx
+        return (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || (b & 0xC0) == 0xC0;
+    }
+
+    /**
+     * Multikey quicksort of the suffixes in [from, to) that share their first depth bytes.
+     */
+    private static void sort(byte[] text, int[] suffixes, int from, int to, int depth) {
+        while (to - from > INSERTION_SORT_THRESHOLD) {
+            int pivot = medianOfThree(text, suffixes, from, (from + to) >>> 1, to - 1, depth);
+            // Partition into [from, lt) < pivot, [lt, gt) == pivot, [gt, to) > pivot
+            int lt = from;
+            int gt = to;
+            int i = from;
+            while (i < gt) {
+                int c = byteAt(text, suffixes[i], depth);
+                if (c < pivot) {
+                    swap(suffixes, lt++, i++);
+                } else if (c > pivot) {
+                    swap(suffixes, i, --gt);
+                } else {
+                    i++;
+                }
+            }
+            sort(text, suffixes, from, lt, depth);
+            if (pivot != END) {
+                sort(text, suffixes, lt, gt, depth + 1);
+            }
+            from = gt; // Loop on the upper part instead of recursing
+        }
+        insertionSort(text, suffixes, from, to, depth);
+    }
+
+    private static void insertionSort(byte[] text, int[] suffixes, int from, int to, int depth) {
+        for (int i = from + 1; i < to; i++) {
+            int position = suffixes[i];
+            int j = i;
+            while (j > from && compareSuffixes(text, suffixes[j - 1], position, depth) > 0) {
+                suffixes[j] = suffixes[j - 1];
+                j--;
+            }
+            suffixes[j] = position;
+        }
+    }
+
+    private static int compareSuffixes(byte[] text, int a, int b, int depth) {
+        while (true) {
+            int ca = byteAt(text, a, depth);
+            int cb = byteAt(text, b, depth);
+            if (ca != cb) {
+                return ca - cb;
+            }
+            if (ca == END) {
+                return 0;
+            }
+            depth++;
+        }
+    }
+
+    private static int medianOfThree(byte[] text, int[] suffixes, int a, int b, int c, int depth) {
+        int x = byteAt(text, suffixes[a], depth);
+        int y = byteAt(text, suffixes[b], depth);
+        int z = byteAt(text, suffixes[c], depth);
+        if (x < y) {
+            return y < z ? y : Math.max(x, z);
+        }
+        return x < z ? x : Math.max(y, z);
+    }
+
+    private static int byteAt(byte[] text, int position, int depth) {
+        return text[position + depth] & 0xFF;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+}
@@ -0,0 +1,198 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of emoji sequences, held as their ascending, distinct
+ * {@link EmojiDataset#sequenceHash(int)} values in one long array.
+ * <p>
+ * Sets built from different datasets can be compared directly, e.g. a downloaded emoji-test.txt
+ * with the bundled one, since a sequence has the same hash in every dataset. Membership is a
+ * binary search; intersections and differences are a single merge over both arrays.
+ */
+public final class SequenceSet {
+
+    public static final SequenceSet EMPTY = new SequenceSet(new long[0]);
+
+    private final long[] hashes; // Ascending, distinct
+
+    private SequenceSet(long[] hashes) {
+        this.hashes = hashes;
+    }
+
+    /**
+     * @param dataset A dataset.
+     * @param entries Bitset of entries of the dataset, e.g. a selection or the supported entries.
+     * @return The sequences of the entries.
+     */
+    public static SequenceSet of(EmojiDataset dataset, long[] entries) {
+        long[] hashes = new long[Bitsets.cardinality(entries)];
+        int n = 0;
+        for (int word = 0; word < entries.length; word++) {
+            long pending = entries[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                hashes[n++] = dataset.sequenceHash(entry);
+            }
+        }
+        Arrays.sort(hashes);
+        return new SequenceSet(distinct(hashes, n));
+    }
+
+    /**
+     * @param hashes Sorted sequence hashes; the first length are used and duplicates are dropped.
+     */
+    static SequenceSet ofSorted(long[] hashes, int length) {
+        return new SequenceSet(distinct(hashes, length));
+    }
+
+    private static long[] distinct(long[] sorted, int length) {
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            if (n == 0 || sorted[i] != sorted[n - 1]) {
+                sorted[n++] = sorted[i];
+            }
+        }
+        return n == sorted.length ? sorted : Arrays.copyOf(sorted, n);
+    }
+
+    /**
+     * @return The hashes, ascending. Do not modify.
+     */
+    long[] hashes() {
+        return hashes;
+    }
+
+    public int size() {
+        return hashes.length;
+    }
+
+    /**
+     * @param sequenceHash A hash from {@link EmojiDataset#sequenceHash(int)}.
+     * @return true if the sequence is in the set.
+     */
+    public boolean contains(long sequenceHash) {
+        return Arrays.binarySearch(hashes, sequenceHash) >= 0;
+    }
+
+    /**
+     * @param other Another set.
+     * @return The sequences in both sets.
+     */
+    public SequenceSet intersect(SequenceSet other) {
+        long[] a = hashes;
+        long[] b = other.hashes;
+        long[] out = new long[Math.min(a.length, b.length)];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return new SequenceSet(n == out.length ? out : Arrays.copyOf(out, n));
+    }
+
+    /**
+     * @param other Another set.
+     * @return The sequences of this set that are not in the other.
+     */
+    public SequenceSet minus(SequenceSet other) {
+        long[] a = hashes;
+        long[] b = other.hashes;
+        long[] out = new long[a.length];
+        int n = 0;
+        int j = 0;
+        for (long hash : a) {
+            while (j < b.length && b[j] < hash) {
+                j++;
+            }
+            if (j == b.length || b[j] != hash) {
+                out[n++] = hash;
+            }
+        }
+        return new SequenceSet(n == out.length ? out : Arrays.copyOf(out, n));
+    }
+
+    /**
+     * @param other Another set.
+     * @return The sequences in either set.
+     */
+    public SequenceSet union(SequenceSet other) {
+        long[] a = hashes;
+        long[] b = other.hashes;
+        long[] out = new long[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return new SequenceSet(n == out.length ? out : Arrays.copyOf(out, n));
+    }
+
+    /**
+     * Counts the common sequences without building the intersection.
+     * @param other Another set.
+     * @return The size of {@link #intersect}.
+     */
+    public int intersectionSize(SequenceSet other) {
+        long[] a = hashes;
+        long[] b = other.hashes;
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                n++;
+                i++;
+                j++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @param other Another set.
+     * @return true if every sequence of this set is in the other.
+     */
+    public boolean isSubsetOf(SequenceSet other) {
+        return intersectionSize(other) == hashes.length;
+    }
+
+    /**
+     * Finds the entries of a dataset that belong to the set, e.g. to show or name them.
+     * @param dataset A dataset.
+     * @return Bitset of the entries whose sequence is in the set.
+     */
+    public long[] select(EmojiDataset dataset) {
+        long[] entries = new long[Bitsets.words(dataset.size())];
+        for (int entry = 0; entry < dataset.size(); entry++) {
+            if (contains(dataset.sequenceHash(entry))) {
+                Bitsets.set(entries, entry);
+            }
+        }
+        return entries;
+    }
+}
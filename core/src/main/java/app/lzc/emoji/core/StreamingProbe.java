@@ -0,0 +1,188 @@
+package app.lzc.emoji.core;
+
+import java.util.Arrays;
+
+/**
+ * Parser handler that builds a dataset and probes its entries at the same time.
+ * <p>
+ * Entries are grouped into blocks of 64 as they are parsed and each finished block is queued on a
+ * {@link GlyphProbeEngine.Session}, so probing overlaps reading the file (or the network
+ * transfer feeding the parser). Entries already known to a {@link ResultCache} are filled in
+ * without probing, and so are entries that differ from an earlier selected entry only in U+FE0F:
+ * they take that entry's result, see {@link CanonicalSequences}. emoji-test.txt lists the
+ * fully-qualified form of an emoji first, so that is the one probed.
+ */
+public final class StreamingProbe implements EmojiTestParser.Handler {
+
+    private final EmojiDataset.Builder builder = new EmojiDataset.Builder();
+    private final GlyphProbeEngine.Session session;
+    private final int statusMask;
+    private final ResultCache cache;
+
+    private long[] selection = new long[64];
+    private long[] cachedEntries = new long[64]; // Selected entries the cache has a result for
+    private long[] cachedSupported = new long[64];
+    private int probeCount = 0;
+    private String[] blockTexts = new String[64];
+    private long blockMask = 0;
+    private final LongIntHashMap canonical = new LongIntHashMap(4096); // FE0F-free hash -> first entry
+    private int[] variants = new int[256]; // Pairs of (entry, entry whose result it takes)
+    private int variantCount = 0;
+    private EmojiDataset dataset;
+
+    /**
+     * @param engine The engine whose workers run the probes.
+     * @param statusMask Statuses to probe, see {@link EmojiStatus#mask(int...)}.
+     * @param cache Results to reuse for the current device, or null.
+     * @param factory Creates the per-thread probes.
+     * @param listener Receives progress for the probed (not cached) entries, or null.
+     */
+    public StreamingProbe(GlyphProbeEngine engine, int statusMask, ResultCache cache,
+                          GlyphProbe.Factory factory, GlyphProbeEngine.Listener listener) {
+        this.session = engine.openSession(factory, listener);
+        this.statusMask = statusMask;
+        this.cache = cache;
+    }
+
+    @Override
+    public void onVersion(int version) {
+        builder.onVersion(version);
+    }
+
+    @Override
+    public void onGroup(String name) {
+        builder.onGroup(name);
+    }
+
+    @Override
+    public void onSubgroup(String name) {
+        builder.onSubgroup(name);
+    }
+
+    @Override
+    public void onEntry(int[] codepoints, int length, int status, int emojiVersion,
+                        byte[] line, int nameStart, int nameEnd) {
+        int entry = builder.size();
+        builder.onEntry(codepoints, length, status, emojiVersion, line, nameStart, nameEnd);
+        int word = entry >>> 6;
+        if (word >= selection.length) {
+            selection = Arrays.copyOf(selection, selection.length * 2);
+            cachedEntries = Arrays.copyOf(cachedEntries, cachedEntries.length * 2);
+            cachedSupported = Arrays.copyOf(cachedSupported, cachedSupported.length * 2);
+        }
+        if (EmojiStatus.matches(statusMask, status)) {
+            Bitsets.set(selection, entry);
+            int representative = canonical.putIfAbsent(EmojiDataset.hashCanonicalSequence(codepoints, 0, length), entry);
+            if (representative != LongIntHashMap.MISSING) {
+                addVariant(entry, representative); // Filled in from the representative in await()
+            } else {
+                int cached = cache == null ? -1 : cache.lookup(EmojiDataset.hashSequence(codepoints, 0, length));
+                if (cached < 0) {
+                    blockTexts[entry & 63] = new String(codepoints, 0, length);
+                    blockMask |= 1L << entry;
+                    probeCount++;
+                } else {
+                    Bitsets.set(cachedEntries, entry);
+                    if (cached == 1) {
+                        Bitsets.set(cachedSupported, entry);
+                    }
+                }
+            }
+        }
+        if ((entry & 63) == 63) {
+            flush(word);
+        }
+    }
+
+    private void addVariant(int entry, int representative) {
+        if (variantCount + 2 > variants.length) {
+            variants = Arrays.copyOf(variants, variants.length * 2);
+        }
+        variants[variantCount++] = entry;
+        variants[variantCount++] = representative;
+    }
+
+    private void flush(int word) {
+        if (blockMask != 0) {
+            session.submit(word, blockTexts, blockMask);
+            blockTexts = new String[64]; // The session keeps the submitted array
+            blockMask = 0;
+        }
+    }
+
+    /**
+     * Call once the parser has finished; queues the last partial block.
+     * @return The parsed dataset.
+     */
+    public EmojiDataset finish() {
+        if (dataset == null) {
+            int size = builder.size();
+            if ((size & 63) != 0) {
+                flush(size >>> 6);
+            }
+            dataset = builder.build();
+        }
+        return dataset;
+    }
+
+    /**
+     * @return The bitset of entries selected for testing. Only valid after {@link #finish()}.
+     */
+    public long[] selection() {
+        return Arrays.copyOf(selection, Bitsets.words(dataset.size()));
+    }
+
+    /**
+     * @return The bitset of selected entries the cache had a result for. Only valid after
+     *         {@link #finish()}.
+     */
+    public long[] cachedEntries() {
+        return Arrays.copyOf(cachedEntries, Bitsets.words(dataset.size()));
+    }
+
+    /**
+     * @return The bitset of supported entries among {@link #cachedEntries()}. Only valid after
+     *         {@link #finish()}.
+     */
+    public long[] cachedSupported() {
+        return Arrays.copyOf(cachedSupported, Bitsets.words(dataset.size()));
+    }
+
+    /**
+     * @return The number of selected entries that are not probed: cache hits and the entries that
+     *         take the result of another one. Only valid after {@link #finish()}.
+     */
+    public int resolvedCount() {
+        return Bitsets.cardinality(selection) - probeCount;
+    }
+
+    /**
+     * Waits for all queued probes. Only valid after {@link #finish()}.
+     * @return The combined cached and probed result for the selected entries.
+     * @throws InterruptedException If interrupted while waiting, or if a probe was interrupted or
+     *                              cancelled before it finished; queued probes are cancelled.
+     */
+    public ProbeResult await() throws InterruptedException {
+        int words = Bitsets.words(dataset.size());
+        long[] supported = session.await(words);
+        for (int i = 0; i < words; i++) {
+            supported[i] |= cachedSupported[i];
+        }
+        for (int i = 0; i < variantCount; i += 2) {
+            if (Bitsets.get(supported, variants[i + 1])) {
+                Bitsets.set(supported, variants[i]);
+            }
+        }
+        // Blocks finish out of order on the session's workers, so the index is built in one pass here
+        long[] tested = selection();
+        return new ProbeResult(supported, Bitsets.cardinality(tested), SupportIndex.build(dataset, tested, supported));
+    }
+
+    /**
+     * Cancels queued probes, e.g. when the download fails half-way. The listener gets no more
+     * progress once this returns.
+     */
+    public void cancel() {
+        session.cancel();
+    }
+}
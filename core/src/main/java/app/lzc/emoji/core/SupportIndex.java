@@ -0,0 +1,241 @@
+package app.lzc.emoji.core;
+
+/**
+ * Supported and tested entry counts per E-version, group and subgroup of a dataset.
+ * <p>
+ * Counts are kept in primitive arrays indexed by the dataset's interned ids, so filling the index
+ * during a probing sweep costs a few array increments per entry. Workers fill their own
+ * {@link Builder} and the builders are merged once the sweep is done.
+ */
+public final class SupportIndex {
+
+    /**
+     * Default share of a version's entries that must be supported for the device to count as
+     * supporting that version. Fonts tend to miss a handful of sequences of otherwise complete
+     * releases, e.g. gendered variants that were added later.
+     */
+    public static final double DEFAULT_VERSION_COVERAGE = 0.9;
+
+    private final EmojiDataset dataset;
+    private final int[] versionSupported;
+    private final int[] versionTotal;
+    private final int[] groupSupported;
+    private final int[] groupTotal;
+    private final int[] subgroupSupported;
+    private final int[] subgroupTotal;
+    private final int supported;
+    private final int total;
+
+    private SupportIndex(Builder builder) {
+        this.dataset = builder.dataset;
+        this.versionSupported = builder.versionSupported.clone();
+        this.versionTotal = builder.versionTotal.clone();
+        this.subgroupSupported = builder.subgroupSupported.clone();
+        this.subgroupTotal = builder.subgroupTotal.clone();
+        // Group counts are rolled up from the subgroups instead of being counted per entry
+        this.groupSupported = new int[dataset.groupCount()];
+        this.groupTotal = new int[dataset.groupCount()];
+        int supported = 0;
+        int total = 0;
+        for (int s = 0; s < subgroupTotal.length; s++) {
+            int group = dataset.subgroupGroup(s);
+            groupSupported[group] += subgroupSupported[s];
+            groupTotal[group] += subgroupTotal[s];
+            supported += subgroupSupported[s];
+            total += subgroupTotal[s];
+        }
+        this.supported = supported;
+        this.total = total;
+    }
+
+    /**
+     * Builds the index of an existing result in one pass, e.g. for results taken from the cache.
+     * @param dataset The dataset.
+     * @param selection Bitset of the tested entries.
+     * @param supported Bitset of the supported entries.
+     * @return The index.
+     */
+    public static SupportIndex build(EmojiDataset dataset, long[] selection, long[] supported) {
+        return new Builder(dataset).addAll(selection, supported).build();
+    }
+
+    /**
+     * @return The dataset the ids refer to.
+     */
+    public EmojiDataset dataset() {
+        return dataset;
+    }
+
+    /**
+     * @return The number of supported entries.
+     */
+    public int supported() {
+        return supported;
+    }
+
+    /**
+     * @return The number of tested entries.
+     */
+    public int total() {
+        return total;
+    }
+
+    /**
+     * @param versionId A version id, see {@link EmojiDataset#versionId(int)}.
+     * @return The number of supported entries of that version.
+     */
+    public int versionSupported(int versionId) {
+        return versionSupported[versionId];
+    }
+
+    /**
+     * @param versionId A version id, see {@link EmojiDataset#versionId(int)}.
+     * @return The number of tested entries of that version.
+     */
+    public int versionTotal(int versionId) {
+        return versionTotal[versionId];
+    }
+
+    /**
+     * @param groupId A group id, see {@link EmojiDataset#groupId(int)}.
+     * @return The number of supported entries in that group.
+     */
+    public int groupSupported(int groupId) {
+        return groupSupported[groupId];
+    }
+
+    /**
+     * @param groupId A group id, see {@link EmojiDataset#groupId(int)}.
+     * @return The number of tested entries in that group.
+     */
+    public int groupTotal(int groupId) {
+        return groupTotal[groupId];
+    }
+
+    /**
+     * @param subgroupId A subgroup id, see {@link EmojiDataset#subgroupId(int)}.
+     * @return The number of supported entries in that subgroup.
+     */
+    public int subgroupSupported(int subgroupId) {
+        return subgroupSupported[subgroupId];
+    }
+
+    /**
+     * @param subgroupId A subgroup id, see {@link EmojiDataset#subgroupId(int)}.
+     * @return The number of tested entries in that subgroup.
+     */
+    public int subgroupTotal(int subgroupId) {
+        return subgroupTotal[subgroupId];
+    }
+
+    /**
+     * Determines the emoji version the device supports.
+     * @param minCoverage Share of a version's tested entries that must be supported, between 0 and 1.
+     * @return The encoded highest version whose coverage reaches minCoverage, or
+     *         {@link EmojiVersions#UNKNOWN} if there is none.
+     */
+    public int highestSupportedVersion(double minCoverage) {
+        for (int id = versionTotal.length - 1; id >= 0; id--) { // Ids are in ascending version order
+            int versionTotal = this.versionTotal[id];
+            if (versionTotal > 0 && versionSupported[id] >= minCoverage * versionTotal) {
+                return dataset.version(id);
+            }
+        }
+        return EmojiVersions.UNKNOWN;
+    }
+
+    /**
+     * Accumulates counts for one worker. Not thread-safe.
+     */
+    public static final class Builder {
+        private final EmojiDataset dataset;
+        private final int[] versionSupported;
+        private final int[] versionTotal;
+        private final int[] subgroupSupported;
+        private final int[] subgroupTotal;
+
+        public Builder(EmojiDataset dataset) {
+            this.dataset = dataset;
+            this.versionSupported = new int[dataset.versionCount()];
+            this.versionTotal = new int[dataset.versionCount()];
+            this.subgroupSupported = new int[dataset.subgroupCount()];
+            this.subgroupTotal = new int[dataset.subgroupCount()];
+        }
+
+        /**
+         * Counts one tested entry.
+         * @param entry Entry index.
+         * @param supported Whether the entry is supported.
+         */
+        public void add(int entry, boolean supported) {
+            int version = dataset.versionId(entry);
+            int subgroup = dataset.subgroupId(entry);
+            versionTotal[version]++;
+            subgroupTotal[subgroup]++;
+            if (supported) {
+                versionSupported[version]++;
+                subgroupSupported[subgroup]++;
+            }
+        }
+
+        /**
+         * Counts every entry of a selection.
+         * @param selection Bitset of the tested entries.
+         * @param supported Bitset of the supported entries.
+         * @return This builder.
+         */
+        public Builder addAll(long[] selection, long[] supported) {
+            for (int word = 0; word < selection.length; word++) {
+                long pending = selection[word];
+                while (pending != 0) {
+                    int bit = Long.numberOfTrailingZeros(pending);
+                    pending &= pending - 1;
+                    add((word << 6) + bit, (supported[word] & (1L << bit)) != 0);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Adds the counts of another index over the same dataset, e.g. of another worker.
+         * @param other The other index.
+         * @return This builder.
+         */
+        public Builder merge(SupportIndex other) {
+            if (other.dataset != dataset) {
+                throw new IllegalArgumentException("Index is for a different dataset");
+            }
+            addTo(versionSupported, other.versionSupported);
+            addTo(versionTotal, other.versionTotal);
+            addTo(subgroupSupported, other.subgroupSupported);
+            addTo(subgroupTotal, other.subgroupTotal);
+            return this;
+        }
+
+        /**
+         * Adds the counts of another builder over the same dataset.
+         * @param other The other builder.
+         * @return This builder.
+         */
+        public Builder merge(Builder other) {
+            if (other.dataset != dataset) {
+                throw new IllegalArgumentException("Builder is for a different dataset");
+            }
+            addTo(versionSupported, other.versionSupported);
+            addTo(versionTotal, other.versionTotal);
+            addTo(subgroupSupported, other.subgroupSupported);
+            addTo(subgroupTotal, other.subgroupTotal);
+            return this;
+        }
+
+        public SupportIndex build() {
+            return new SupportIndex(this);
+        }
+
+        private static void addTo(int[] dst, int[] src) {
+            for (int i = 0; i < dst.length; i++) {
+                dst[i] += src[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package app.lzc.emoji.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Compact export of one run's results, for collecting them from many devices.
+ * <p>
+ * A report is a 25-byte header followed by one bit per tested entry, in entry order:
+ * <pre>
+ *   int    "EMS" and the format version in the low byte
+ *   long   {@link EmojiDataset#fingerprint()} of the tested dataset
+ *   short  Unicode emoji version of the dataset, see {@link EmojiVersions}
+ *   byte   Tested statuses, see {@link EmojiStatus#mask(int...)}
+ *   long   Hash of the device and font key, see {@link #hashDeviceKey(String)}
+ *   short  Number of tested entries, unsigned
+ *   byte[] The supported bits, bit i of byte i / 8 for the i-th tested entry
+ * </pre>
+ * The tested entries are those the status mask selects from the dataset, so the dataset is
+ * needed to tell which emoji a bit belongs to. With the default statuses of a full emoji-test.txt
+ * a report is just under 500 bytes. Reports can be concatenated into one stream.
+ */
+public final class SupportReport {
+
+    private static final int MAGIC = 0x454D5300; // "EMS"
+    private static final int FORMAT_VERSION = 1;
+    /** Bytes before the supported bits. */
+    public static final int HEADER_BYTES = 25;
+
+    private final long datasetFingerprint;
+    private final int unicodeVersion;
+    private final int statusMask;
+    private final long deviceHash;
+    private final int bitCount;
+    private final long[] bits; // Bit i of the report is bit i % 64 of word i / 64
+
+    private SupportReport(long datasetFingerprint, int unicodeVersion, int statusMask, long deviceHash,
+                          int bitCount, long[] bits) {
+        this.datasetFingerprint = datasetFingerprint;
+        this.unicodeVersion = unicodeVersion;
+        this.statusMask = statusMask;
+        this.deviceHash = deviceHash;
+        this.bitCount = bitCount;
+        this.bits = bits;
+    }
+
+    /**
+     * Captures the results of a run.
+     * @param deviceKey Identifies the device and its fonts; only its hash is kept.
+     * @param dataset The tested dataset.
+     * @param statusMask The tested statuses.
+     * @param supported Bitset of the supported entries.
+     * @return The report.
+     */
+    public static SupportReport of(String deviceKey, EmojiDataset dataset, int statusMask, long[] supported) {
+        long[] selection = dataset.select(statusMask);
+        int count = Bitsets.cardinality(selection);
+        if (count > 0xFFFF) {
+            throw new IllegalArgumentException("Too many tested entries: " + count);
+        }
+        long[] bits = new long[Bitsets.words(count)];
+        int rank = 0;
+        for (int word = 0; word < selection.length; word++) {
+            long pending = selection[word];
+            while (pending != 0) {
+                int entry = (word << 6) + Long.numberOfTrailingZeros(pending);
+                pending &= pending - 1;
+                if (Bitsets.get(supported, entry)) {
+                    Bitsets.set(bits, rank);
+                }
+                rank++;
+            }
+        }
+        return new SupportReport(dataset.fingerprint(), dataset.unicodeVersion(), statusMask,
+                hashDeviceKey(deviceKey), count, bits);
+    }
+
+    /**
+     * @param deviceKey A device and font key, e.g. an OS build fingerprint and a font hash.
+     * @return Its 64-bit FNV-1a hash.
+     */
+    public static long hashDeviceKey(String deviceKey) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < deviceKey.length(); i++) {
+            hash = (hash ^ deviceKey.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Reads the next report of a stream.
+     * @param in The stream.
+     * @return The report, or null if the stream ends before it.
+     * @throws IOException If reading fails or the stream holds something else or a partial report.
+     */
+    public static SupportReport read(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        try {
+            int magic = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+            if ((magic & ~0xFF) != MAGIC || (magic & 0xFF) != FORMAT_VERSION) {
+                throw new EmojiTestFormatException(0, "Not a support report");
+            }
+            long datasetFingerprint = in.readLong();
+            int unicodeVersion = in.readShort();
+            int statusMask = in.readUnsignedByte();
+            long deviceHash = in.readLong();
+            int bitCount = in.readUnsignedShort();
+            byte[] bytes = new byte[(bitCount + 7) >>> 3];
+            in.readFully(bytes);
+            long[] bits = new long[Bitsets.words(bitCount)];
+            for (int i = 0; i < bytes.length; i++) {
+                bits[i >>> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+            }
+            if ((bitCount & 63) != 0) {
+                bits[bits.length - 1] &= (1L << bitCount) - 1; // Padding of the last byte
+            }
+            return new SupportReport(datasetFingerprint, unicodeVersion, statusMask, deviceHash, bitCount, bits);
+        } catch (EOFException e) {
+            throw new EmojiTestFormatException(0, "Truncated support report");
+        }
+    }
+
+    /**
+     * Appends the report to a stream.
+     * @param out The stream.
+     * @throws IOException If writing fails.
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC | FORMAT_VERSION);
+        out.writeLong(datasetFingerprint);
+        out.writeShort(unicodeVersion);
+        out.writeByte(statusMask);
+        out.writeLong(deviceHash);
+        out.writeShort(bitCount);
+        int bytes = (bitCount + 7) >>> 3;
+        for (int i = 0; i < bytes; i++) {
+            out.writeByte((int) (bits[i >>> 3] >>> ((i & 7) << 3)));
+        }
+    }
+
+    /**
+     * @return The encoded size of the report in bytes.
+     */
+    public int encodedLength() {
+        return HEADER_BYTES + ((bitCount + 7) >>> 3);
+    }
+
+    public long datasetFingerprint() {
+        return datasetFingerprint;
+    }
+
+    public int unicodeVersion() {
+        return unicodeVersion;
+    }
+
+    public int statusMask() {
+        return statusMask;
+    }
+
+    public long deviceHash() {
+        return deviceHash;
+    }
+
+    /**
+     * @return The number of tested entries, i.e. of result bits.
+     */
+    public int bitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return The supported bits, bit i for the i-th tested entry. Do not modify.
+     */
+    public long[] bits() {
+        return bits;
+    }
+}
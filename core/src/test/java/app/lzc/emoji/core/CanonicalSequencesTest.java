@@ -0,0 +1,89 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_FQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_UQ;
+import static app.lzc.emoji.core.TestDatasets.SKIN_TONE;
+import static app.lzc.emoji.core.TestDatasets.SMILING_FQ;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CanonicalSequencesTest {
+
+    private EmojiDataset dataset;
+
+    @Before
+    public void setUp() throws Exception {
+        dataset = TestDatasets.sample();
+    }
+
+    private long[] bits(int... entries) {
+        long[] bits = new long[Bitsets.words(dataset.size())];
+        for (int entry : entries) {
+            Bitsets.set(bits, entry);
+        }
+        return bits;
+    }
+
+    @Test
+    public void mostQualifiedEntryRepresentsItsGroup() {
+        CanonicalSequences sequences = CanonicalSequences.build(dataset, dataset.select(EmojiStatus.ALL));
+
+        assertEquals(SMILING_FQ, sequences.representative(SMILING_FQ));
+        assertEquals(SMILING_FQ, sequences.representative(SMILING_UQ));
+        assertEquals(HEAD_SHAKING_FQ, sequences.representative(HEAD_SHAKING_MQ));
+        assertEquals(RAINBOW_FQ, sequences.representative(RAINBOW_UQ));
+        assertEquals(GRINNING, sequences.representative(GRINNING));
+        assertEquals(SKIN_TONE, sequences.representative(SKIN_TONE));
+        assertEquals(dataset.size() - 3, sequences.distinctCount());
+    }
+
+    @Test
+    public void onlySelectedEntriesAreGrouped() {
+        long[] selection = dataset.select(EmojiStatus.mask(EmojiStatus.MINIMALLY_QUALIFIED, EmojiStatus.UNQUALIFIED));
+        CanonicalSequences sequences = CanonicalSequences.build(dataset, selection);
+
+        assertEquals(SMILING_UQ, sequences.representative(SMILING_UQ));
+        assertEquals(RAINBOW_UQ, sequences.representative(RAINBOW_UQ));
+        assertEquals(-1, sequences.representative(SMILING_FQ));
+        assertEquals(Bitsets.cardinality(selection), sequences.distinctCount());
+    }
+
+    @Test
+    public void resolveCopiesKnownRepresentatives() {
+        long[] all = dataset.select(EmojiStatus.ALL);
+        CanonicalSequences sequences = CanonicalSequences.build(dataset, all);
+
+        long[] pending = all.clone();
+        long[] toProbe = sequences.resolve(pending, new long[all.length]);
+        assertArrayEquals(all, pending);
+        long[] representatives = all.clone();
+        Bitsets.clear(representatives, SMILING_UQ);
+        Bitsets.clear(representatives, HEAD_SHAKING_MQ);
+        Bitsets.clear(representatives, RAINBOW_UQ);
+        assertArrayEquals(representatives, toProbe);
+
+        pending = bits(SMILING_UQ, RAINBOW_UQ, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ);
+        long[] supported = bits(RAINBOW_FQ);
+        toProbe = sequences.resolve(pending, supported);
+        assertArrayEquals(bits(HEAD_SHAKING_FQ), toProbe);
+        assertArrayEquals(bits(HEAD_SHAKING_FQ, HEAD_SHAKING_MQ), pending); // Representative still pending
+        assertArrayEquals(bits(RAINBOW_FQ, RAINBOW_UQ), supported);
+    }
+
+    @Test
+    public void applyCopiesRepresentativeResults() {
+        long[] all = dataset.select(EmojiStatus.ALL);
+        CanonicalSequences sequences = CanonicalSequences.build(dataset, all);
+
+        long[] supported = bits(SMILING_FQ, RAINBOW_UQ, GRINNING); // Stale result for RAINBOW_UQ
+        sequences.apply(bits(SMILING_UQ, RAINBOW_UQ, HEAD_SHAKING_MQ), supported);
+        assertArrayEquals(bits(SMILING_FQ, SMILING_UQ, GRINNING), supported);
+    }
+}
@@ -0,0 +1,96 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.ROLLING;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class CoverageMatrixTest {
+
+    private final GlyphProbeEngine engine = new GlyphProbeEngine(2);
+
+    @After
+    public void shutDown() {
+        engine.shutdownNow();
+    }
+
+    /**
+     * @return A factory of probes supporting every entry except the given ones.
+     */
+    private static GlyphProbe.Factory allBut(EmojiDataset dataset, int... entries) {
+        final Set<String> missing = new HashSet<>();
+        for (int entry : entries) {
+            missing.add(dataset.toString(entry));
+        }
+        return () -> text -> !missing.contains(text);
+    }
+
+    private CoverageMatrix matrix(EmojiDataset dataset) throws Exception {
+        ProbeResult[] results = engine.probeAll(dataset, dataset.select(EmojiStatus.ALL), new GlyphProbe.Factory[]{
+                allBut(dataset, SHAKING, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ),
+                allBut(dataset, GRINNING, ROLLING)}, null);
+        return new CoverageMatrix(new String[]{"device", "fallback.ttf"}, results);
+    }
+
+    @Test
+    public void gainedAndLostAgainstTheReference() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        CoverageMatrix matrix = matrix(dataset);
+
+        assertEquals(2, matrix.columnCount());
+        assertEquals("fallback.ttf", matrix.name(1));
+        assertEquals(dataset.size() - 3, matrix.result(0).supportedCount());
+        assertEquals(dataset.size() - 2, matrix.result(1).supportedCount());
+        assertEquals(3, matrix.gainedOverReference(1));
+        assertEquals(2, matrix.lostAgainstReference(1));
+        assertEquals(0, matrix.gainedOverReference(0));
+        assertEquals(0, matrix.lostAgainstReference(0));
+    }
+
+    @Test
+    public void reportHasOneObjectPerColumn() throws Exception {
+        StringBuilder out = new StringBuilder();
+        matrix(TestDatasets.sample()).writeReport(out);
+
+        assertEquals("{\"dataset\":\"15.1\","
+                        + "\"versions\":[\"0.6\",\"1.0\",\"3.0\",\"4.0\",\"12.1\",\"15.0\",\"15.1\"],"
+                        + "\"groups\":[\"Smileys & Emotion\",\"People & Body\",\"Component\",\"Flags\"],"
+                        + "\"columns\":["
+                        // Without E15.0 and E15.1, the reference stops at E12.1
+                        + "{\"name\":\"device\",\"supported\":10,\"probed\":13,\"emojiVersion\":\"12.1\","
+                        + "\"gained\":0,\"lost\":0,"
+                        + "\"versionSupported\":[3,3,1,2,1,0,0],\"groupSupported\":[4,3,1,2]},"
+                        + "{\"name\":\"fallback.ttf\",\"supported\":11,\"probed\":13,\"emojiVersion\":\"15.1\","
+                        + "\"gained\":3,\"lost\":2,"
+                        + "\"versionSupported\":[3,2,0,2,1,1,2],\"groupSupported\":[5,3,1,2]}],"
+                        + "\"versionTotal\":[3,3,1,2,1,1,2],\"groupTotal\":[7,3,1,2]}",
+                out.toString());
+    }
+
+    @Test
+    public void needsOneNamePerResult() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        ProbeResult result = engine.probe(dataset, dataset.select(EmojiStatus.ALL), allBut(dataset), null);
+        try {
+            new CoverageMatrix(new String[]{"a", "b"}, new ProbeResult[]{result});
+            fail("Names and results differ in length");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            new CoverageMatrix(new String[0], new ProbeResult[0]);
+            fail("No columns");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
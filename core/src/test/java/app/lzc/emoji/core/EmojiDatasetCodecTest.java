@@ -0,0 +1,131 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class EmojiDatasetCodecTest {
+
+    private static byte[] encode(EmojiDataset dataset) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EmojiDatasetCodec.write(dataset, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void roundTripKeepsFingerprintAndTables() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        EmojiDataset read = EmojiDatasetCodec.read(ByteBuffer.wrap(encode(dataset)));
+
+        assertEquals(dataset.fingerprint(), read.fingerprint());
+        assertEquals(dataset.unicodeVersion(), read.unicodeVersion());
+        assertEquals(dataset.size(), read.size());
+        for (int entry = 0; entry < dataset.size(); entry++) {
+            assertEquals(dataset.toString(entry), read.toString(entry));
+            assertEquals(dataset.name(entry), read.name(entry));
+            assertEquals(dataset.emojiVersion(entry), read.emojiVersion(entry));
+            assertEquals(dataset.groupName(dataset.groupId(entry)), read.groupName(read.groupId(entry)));
+            assertEquals(dataset.subgroupName(dataset.subgroupId(entry)), read.subgroupName(read.subgroupId(entry)));
+        }
+        assertEquals(Arrays.toString(dataset.select(EmojiStatus.ALL)), Arrays.toString(read.select(EmojiStatus.ALL)));
+    }
+
+    @Test
+    public void readsFromOffsetInBuffer() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        byte[] encoded = encode(dataset);
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.position(3);
+        buffer.put(encoded);
+        buffer.position(3); // Like an asset that starts inside the mapped APK
+
+        assertEquals(dataset.fingerprint(), EmojiDatasetCodec.read(buffer).fingerprint());
+        assertEquals(encoded.length + 3, buffer.position());
+    }
+
+    @Test
+    public void rejectsTruncatedData() throws Exception {
+        byte[] encoded = encode(TestDatasets.sample());
+        for (int length : new int[]{0, 8, 36, encoded.length / 2, encoded.length - 1}) {
+            try {
+                EmojiDatasetCodec.read(ByteBuffer.wrap(Arrays.copyOf(encoded, length)));
+                fail("Truncated dataset of " + length + " bytes accepted");
+            } catch (EmojiTestFormatException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsOtherFiles() {
+        try {
+            EmojiDatasetCodec.read(ByteBuffer.wrap(TestDatasets.bytes(TestDatasets.SAMPLE)));
+            fail("Text accepted as a dataset");
+        } catch (EmojiTestFormatException e) {
+            // Expected
+        }
+    }
+
+    /**
+     * @return The encoded sample with the int at a byte offset replaced, e.g. a count or offset.
+     */
+    private static ByteBuffer withInt(byte[] encoded, int position, int value) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded.clone());
+        buffer.putInt(position, value);
+        return buffer;
+    }
+
+    private static void assertRejected(String what, ByteBuffer buffer) {
+        try {
+            EmojiDatasetCodec.read(buffer);
+            fail("Corrupt " + what + " accepted");
+        } catch (EmojiTestFormatException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void rejectsCorruptTables() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        byte[] encoded = encode(dataset);
+        int size = dataset.size();
+        int codepointCount = 0;
+        for (int entry = 0; entry < size; entry++) {
+            codepointCount += dataset.length(entry);
+        }
+        int codepoints = 36; // After the header of nine ints
+        int offsets = codepoints + 4 * codepointCount;
+        int nameOffsets = offsets + 4 * (size + 1) + 4 * dataset.versionCount();
+        int subgroupIds = nameOffsets + 4 * (size + 1);
+        int statuses = subgroupIds + 2 * size;
+        int versionIds = statuses + size;
+
+        assertRejected("entry count", withInt(encoded, 12, Integer.MAX_VALUE));
+        assertRejected("name byte count", withInt(encoded, 32, -1));
+        assertRejected("codepoint", withInt(encoded, codepoints, 0x110000));
+        assertRejected("first offset", withInt(encoded, offsets, 1));
+        assertRejected("offset order", withInt(encoded, offsets + 8, 0));
+        assertRejected("last name offset", withInt(encoded, nameOffsets + 4 * size, 1 << 20));
+
+        byte[] corrupt = encoded.clone();
+        corrupt[versionIds + TestDatasets.TECHNOLOGIST] = (byte) dataset.versionCount();
+        assertRejected("version id", ByteBuffer.wrap(corrupt));
+        corrupt = encoded.clone();
+        corrupt[versionIds] = -1;
+        assertRejected("negative version id", ByteBuffer.wrap(corrupt));
+        corrupt = encoded.clone();
+        ByteBuffer.wrap(corrupt).putShort(subgroupIds + 2 * (size - 1), (short) dataset.subgroupCount());
+        assertRejected("subgroup id", ByteBuffer.wrap(corrupt));
+        corrupt = encoded.clone();
+        corrupt[statuses] = (byte) EmojiStatus.COUNT;
+        assertRejected("status", ByteBuffer.wrap(corrupt));
+        corrupt = encoded.clone();
+        corrupt[versionIds + size] = (byte) dataset.groupCount(); // The first subgroup's group
+        assertRejected("group id", ByteBuffer.wrap(corrupt));
+    }
+}
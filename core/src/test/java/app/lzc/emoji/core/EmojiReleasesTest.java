@@ -0,0 +1,110 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_FQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_UQ;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static app.lzc.emoji.core.TestDatasets.TECHNOLOGIST;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EmojiReleasesTest {
+
+    // Releases of SAMPLE: E0.6, E1.0, E3.0, E4.0, E12.1, E15.0 and E15.1
+    private static final int E4_0 = 3;
+    private static final int E12_1 = 4;
+    private static final int E15_1 = 6;
+
+    private EmojiDataset dataset;
+    private EmojiReleases releases;
+
+    @Before
+    public void setUp() throws Exception {
+        dataset = TestDatasets.sample();
+        releases = EmojiReleases.of(dataset, EmojiStatus.ALL);
+    }
+
+    private long[] bits(int... entries) {
+        long[] bits = new long[Bitsets.words(dataset.size())];
+        for (int entry : entries) {
+            Bitsets.set(bits, entry);
+        }
+        return bits;
+    }
+
+    /**
+     * @return The sequences of every entry except the given ones.
+     */
+    private SequenceSet allBut(int... entries) {
+        long[] supported = dataset.select(EmojiStatus.ALL);
+        for (int entry : entries) {
+            Bitsets.clear(supported, entry);
+        }
+        return SequenceSet.of(dataset, supported);
+    }
+
+    @Test
+    public void releasesAreCumulative() {
+        assertEquals(7, releases.count());
+        assertEquals(EmojiVersions.encode(4, 0), releases.version(E4_0));
+        assertEquals(E12_1, releases.indexOf(EmojiVersions.encode(12, 1)));
+        assertEquals(-1, releases.indexOf(EmojiVersions.encode(13, 0)));
+
+        assertArrayEquals(new int[]{3, 6, 7, 9, 10, 11, 13}, releases.sizePerRelease());
+        assertEquals(9, releases.release(E4_0).size());
+        assertArrayEquals(dataset.select(EmojiStatus.ALL), releases.release(E15_1).select(dataset));
+        assertArrayEquals(new int[]{3, 6, 7, 9, 10, 11, 13},
+                releases.supportedPerRelease(SequenceSet.of(dataset, dataset.select(EmojiStatus.ALL))));
+    }
+
+    @Test
+    public void additionsOfOneRelease() {
+        assertArrayEquals(bits(RAINBOW_FQ, RAINBOW_UQ), releases.additions(E4_0).select(dataset));
+        assertArrayEquals(bits(HEAD_SHAKING_FQ, HEAD_SHAKING_MQ), releases.additions(E15_1).select(dataset));
+        assertArrayEquals(bits(TECHNOLOGIST, SHAKING, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ),
+                releases.changes(E4_0, E15_1).select(dataset));
+        assertEquals(E4_0, releases.introducedIn(dataset.sequenceHash(RAINBOW_UQ)));
+    }
+
+    @Test
+    public void rescoresAPartialResult() {
+        SequenceSet supported = allBut(SMILING_UQ, TECHNOLOGIST, HEAD_SHAKING_MQ);
+        assertArrayEquals(new int[]{2, 5, 6, 8, 8, 9, 10}, releases.supportedPerRelease(supported));
+        assertArrayEquals(new int[]{0, 0, 0, 0, 0, 0, 0}, releases.supportedPerRelease(SequenceSet.EMPTY));
+        assertEquals(-1, releases.newestCompleteRelease(supported));
+        assertEquals(E15_1, releases.newestCompleteRelease(allBut()));
+    }
+
+    @Test
+    public void newestCompleteReleaseStopsAtTheFirstGap() {
+        // E15.0 and E15.1 are complete, but E12.1 is not
+        SequenceSet supported = allBut(TECHNOLOGIST);
+        int[] counts = releases.supportedPerRelease(supported);
+        int[] sizes = releases.sizePerRelease();
+        assertEquals(sizes[E12_1] - 1, counts[E12_1]);
+        assertEquals(E4_0, releases.newestCompleteRelease(supported));
+    }
+
+    @Test
+    public void repeatedSequenceBelongsToItsEarliestRelease() throws Exception {
+        EmojiDataset repeated = TestDatasets.parse("# Version: 15.1\n# group: g\n# subgroup: s\n"
+                + "1F600 ; fully-qualified # x E2.0 listed first with the later version\n"
+                + "1F601 ; fully-qualified # x E2.0 other\n"
+                + "1F600 ; fully-qualified # x E1.0 listed again\n"
+                + "1F602 ; fully-qualified # x E1.0 other\n"
+                + "1F602 ; fully-qualified # x E2.0 listed again\n");
+        EmojiReleases releases = EmojiReleases.of(repeated, EmojiStatus.ALL);
+
+        assertEquals(2, releases.count());
+        assertEquals(0, releases.introducedIn(repeated.sequenceHash(0)));
+        assertEquals(0, releases.introducedIn(repeated.sequenceHash(3)));
+        assertEquals(1, releases.introducedIn(repeated.sequenceHash(1)));
+        assertArrayEquals(new int[]{2, 3}, releases.sizePerRelease());
+        assertEquals(1, releases.additions(1).size());
+    }
+}
@@ -0,0 +1,148 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class EmojiTestParserTest {
+
+    /**
+     * Records every callback as a line of text, so two parses can be compared as a whole.
+     */
+    private static final class Recorder implements EmojiTestParser.Handler {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onVersion(int version) {
+            events.add("version " + EmojiVersions.toString(version));
+        }
+
+        @Override
+        public void onGroup(String name) {
+            events.add("group " + name);
+        }
+
+        @Override
+        public void onSubgroup(String name) {
+            events.add("subgroup " + name);
+        }
+
+        @Override
+        public void onEntry(int[] codepoints, int length, int status, int emojiVersion,
+                            byte[] line, int nameStart, int nameEnd) {
+            StringBuilder sb = new StringBuilder("entry");
+            for (int i = 0; i < length; i++) {
+                sb.append(' ').append(Integer.toHexString(codepoints[i]));
+            }
+            sb.append(" ; ").append(EmojiStatus.name(status))
+                    .append(" ; ").append(EmojiVersions.toString(emojiVersion))
+                    .append(" ; ").append(new String(line, nameStart, nameEnd - nameStart, StandardCharsets.UTF_8));
+            events.add(sb.toString());
+        }
+    }
+
+    private static List<String> parseWhole(byte[] data) throws EmojiTestFormatException {
+        Recorder recorder = new Recorder();
+        EmojiTestParser parser = new EmojiTestParser(recorder);
+        parser.feed(data, 0, data.length);
+        parser.finish();
+        return recorder.events;
+    }
+
+    private static List<String> parseChunked(byte[] data, int[] splits) throws EmojiTestFormatException {
+        Recorder recorder = new Recorder();
+        EmojiTestParser parser = new EmojiTestParser(recorder);
+        int start = 0;
+        for (int split : splits) {
+            parser.feed(data, start, split - start);
+            start = split;
+        }
+        parser.feed(data, start, data.length - start);
+        parser.finish();
+        return recorder.events;
+    }
+
+    @Test
+    public void parsesHeadersAndEntries() throws Exception {
+        List<String> events = parseWhole(TestDatasets.bytes(TestDatasets.SAMPLE));
+        assertEquals("version 15.1", events.get(0));
+        assertEquals("group Smileys & Emotion", events.get(1));
+        assertEquals("subgroup face-smiling", events.get(2));
+        assertEquals("entry 1f600 ; " + EmojiStatus.name(EmojiStatus.FULLY_QUALIFIED) + " ; 1.0 ; grinning face", events.get(3));
+        assertEquals("entry 1f642 200d 2194 ; " + EmojiStatus.name(EmojiStatus.MINIMALLY_QUALIFIED)
+                + " ; 15.1 ; head shaking horizontally", events.get(11));
+    }
+
+    @Test
+    public void fixedChunkSizesMatchWholeInput() throws Exception {
+        byte[] data = TestDatasets.bytes(TestDatasets.SAMPLE);
+        List<String> expected = parseWhole(data);
+        for (int size : new int[]{1, 2, 3, 5, 7, 13, 64, 255, 256, 257}) {
+            int[] splits = new int[(data.length - 1) / size];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = (i + 1) * size;
+            }
+            assertEquals("chunk size " + size, expected, parseChunked(data, splits));
+        }
+    }
+
+    @Test
+    public void randomSplitsMatchWholeInput() throws Exception {
+        byte[] data = TestDatasets.bytes(TestDatasets.SAMPLE);
+        List<String> expected = parseWhole(data);
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            // Split points in ascending order, possibly repeated for empty chunks and inside UTF-8 sequences
+            int[] splits = new int[1 + random.nextInt(40)];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = random.nextInt(data.length + 1);
+            }
+            Arrays.sort(splits);
+            assertEquals("round " + round, expected, parseChunked(data, splits));
+        }
+    }
+
+    @Test
+    public void handlesCrLfAndMissingFinalNewline() throws Exception {
+        String text = TestDatasets.SAMPLE.replace("\n", "\r\n");
+        text = text.substring(0, text.length() - 2);
+        byte[] data = TestDatasets.bytes(text);
+        List<String> expected = parseWhole(TestDatasets.bytes(TestDatasets.SAMPLE));
+        assertEquals(expected, parseWhole(data));
+        assertEquals(expected, parseChunked(data, new int[]{data.length - 1}));
+    }
+
+    @Test
+    public void lineLongerThanInitialBufferSpansChunks() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            sb.append("1F3FB ");
+        }
+        sb.append("; fully-qualified # x E1.0 ");
+        for (int i = 0; i < 100; i++) {
+            sb.append("long name ");
+        }
+        byte[] data = TestDatasets.bytes(sb.append('\n').toString());
+        List<String> expected = parseWhole(data);
+        assertEquals(1, expected.size());
+        assertEquals(expected, parseChunked(data, new int[]{10, 300, 600}));
+    }
+
+    @Test
+    public void reportsMalformedLineNumber() {
+        byte[] data = TestDatasets.bytes("# group: g\n1F600 ; fully-qualified # x\n1F60G ; fully-qualified # y\n");
+        try {
+            parseChunked(data, new int[]{20, 21});
+            fail("Malformed codepoint not reported");
+        } catch (EmojiTestFormatException e) {
+            assertEquals(3, e.getLineNumber());
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class GlyphProbeEngineTest {
+
+    /** Supports every codepoint not divisible by the divisor. */
+    private static GlyphProbe.Factory notDivisibleBy(final int divisor) {
+        return new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> text.codePointAt(0) % divisor != 0;
+            }
+        };
+    }
+
+    private static long[] expected(EmojiDataset dataset, long[] selection, int divisor) {
+        long[] bits = new long[selection.length];
+        for (int entry = 0; entry < dataset.size(); entry++) {
+            if (Bitsets.get(selection, entry) && dataset.codepointAt(entry, 0) % divisor != 0) {
+                Bitsets.set(bits, entry);
+            }
+        }
+        return bits;
+    }
+
+    private final GlyphProbeEngine engine = new GlyphProbeEngine(4);
+
+    @After
+    public void shutDown() {
+        engine.shutdownNow();
+    }
+
+    @Test
+    public void probeAllMatchesEachFactory() throws Exception {
+        EmojiDataset dataset = TestDatasets.synthetic(1000);
+        long[] selection = dataset.select(EmojiStatus.ALL);
+        Bitsets.clear(selection, 5);
+        selection[3] = 0; // A whole block left out
+
+        ProbeResult[] results = engine.probeAll(dataset, selection,
+                new GlyphProbe.Factory[]{notDivisibleBy(3), notDivisibleBy(7)}, null);
+
+        assertEquals(2, results.length);
+        assertArrayEquals(expected(dataset, selection, 3), results[0].supportedBits());
+        assertArrayEquals(expected(dataset, selection, 7), results[1].supportedBits());
+        assertEquals(Bitsets.cardinality(selection), results[0].probedCount());
+        assertEquals(Bitsets.cardinality(expected(dataset, selection, 3)), results[0].supportedCount());
+    }
+
+    @Test
+    public void listenerSeesEveryBlockOnce() throws Exception {
+        EmojiDataset dataset = TestDatasets.synthetic(700);
+        long[] selection = dataset.select(EmojiStatus.ALL);
+        final AtomicLongArray tested = new AtomicLongArray(selection.length);
+        final AtomicLongArray supported = new AtomicLongArray(selection.length);
+        final AtomicInteger maxProbed = new AtomicInteger();
+        ProbeResult result = engine.probe(dataset, selection, notDivisibleBy(3), new GlyphProbeEngine.Listener() {
+            @Override
+            public void onProgress(int probed, int supportedCount, int lastEntry, String lastText) {
+                maxProbed.accumulateAndGet(probed, Math::max);
+            }
+
+            @Override
+            public void onBlock(int word, long testedBits, long supportedBits) {
+                assertEquals(0, tested.getAndSet(word, testedBits));
+                supported.set(word, supportedBits);
+            }
+        });
+
+        for (int word = 0; word < selection.length; word++) {
+            assertEquals(selection[word], tested.get(word));
+            assertEquals(result.supportedBits()[word], supported.get(word));
+        }
+        assertEquals(700, maxProbed.get());
+    }
+
+    @Test
+    public void interruptedWorkerFailsTheRun() throws Exception {
+        EmojiDataset dataset = TestDatasets.synthetic(640);
+        final int interruptAt = dataset.codepointAt(100, 0);
+        GlyphProbe.Factory factory = new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> {
+                    if (text.codePointAt(0) == interruptAt) {
+                        Thread.currentThread().interrupt(); // As shutdownNow() would
+                    }
+                    return true;
+                };
+            }
+        };
+        try {
+            engine.probe(dataset, dataset.select(EmojiStatus.ALL), factory, null);
+            fail("A partial run was returned as complete");
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    @Test
+    public void sessionProbesSubmittedBlocks() throws Exception {
+        EmojiDataset dataset = TestDatasets.synthetic(200);
+        GlyphProbeEngine.Session session = engine.openSession(notDivisibleBy(3), null);
+        long[] selection = new long[Bitsets.words(dataset.size())];
+        for (int word : new int[]{0, 2, 3}) { // Block 1 is skipped
+            String[] texts = new String[64];
+            long mask = 0;
+            for (int bit = 0; bit < 64 && (word << 6) + bit < dataset.size(); bit += 2) {
+                texts[bit] = dataset.toString((word << 6) + bit);
+                mask |= 1L << bit;
+            }
+            selection[word] = mask;
+            session.submit(word, texts, mask);
+        }
+        assertArrayEquals(expected(dataset, selection, 3), session.await(selection.length));
+    }
+
+    @Test
+    public void interruptedSessionBlockFailsAwait() throws Exception {
+        GlyphProbeEngine.Session session = engine.openSession(new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> {
+                    Thread.currentThread().interrupt();
+                    return true;
+                };
+            }
+        }, null);
+        session.submit(0, new String[]{"a", "b"}, 3);
+        try {
+            session.await(1);
+            fail("A partial block was returned as complete");
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+
+    @Test
+    public void cancelledSessionStopsReporting() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger reports = new AtomicInteger();
+        GlyphProbeEngine.Session session = engine.openSession(new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> {
+                    started.countDown();
+                    boolean interrupted = false;
+                    while (true) {
+                        try {
+                            release.await(); // Like a probe that does not notice the interrupt
+                            break;
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                };
+            }
+        }, new GlyphProbeEngine.Listener() {
+            @Override
+            public void onProgress(int probed, int supported, int lastEntry, String lastText) {
+                reports.incrementAndGet();
+            }
+        });
+        session.submit(0, new String[]{"a"}, 1); // One entry per block, so the blocks finish after the release
+        session.submit(1, new String[]{"b"}, 1);
+        started.await();
+        session.cancel();
+        release.countDown();
+        Thread.sleep(200); // Time for the released blocks to report, if they still did
+        assertEquals(0, reports.get());
+    }
+
+    @Test
+    public void cancelledSessionFailsAwait() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        GlyphProbeEngine.Session session = engine.openSession(new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                };
+            }
+        }, null);
+        for (int word = 0; word < 8; word++) {
+            session.submit(word, new String[]{"a", "b"}, 3);
+        }
+        started.await();
+        session.cancel();
+        try {
+            session.await(8);
+            fail("A cancelled session was returned as complete");
+        } catch (InterruptedException e) {
+            assertFalse(Thread.currentThread().isInterrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+}
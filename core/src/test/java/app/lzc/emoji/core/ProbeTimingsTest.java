@@ -0,0 +1,107 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ProbeTimingsTest {
+
+    private long now = 0;
+
+    /**
+     * @return Timings on a fake clock, whose probes take as many nanoseconds as their text says.
+     */
+    private ProbeTimings timings(int slowestCount) {
+        return new ProbeTimings(slowestCount, () -> now);
+    }
+
+    private GlyphProbe recorder(ProbeTimings timings) {
+        return timings.wrap(() -> text -> {
+            now += Long.parseLong(text);
+            return true;
+        }).create();
+    }
+
+    private static void probe(GlyphProbe probe, long... durations) {
+        for (long nanos : durations) {
+            probe.hasGlyph(Long.toString(nanos));
+        }
+    }
+
+    private static void assertSlowest(ProbeTimings.Summary summary, long... expected) {
+        assertEquals(expected.length, summary.slowestCount());
+        for (int rank = 0; rank < expected.length; rank++) {
+            assertEquals(expected[rank], summary.slowestNanos(rank));
+            assertEquals(Long.toString(expected[rank]), summary.slowestText(rank));
+        }
+    }
+
+    @Test
+    public void slowestListsOfAllRecordersAreMerged() {
+        ProbeTimings timings = timings(3);
+        // Each recorder keeps its own three slowest: {40, 30, 7}, {50, 35, 1} and {45, 2}
+        probe(recorder(timings), 5, 40, 7, 30);
+        probe(recorder(timings), 35, 1, 50);
+        probe(recorder(timings), 2, 45);
+
+        ProbeTimings.Summary summary = timings.summarize();
+        assertSlowest(summary, 50, 45, 40);
+        assertEquals(9, summary.count());
+        assertEquals(215, summary.totalNanos());
+        assertEquals(50, summary.maxNanos());
+    }
+
+    @Test
+    public void mergeKeepsShortListsAndTies() {
+        ProbeTimings timings = timings(5);
+        probe(recorder(timings), 3, 9);
+        probe(recorder(timings), 9, 1);
+        assertSlowest(timings.summarize(), 9, 9, 3, 1);
+
+        // The newest of equal durations goes last, and the fastest one falls off a full list
+        timings = timings(2);
+        probe(recorder(timings), 4, 8);
+        probe(recorder(timings), 8, 2);
+        ProbeTimings.Summary summary = timings.summarize();
+        assertSlowest(summary, 8, 8);
+
+        timings = timings(0);
+        probe(recorder(timings), 4, 8);
+        assertEquals(0, timings.summarize().slowestCount());
+        assertEquals(2, timings.summarize().count());
+    }
+
+    @Test
+    public void percentilesAreBucketLimitsCappedAtTheMaximum() {
+        ProbeTimings timings = timings(1);
+        assertEquals(0, timings.summarize().percentileNanos(50));
+
+        probe(recorder(timings), 0, 1, 2, 3, 4);
+        ProbeTimings.Summary summary = timings.summarize();
+        assertEquals(1, summary.bucketCount(0));
+        assertEquals(1, summary.bucketCount(1));
+        assertEquals(2, summary.bucketCount(2)); // [2, 4)
+        assertEquals(1, summary.bucketCount(3)); // 4 starts the next bucket
+        assertEquals(4, ProbeTimings.Summary.bucketLimitNanos(2));
+
+        assertEquals(1, summary.percentileNanos(0));
+        assertEquals(1, summary.percentileNanos(20)); // Rank 1 of 5
+        assertEquals(2, summary.percentileNanos(21)); // Rank 2, rounded up
+        assertEquals(2, summary.percentileNanos(40));
+        assertEquals(4, summary.percentileNanos(60));
+        assertEquals(4, summary.percentileNanos(80));
+        assertEquals(4, summary.percentileNanos(100)); // Bucket limit 8, capped at the maximum
+    }
+
+    @Test
+    public void percentileAboveTheHighestBucketLimit() {
+        ProbeTimings timings = timings(1);
+        probe(recorder(timings), 1000, 1000, 1000, 1500);
+        ProbeTimings.Summary summary = timings.summarize();
+        assertEquals(3, summary.bucketCount(10)); // [512, 1024)
+        assertEquals(1, summary.bucketCount(11));
+        assertEquals(1024, summary.percentileNanos(50));
+        assertEquals(1024, summary.percentileNanos(75));
+        assertEquals(1500, summary.percentileNanos(76));
+    }
+}
@@ -0,0 +1,98 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+public class ProgressChannelTest {
+
+    private final ProgressChannel channel = new ProgressChannel();
+
+    @Test
+    public void countsIncludeCachedEntries() {
+        assertNull(channel.peek());
+        assertNull(channel.poll());
+
+        channel.reset(10, 4, 100);
+        channel.onProgress(5, 2, 20, "a");
+        ProgressChannel.Snapshot snapshot = channel.poll();
+        assertEquals(15, snapshot.probed());
+        assertEquals(6, snapshot.supported());
+        assertEquals(100, snapshot.total());
+        assertEquals("a", snapshot.text());
+        assertNull(channel.poll());
+        assertSame(snapshot, channel.peek());
+    }
+
+    @Test
+    public void laterWorkerStateIsKept() {
+        channel.reset(0, 0, 100);
+        channel.onProgress(8, 3, 40, "b");
+        channel.onProgress(7, 3, 30, "a"); // A slower worker publishing an earlier count
+        assertEquals(8, channel.peek().probed());
+        assertEquals("b", channel.peek().text());
+    }
+
+    @Test
+    public void totalAndCacheHitsOfStreamedRun() {
+        channel.reset(0, 0, ProgressChannel.UNKNOWN_TOTAL);
+        channel.onProgress(64, 60, 63, "x");
+        assertEquals(ProgressChannel.UNKNOWN_TOTAL, channel.peek().total());
+
+        channel.setTotal(1000);
+        channel.addCached(900, 850);
+        assertEquals(964, channel.peek().probed());
+        assertEquals(910, channel.peek().supported());
+        assertEquals(1000, channel.peek().total());
+
+        channel.onProgress(100, 90, 999, "y"); // Workers keep the total and the cached counts
+        ProgressChannel.Snapshot snapshot = channel.poll();
+        assertEquals(1000, snapshot.probed());
+        assertEquals(940, snapshot.supported());
+        assertEquals(1000, snapshot.total());
+
+        channel.reset(5, 5, 10); // A new run starts over, keeping the last text
+        assertEquals(5, channel.peek().probed());
+        assertEquals("y", channel.peek().text());
+    }
+
+    @Test
+    public void cachedCountsAreNotLostWhileWorkersPublish() throws Exception {
+        channel.reset(0, 0, ProgressChannel.UNKNOWN_TOTAL);
+        final int workers = 4;
+        final int steps = 20_000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[workers];
+        for (int w = 0; w < workers; w++) {
+            final int offset = w;
+            threads[w] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = offset; i < steps; i += workers) {
+                    channel.onProgress(i + 1, 0, i, null);
+                }
+            });
+            threads[w].start();
+        }
+        start.countDown();
+        for (int i = 0; i < 100; i++) {
+            channel.addCached(1, 1);
+        }
+        channel.setTotal(steps + 100);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        ProgressChannel.Snapshot snapshot = channel.peek();
+        assertEquals(100, snapshot.supported());
+        assertEquals(steps + 100, snapshot.total());
+        assertEquals(steps + 100, snapshot.probed());
+    }
+}
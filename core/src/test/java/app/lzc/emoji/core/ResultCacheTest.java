@@ -0,0 +1,97 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+public class ResultCacheTest {
+
+    private static final String DEVICE = "google/oryx/oryx:14/AP1A.240305.019/11445699:user/release-keys|fonts:1a2b";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void matchesOnlyTheDeviceItWasWrittenFor() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] probed = dataset.select(EmojiStatus.ALL);
+        File file = folder.newFile("results.bin");
+        ResultCache.of(DEVICE, dataset, probed, new long[probed.length]).write(file);
+
+        ResultCache cache = ResultCache.read(file);
+        assertTrue(cache.matchesDevice(DEVICE));
+        assertFalse(cache.matchesDevice(DEVICE + "|fonts:ffff"));
+        assertFalse(cache.matchesDevice(DEVICE.replace("AP1A", "AP2A")));
+        assertFalse(cache.matchesDevice(""));
+    }
+
+    @Test
+    public void roundTripKeepsResultsPerSequence() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] probed = dataset.select(EmojiStatus.ALL);
+        Bitsets.clear(probed, TestDatasets.SHAKING); // Never probed
+        long[] supported = new long[probed.length];
+        Bitsets.set(supported, TestDatasets.GRINNING);
+        Bitsets.set(supported, TestDatasets.RAINBOW_FQ);
+        File file = folder.newFile("results.bin");
+        ResultCache.of(DEVICE, dataset, probed, supported).write(file);
+
+        ResultCache cache = ResultCache.read(file);
+        assertTrue(cache.matchesDataset(dataset));
+        assertEquals(1, cache.lookup(dataset.sequenceHash(TestDatasets.GRINNING)));
+        assertEquals(1, cache.lookup(dataset.sequenceHash(TestDatasets.RAINBOW_FQ)));
+        assertEquals(0, cache.lookup(dataset.sequenceHash(TestDatasets.RAINBOW_UQ)));
+        assertEquals(-1, cache.lookup(dataset.sequenceHash(TestDatasets.SHAKING)));
+
+        long[] resolved = new long[probed.length];
+        long[] remaining = cache.resolve(dataset, dataset.select(EmojiStatus.ALL), resolved);
+        long[] expectedRemaining = new long[probed.length];
+        Bitsets.set(expectedRemaining, TestDatasets.SHAKING);
+        assertArrayEquals(expectedRemaining, remaining);
+        assertArrayEquals(supported, resolved);
+    }
+
+    @Test
+    public void resultsCarryOverToAnotherDataset() throws Exception {
+        EmojiDataset older = TestDatasets.parse(TestDatasets.SAMPLE.replace("# Version: 15.1", "# Version: 15.0"));
+        EmojiDataset newer = TestDatasets.sample();
+        long[] probed = older.select(EmojiStatus.ALL);
+        long[] supported = probed.clone();
+        ResultCache cache = ResultCache.of(DEVICE, older, probed, supported);
+
+        assertFalse(cache.matchesDataset(newer));
+        assertEquals(1, cache.lookup(newer.sequenceHash(TestDatasets.TECHNOLOGIST)));
+    }
+
+    @Test
+    public void missingFileReadsAsNull() throws Exception {
+        assertNull(ResultCache.read(new File(folder.getRoot(), "absent.bin")));
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] probed = dataset.select(EmojiStatus.ALL);
+        File file = folder.newFile("results.bin");
+        ResultCache.of(DEVICE, dataset, probed, probed).write(file);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        try {
+            ResultCache.read(file);
+            fail("Truncated cache accepted");
+        } catch (EmojiTestFormatException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_FQ;
+import static app.lzc.emoji.core.TestDatasets.ROLLING;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static app.lzc.emoji.core.TestDatasets.SMILING_FQ;
+import static app.lzc.emoji.core.TestDatasets.WAVING;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+public class RunCheckpointTest {
+
+    private static final String DEVICE = "device";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private EmojiDataset dataset;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        dataset = TestDatasets.sample();
+        file = new File(folder.getRoot(), "results.bin");
+    }
+
+    private long[] bits(int... entries) {
+        long[] bits = new long[Bitsets.words(dataset.size())];
+        for (int entry : entries) {
+            Bitsets.set(bits, entry);
+        }
+        return bits;
+    }
+
+    private int lookup(ResultCache cache, int entry) {
+        return cache.lookup(dataset.sequenceHash(entry));
+    }
+
+    @Test
+    public void checkpointResolvesTheCollectedEntries() throws Exception {
+        RunCheckpoint checkpoint = new RunCheckpoint(file, DEVICE, null);
+        ResultCollector collector = new ResultCollector(null);
+        checkpoint.track(dataset, collector);
+        collector.onBlock(0, bits(GRINNING, ROLLING, SMILING_FQ)[0], bits(GRINNING, SMILING_FQ)[0]);
+        assertTrue(checkpoint.save());
+
+        ResultCache cache = ResultCache.read(file);
+        assertTrue(cache.matchesDevice(DEVICE));
+        assertTrue(cache.matchesDataset(dataset));
+        assertEquals(1, lookup(cache, GRINNING));
+        assertEquals(0, lookup(cache, ROLLING));
+        assertEquals(1, lookup(cache, SMILING_FQ));
+        // Entries the run has not reached are unknown, not unsupported
+        assertEquals(-1, lookup(cache, SHAKING));
+        assertEquals(-1, lookup(cache, RAINBOW_FQ));
+
+        long[] supported = new long[Bitsets.words(dataset.size())];
+        long[] remaining = cache.resolve(dataset, dataset.select(EmojiStatus.ALL), supported);
+        long[] expectedRemaining = dataset.select(EmojiStatus.ALL);
+        Bitsets.clear(expectedRemaining, GRINNING);
+        Bitsets.clear(expectedRemaining, ROLLING);
+        Bitsets.clear(expectedRemaining, SMILING_FQ);
+        assertArrayEquals(expectedRemaining, remaining);
+        assertArrayEquals(bits(GRINNING, SMILING_FQ), supported);
+    }
+
+    @Test
+    public void untestedEntriesKeepThePreviousResults() throws Exception {
+        ResultCache previous = ResultCache.of(DEVICE, dataset, bits(GRINNING, SHAKING, HEAD_SHAKING_FQ, WAVING),
+                bits(GRINNING, SHAKING, WAVING));
+        RunCheckpoint checkpoint = new RunCheckpoint(file, DEVICE, previous);
+        ResultCollector collector = new ResultCollector(null);
+        checkpoint.track(dataset, collector);
+        // The run finds the grinning face missing now, e.g. after a font update
+        collector.onBlock(0, bits(GRINNING, ROLLING)[0], 0);
+        assertTrue(checkpoint.save());
+
+        ResultCache cache = ResultCache.read(file);
+        assertEquals(0, lookup(cache, GRINNING));
+        assertEquals(0, lookup(cache, ROLLING));
+        assertEquals(1, lookup(cache, SHAKING));
+        assertEquals(0, lookup(cache, HEAD_SHAKING_FQ));
+        assertEquals(1, lookup(cache, WAVING));
+        assertEquals(-1, lookup(cache, SMILING_FQ));
+    }
+
+    @Test
+    public void savesOnlyNewResultsWhileOpen() throws Exception {
+        RunCheckpoint checkpoint = new RunCheckpoint(file, DEVICE, null);
+        assertFalse(checkpoint.save()); // Nothing tracked yet
+        assertFalse(file.exists());
+
+        ResultCollector collector = new ResultCollector(null);
+        checkpoint.track(dataset, collector);
+        assertTrue(checkpoint.save());
+        assertFalse(checkpoint.save());
+
+        collector.addAll(bits(GRINNING), bits(GRINNING));
+        assertTrue(checkpoint.save());
+        assertEquals(1, lookup(ResultCache.read(file), GRINNING));
+
+        checkpoint.close();
+        collector.onBlock(0, bits(ROLLING)[0], bits(ROLLING)[0]);
+        assertFalse(checkpoint.save());
+        assertEquals(-1, lookup(ResultCache.read(file), ROLLING));
+    }
+}
@@ -0,0 +1,55 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class RunMetricsTest {
+
+    private static int occurrences(String text, String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void stageIsRecordedOnce() throws Exception {
+        RunMetrics metrics = new RunMetrics(AllocationCounter.NONE);
+        RunMetrics.Stage parse = metrics.stage("parse");
+        try (RunMetrics.Stage sweep = metrics.stage("sweep")) {
+            parse.close();
+        }
+        parse.close();
+
+        StringBuilder report = new StringBuilder();
+        metrics.writeReport(report, Collections.singletonMap("device", "test"));
+        String json = report.toString();
+        assertEquals(1, occurrences(json, "\"parse\""));
+        assertEquals(1, occurrences(json, "\"sweep\""));
+        assertTrue(json.indexOf("\"parse\"") < json.indexOf("\"sweep\"")); // In closing order
+        assertFalse(json.contains("allocatedBytes"));
+
+        String summary = metrics.summary();
+        assertEquals(1, occurrences(summary, "parse"));
+        assertEquals(1, occurrences(summary, "sweep"));
+    }
+
+    @Test
+    public void allocationIsTheDifferenceOfTheCounter() throws Exception {
+        final long[] allocated = {1000};
+        RunMetrics metrics = new RunMetrics(() -> allocated[0]);
+        try (RunMetrics.Stage stage = metrics.stage("load")) {
+            allocated[0] += 4096;
+        }
+        StringBuilder report = new StringBuilder();
+        metrics.writeReport(report, Collections.<String, String>emptyMap());
+        assertTrue(report.toString(), report.toString().contains("\"allocatedBytes\":4096"));
+        assertTrue(metrics.summary().contains(" 4 KB"));
+    }
+}
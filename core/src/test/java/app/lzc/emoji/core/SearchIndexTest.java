@@ -0,0 +1,75 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_FQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_UQ;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static app.lzc.emoji.core.TestDatasets.SKIN_TONE;
+import static app.lzc.emoji.core.TestDatasets.SMILING_FQ;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static app.lzc.emoji.core.TestDatasets.TECHNOLOGIST;
+import static app.lzc.emoji.core.TestDatasets.WAVING_MEDIUM;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+    private long[] matches;
+
+    @Before
+    public void setUp() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        index = SearchIndex.build(dataset);
+        matches = new long[Bitsets.words(index.size())];
+    }
+
+    private void assertMatches(String query, boolean wordPrefix, int... expected) {
+        long[] bits = new long[matches.length];
+        for (int entry : expected) {
+            Bitsets.set(bits, entry);
+        }
+        assertEquals(query, expected.length, index.search(query, wordPrefix, matches));
+        assertArrayEquals(query, bits, matches);
+    }
+
+    @Test
+    public void substringMatchesInsideWords() {
+        assertMatches("aking", false, SHAKING, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ);
+        assertMatches("ace", false, GRINNING, SMILING_FQ, SMILING_UQ, SHAKING);
+        assertMatches("flag", false, RAINBOW_FQ, RAINBOW_UQ);
+        assertMatches("SKIN tone", false, WAVING_MEDIUM, TECHNOLOGIST, SKIN_TONE);
+        assertMatches("xyz", false);
+    }
+
+    @Test
+    public void wordPrefixMatchesOnlyAtWordStarts() {
+        assertMatches("aking", true);
+        assertMatches("ace", true);
+        assertMatches("face", true, GRINNING, SMILING_FQ, SMILING_UQ, SHAKING);
+        assertMatches("shak", true, SHAKING, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ);
+        assertMatches("medium", true, WAVING_MEDIUM, TECHNOLOGIST, SKIN_TONE);
+    }
+
+    @Test
+    public void hexMatchesWholeLeadingCodepoints() {
+        assertMatches("1f3fd", false, WAVING_MEDIUM, TECHNOLOGIST, SKIN_TONE);
+        assertMatches("U+1F3FD", false, WAVING_MEDIUM, TECHNOLOGIST, SKIN_TONE);
+        assertMatches("1f642 200d", false, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ);
+        assertMatches("1f3f", false, WAVING_MEDIUM, TECHNOLOGIST, SKIN_TONE, RAINBOW_FQ, RAINBOW_UQ);
+        assertMatches("263a", true, SMILING_FQ, SMILING_UQ);
+        assertMatches("f3fd", false); // Not the start of a codepoint
+    }
+
+    @Test
+    public void emptyQueryMatchesNothing() {
+        matches[0] = -1L;
+        assertMatches("", false);
+        assertMatches("  ", true);
+    }
+}
@@ -0,0 +1,102 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_FQ;
+import static app.lzc.emoji.core.TestDatasets.ROLLING;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static app.lzc.emoji.core.TestDatasets.SMILING_FQ;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static app.lzc.emoji.core.TestDatasets.WAVING;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SequenceSetTest {
+
+    private EmojiDataset dataset;
+
+    @Before
+    public void setUp() throws Exception {
+        dataset = TestDatasets.sample();
+    }
+
+    private long[] bits(int... entries) {
+        long[] bits = new long[Bitsets.words(dataset.size())];
+        for (int entry : entries) {
+            Bitsets.set(bits, entry);
+        }
+        return bits;
+    }
+
+    private SequenceSet set(int... entries) {
+        return SequenceSet.of(dataset, bits(entries));
+    }
+
+    @Test
+    public void minusAndIntersect() {
+        SequenceSet a = set(GRINNING, SMILING_FQ, SMILING_UQ, SHAKING, WAVING);
+        SequenceSet b = set(SMILING_UQ, SHAKING, HEAD_SHAKING_FQ, RAINBOW_FQ);
+
+        assertArrayEquals(bits(GRINNING, SMILING_FQ, WAVING), a.minus(b).select(dataset));
+        assertArrayEquals(bits(HEAD_SHAKING_FQ, RAINBOW_FQ), b.minus(a).select(dataset));
+        assertArrayEquals(bits(SMILING_UQ, SHAKING), a.intersect(b).select(dataset));
+        assertArrayEquals(bits(SMILING_UQ, SHAKING), b.intersect(a).select(dataset));
+        assertEquals(2, a.intersectionSize(b));
+        assertArrayEquals(bits(GRINNING, SMILING_FQ, SMILING_UQ, SHAKING, WAVING, HEAD_SHAKING_FQ, RAINBOW_FQ),
+                a.union(b).select(dataset));
+        assertEquals(7, a.union(b).size());
+    }
+
+    @Test
+    public void emptyAndSelfOperations() {
+        SequenceSet a = set(GRINNING, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ);
+
+        assertEquals(0, a.minus(a).size());
+        assertEquals(3, a.intersect(a).size());
+        assertEquals(3, a.minus(SequenceSet.EMPTY).size());
+        assertEquals(0, a.intersect(SequenceSet.EMPTY).size());
+        assertEquals(0, SequenceSet.EMPTY.minus(a).size());
+        assertEquals(3, SequenceSet.EMPTY.union(a).size());
+    }
+
+    @Test
+    public void variantsAreDistinctSequences() {
+        SequenceSet a = set(SMILING_FQ, SMILING_UQ);
+
+        assertEquals(2, a.size());
+        assertTrue(a.contains(dataset.sequenceHash(SMILING_UQ)));
+        assertFalse(a.contains(dataset.sequenceHash(GRINNING)));
+    }
+
+    @Test
+    public void subsets() {
+        SequenceSet a = set(GRINNING, SHAKING);
+        SequenceSet b = set(GRINNING, SHAKING, WAVING);
+
+        assertTrue(a.isSubsetOf(b));
+        assertFalse(b.isSubsetOf(a));
+        assertTrue(SequenceSet.EMPTY.isSubsetOf(a));
+        assertTrue(a.isSubsetOf(a));
+    }
+
+    @Test
+    public void comparesAcrossDatasets() throws Exception {
+        // The same file without its first two entries, so every entry index shifts
+        EmojiDataset older = TestDatasets.parse(TestDatasets.SAMPLE
+                .replaceAll("(?m)^1F600 .*\\n", "").replaceAll("(?m)^1F923 .*\\n", ""));
+        SequenceSet all = SequenceSet.of(dataset, dataset.select(EmojiStatus.ALL));
+        SequenceSet olderAll = SequenceSet.of(older, older.select(EmojiStatus.ALL));
+
+        assertTrue(olderAll.isSubsetOf(all));
+        assertArrayEquals(bits(GRINNING, ROLLING), all.minus(olderAll).select(dataset));
+        long[] shaking = new long[Bitsets.words(older.size())];
+        Bitsets.set(shaking, SHAKING - 2);
+        assertArrayEquals(shaking, set(SHAKING).intersect(olderAll).select(older));
+    }
+}
@@ -0,0 +1,79 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.GRINNING;
+import static app.lzc.emoji.core.TestDatasets.ROLLING;
+import static app.lzc.emoji.core.TestDatasets.SHAKING;
+import static app.lzc.emoji.core.TestDatasets.SMILING_FQ;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamingProbeTest {
+
+    private static final String DEVICE = "device";
+
+    private final GlyphProbeEngine engine = new GlyphProbeEngine(2);
+
+    @After
+    public void shutDown() {
+        engine.shutdownNow();
+    }
+
+    private static long[] bits(int... entries) {
+        long[] bits = new long[1];
+        for (int entry : entries) {
+            Bitsets.set(bits, entry);
+        }
+        return bits;
+    }
+
+    @Test
+    public void cacheHitsAndVariantsAreResolvedWithoutProbing() throws Exception {
+        EmojiDataset sample = TestDatasets.sample();
+        // An earlier run probed the smileys only; the grinning face and the shaking face were supported
+        ResultCache cache = ResultCache.of(DEVICE, sample, bits(GRINNING, ROLLING, SMILING_FQ, SHAKING),
+                bits(GRINNING, SHAKING));
+        final AtomicInteger probes = new AtomicInteger();
+        GlyphProbe.Factory factory = new GlyphProbe.Factory() {
+            @Override
+            public GlyphProbe create() {
+                return text -> {
+                    probes.incrementAndGet();
+                    return true;
+                };
+            }
+        };
+        ProgressChannel progress = new ProgressChannel();
+        progress.reset(0, 0, ProgressChannel.UNKNOWN_TOTAL);
+        StreamingProbe streaming = new StreamingProbe(engine, EmojiStatus.ALL, cache, factory, progress);
+        EmojiTestParser.parse(new ByteArrayInputStream(TestDatasets.bytes(TestDatasets.SAMPLE)), streaming);
+        EmojiDataset dataset = streaming.finish();
+
+        assertArrayEquals(bits(GRINNING, ROLLING, SMILING_FQ, SHAKING), streaming.cachedEntries());
+        assertArrayEquals(bits(GRINNING, SHAKING), streaming.cachedSupported());
+        // The four cache hits, plus the variants SMILING_UQ, HEAD_SHAKING_MQ and RAINBOW_UQ
+        assertEquals(7, streaming.resolvedCount());
+
+        ProbeResult result = streaming.await();
+        assertEquals(dataset.size() - 7, probes.get());
+        long[] supported = dataset.select(EmojiStatus.ALL);
+        Bitsets.clear(supported, ROLLING);
+        Bitsets.clear(supported, SMILING_FQ);
+        Bitsets.clear(supported, SMILING_UQ); // Takes the cached result of SMILING_FQ
+        assertArrayEquals(supported, result.supportedBits());
+
+        // The counts the view model publishes once the file is parsed
+        progress.setTotal(Bitsets.cardinality(streaming.selection()));
+        progress.addCached(streaming.resolvedCount(), Bitsets.cardinality(streaming.cachedSupported()));
+        ProgressChannel.Snapshot snapshot = progress.peek();
+        assertEquals(dataset.size(), snapshot.total());
+        assertEquals(dataset.size(), snapshot.probed());
+        assertEquals(dataset.size() - 7 + 2, snapshot.supported()); // Variants are only counted at the end
+    }
+}
@@ -0,0 +1,179 @@
+package app.lzc.emoji.core;
+
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_FQ;
+import static app.lzc.emoji.core.TestDatasets.HEAD_SHAKING_MQ;
+import static app.lzc.emoji.core.TestDatasets.RAINBOW_UQ;
+import static app.lzc.emoji.core.TestDatasets.SKIN_TONE;
+import static app.lzc.emoji.core.TestDatasets.SMILING_UQ;
+import static app.lzc.emoji.core.TestDatasets.TECHNOLOGIST;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SupportIndexTest {
+
+    private static int versionId(EmojiDataset dataset, int major, int minor) {
+        for (int id = 0; id < dataset.versionCount(); id++) {
+            if (dataset.version(id) == EmojiVersions.encode(major, minor)) {
+                return id;
+            }
+        }
+        throw new AssertionError("No version " + major + "." + minor);
+    }
+
+    private static int groupId(EmojiDataset dataset, String name) {
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            if (dataset.groupName(id).equals(name)) {
+                return id;
+            }
+        }
+        throw new AssertionError("No group " + name);
+    }
+
+    private static int subgroupId(EmojiDataset dataset, String name) {
+        for (int id = 0; id < dataset.subgroupCount(); id++) {
+            if (dataset.subgroupName(id).equals(name)) {
+                return id;
+            }
+        }
+        throw new AssertionError("No subgroup " + name);
+    }
+
+    /**
+     * @return All tested entries of a dataset supported except the given ones.
+     */
+    private static long[] allBut(EmojiDataset dataset, int... entries) {
+        long[] supported = dataset.select(EmojiStatus.ALL);
+        for (int entry : entries) {
+            Bitsets.clear(supported, entry);
+        }
+        return supported;
+    }
+
+    /**
+     * @param counts Pairs of an emoji major version and a number of entries of that version.
+     * @return A dataset of single-codepoint entries with those versions, in that order.
+     */
+    private static EmojiDataset versions(int... counts) throws Exception {
+        StringBuilder sb = new StringBuilder("# Version: 15.1\n# group: g\n# subgroup: s\n");
+        int codepoint = 0x1F000;
+        for (int i = 0; i < counts.length; i += 2) {
+            for (int k = 0; k < counts[i + 1]; k++) {
+                sb.append(Integer.toHexString(codepoint++).toUpperCase())
+                        .append(" ; fully-qualified # x E").append(counts[i]).append(".0 entry\n");
+            }
+        }
+        return TestDatasets.parse(sb.toString());
+    }
+
+    @Test
+    public void countsPerVersionGroupAndSubgroup() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] selection = dataset.select(EmojiStatus.ALL);
+        SupportIndex index = SupportIndex.build(dataset, selection,
+                allBut(dataset, SMILING_UQ, HEAD_SHAKING_FQ, HEAD_SHAKING_MQ, TECHNOLOGIST, RAINBOW_UQ));
+
+        assertEquals(13, index.total());
+        assertEquals(8, index.supported());
+
+        int e06 = versionId(dataset, 0, 6);
+        assertEquals(3, index.versionTotal(e06));
+        assertEquals(2, index.versionSupported(e06));
+        assertEquals(3, index.versionTotal(versionId(dataset, 1, 0)));
+        assertEquals(3, index.versionSupported(versionId(dataset, 1, 0)));
+        assertEquals(2, index.versionTotal(versionId(dataset, 15, 1)));
+        assertEquals(0, index.versionSupported(versionId(dataset, 15, 1)));
+        assertEquals(1, index.versionTotal(versionId(dataset, 12, 1)));
+
+        int smileys = groupId(dataset, "Smileys & Emotion");
+        assertEquals(7, index.groupTotal(smileys));
+        assertEquals(4, index.groupSupported(smileys));
+        assertEquals(3, index.groupTotal(groupId(dataset, "People & Body")));
+        assertEquals(2, index.groupSupported(groupId(dataset, "People & Body")));
+        assertEquals(2, index.groupTotal(groupId(dataset, "Flags")));
+        assertEquals(1, index.groupSupported(groupId(dataset, "Flags")));
+
+        int neutral = subgroupId(dataset, "face-neutral-skeptical");
+        assertEquals(3, index.subgroupTotal(neutral));
+        assertEquals(1, index.subgroupSupported(neutral));
+        assertEquals(1, index.subgroupTotal(subgroupId(dataset, "skin-tone")));
+        assertEquals(1, index.subgroupSupported(subgroupId(dataset, "skin-tone")));
+    }
+
+    @Test
+    public void onlySelectedEntriesAreCounted() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] selection = dataset.select(EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED));
+        SupportIndex index = SupportIndex.build(dataset, selection, allBut(dataset));
+
+        assertEquals(Bitsets.cardinality(selection), index.total());
+        assertEquals(index.total(), index.supported());
+        assertEquals(0, index.groupTotal(groupId(dataset, "Component")));
+        assertEquals(1, index.versionTotal(versionId(dataset, 15, 1)));
+    }
+
+    @Test
+    public void builderMatchesBuild() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] selection = dataset.select(EmojiStatus.ALL);
+        long[] supported = allBut(dataset, SMILING_UQ, SKIN_TONE);
+        SupportIndex.Builder first = new SupportIndex.Builder(dataset);
+        SupportIndex.Builder second = new SupportIndex.Builder(dataset);
+        for (int entry = 0; entry < dataset.size(); entry++) {
+            (entry % 2 == 0 ? first : second).add(entry, Bitsets.get(supported, entry));
+        }
+        SupportIndex merged = first.merge(second).build();
+        SupportIndex built = SupportIndex.build(dataset, selection, supported);
+
+        assertEquals(built.total(), merged.total());
+        assertEquals(built.supported(), merged.supported());
+        for (int id = 0; id < dataset.versionCount(); id++) {
+            assertEquals(built.versionSupported(id), merged.versionSupported(id));
+        }
+        for (int id = 0; id < dataset.subgroupCount(); id++) {
+            assertEquals(built.subgroupSupported(id), merged.subgroupSupported(id));
+        }
+    }
+
+    @Test
+    public void versionAtExactlyTheThresholdIsSupported() throws Exception {
+        EmojiDataset dataset = versions(12, 10, 13, 10);
+        long[] selection = dataset.select(EmojiStatus.ALL);
+
+        // 9 of 10 E13.0 entries: exactly 90%
+        SupportIndex index = SupportIndex.build(dataset, selection, allBut(dataset, 19));
+        assertEquals(EmojiVersions.encode(13, 0), index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+
+        // 8 of 10: below, so the device supports E12.0
+        index = SupportIndex.build(dataset, selection, allBut(dataset, 18, 19));
+        assertEquals(EmojiVersions.encode(12, 0), index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+
+        // Nothing reaches it
+        index = SupportIndex.build(dataset, selection, allBut(dataset, 0, 1, 18, 19));
+        assertEquals(EmojiVersions.UNKNOWN, index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+        assertEquals(EmojiVersions.encode(13, 0), index.highestSupportedVersion(0.8));
+    }
+
+    @Test
+    public void newestVersionAboveThresholdWinsOverAGap() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] selection = dataset.select(EmojiStatus.ALL);
+
+        // E12.1 is entirely missing, yet E15.0 and E15.1 are supported
+        SupportIndex index = SupportIndex.build(dataset, selection, allBut(dataset, TECHNOLOGIST));
+        assertEquals(EmojiVersions.encode(15, 1), index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+
+        // Half of E15.1 is not enough; E15.0 is the newest complete one
+        index = SupportIndex.build(dataset, selection, allBut(dataset, HEAD_SHAKING_MQ));
+        assertEquals(EmojiVersions.encode(15, 0), index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+        assertEquals(EmojiVersions.encode(15, 1), index.highestSupportedVersion(0.5));
+    }
+
+    @Test
+    public void emptySelectionHasNoVersion() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        SupportIndex index = SupportIndex.build(dataset, new long[1], allBut(dataset));
+        assertEquals(0, index.total());
+        assertEquals(EmojiVersions.UNKNOWN, index.highestSupportedVersion(SupportIndex.DEFAULT_VERSION_COVERAGE));
+    }
+}
@@ -0,0 +1,108 @@
+package app.lzc.emoji.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+
+public class SupportReportTest {
+
+    private static final String DEVICE = "samsung/dm3qxxx/dm3q:14/UP1A.231005.007/S918BXXS3BWK5:user/release-keys|fonts:77c0";
+
+    private static byte[] encode(SupportReport... reports) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (SupportReport report : reports) {
+            report.write(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() throws Exception {
+        EmojiDataset dataset = TestDatasets.synthetic(150); // More than two words of bits
+        int mask = EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT);
+        long[] supported = new long[Bitsets.words(dataset.size())];
+        for (int entry = 0; entry < dataset.size(); entry += 3) {
+            Bitsets.set(supported, entry);
+        }
+        SupportReport first = SupportReport.of(DEVICE, dataset, mask, supported);
+        SupportReport second = SupportReport.of("other", TestDatasets.sample(), EmojiStatus.ALL,
+                new long[1]);
+        byte[] encoded = encode(first, second);
+        assertEquals(first.encodedLength() + second.encodedLength(), encoded.length);
+
+        DataInputStream in = input(encoded);
+        SupportReport read = SupportReport.read(in);
+        assertEquals(dataset.fingerprint(), read.datasetFingerprint());
+        assertEquals(dataset.unicodeVersion(), read.unicodeVersion());
+        assertEquals(mask, read.statusMask());
+        assertEquals(SupportReport.hashDeviceKey(DEVICE), read.deviceHash());
+        assertEquals(150, read.bitCount());
+        assertArrayEquals(supported, read.bits());
+
+        read = SupportReport.read(in);
+        assertEquals(SupportReport.hashDeviceKey("other"), read.deviceHash());
+        assertEquals(TestDatasets.sample().size(), read.bitCount());
+        assertEquals(0, Bitsets.cardinality(read.bits()));
+        assertNull(SupportReport.read(in));
+    }
+
+    @Test
+    public void bitsFollowTheTestedEntries() throws Exception {
+        EmojiDataset dataset = TestDatasets.sample();
+        long[] supported = new long[1];
+        Bitsets.set(supported, TestDatasets.SMILING_UQ); // Not tested, so not reported
+        Bitsets.set(supported, TestDatasets.RAINBOW_FQ);
+        SupportReport report = SupportReport.of(DEVICE, dataset,
+                EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED), supported);
+
+        int fullyQualified = Bitsets.cardinality(dataset.select(EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED)));
+        assertEquals(fullyQualified, report.bitCount());
+        long[] expected = new long[1];
+        Bitsets.set(expected, fullyQualified - 1); // The rainbow flag is the last fully-qualified entry
+        assertArrayEquals(expected, SupportReport.read(input(encode(report))).bits());
+    }
+
+    @Test
+    public void emptyStreamHasNoReport() throws Exception {
+        assertNull(SupportReport.read(input(new byte[0])));
+    }
+
+    @Test
+    public void rejectsTruncatedReport() throws Exception {
+        byte[] encoded = encode(SupportReport.of(DEVICE, TestDatasets.synthetic(100), EmojiStatus.ALL,
+                new long[2]));
+        for (int length : new int[]{1, 3, SupportReport.HEADER_BYTES - 1, SupportReport.HEADER_BYTES, encoded.length - 1}) {
+            try {
+                SupportReport.read(input(Arrays.copyOf(encoded, length)));
+                fail("Accepted " + length + " of " + encoded.length + " bytes");
+            } catch (EmojiTestFormatException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsOtherData() throws Exception {
+        try {
+            SupportReport.read(input(TestDatasets.bytes(TestDatasets.SAMPLE)));
+            fail("Read text as a report");
+        } catch (EmojiTestFormatException e) {
+            // Expected
+        }
+    }
+}
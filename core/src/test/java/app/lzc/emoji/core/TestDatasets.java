@@ -0,0 +1,94 @@
+package app.lzc.emoji.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small emoji-test.txt in the real format, with the cases the tests rely on: several groups
+ * and versions, multi-codepoint sequences, FE0F variants of one emoji and a component.
+ */
+final class TestDatasets {
+
+    static final String SAMPLE = ""
+            + "# emoji-test.txt\n"
+            + "# Version: 15.1\n"
+            + "\n"
+            + "# group: Smileys & Emotion\n"
+            + "\n"
+            + "# subgroup: face-smiling\n"
+            + "1F600                                                  ; fully-qualified     # 😀 E1.0 grinning face\n"
+            + "1F923                                                  ; fully-qualified     # 🤣 E3.0 rolling on the floor laughing\n"
+            + "\n"
+            + "# subgroup: face-affection\n"
+            + "263A FE0F                                              ; fully-qualified     # ☺️ E0.6 smiling face\n"
+            + "263A                                                   ; unqualified         # ☺ E0.6 smiling face\n"
+            + "\n"
+            + "# subgroup: face-neutral-skeptical\n"
+            + "1FAE8                                                  ; fully-qualified     # 🫨 E15.0 shaking face\n"
+            + "1F642 200D 2194 FE0F                                   ; fully-qualified     # 🙂‍↔️ E15.1 head shaking horizontally\n"
+            + "1F642 200D 2194                                        ; minimally-qualified # 🙂‍↔ E15.1 head shaking horizontally\n"
+            + "\n"
+            + "# group: People & Body\n"
+            + "\n"
+            + "# subgroup: hand-fingers-open\n"
+            + "1F44B                                                  ; fully-qualified     # 👋 E0.6 waving hand\n"
+            + "1F44B 1F3FD                                            ; fully-qualified     # 👋🏽 E1.0 waving hand: medium skin tone\n"
+            + "\n"
+            + "# subgroup: person-role\n"
+            + "1F9D1 1F3FD 200D 1F4BB                                 ; fully-qualified     # 🧑🏽‍💻 E12.1 technologist: medium skin tone\n"
+            + "\n"
+            + "# group: Component\n"
+            + "\n"
+            + "# subgroup: skin-tone\n"
+            + "1F3FD                                                  ; component           # 🏽 E1.0 medium skin tone\n"
+            + "\n"
+            + "# group: Flags\n"
+            + "\n"
+            + "# subgroup: flag\n"
+            + "1F3F3 FE0F 200D 1F308                                  ; fully-qualified     # 🏳️‍🌈 E4.0 rainbow flag\n"
+            + "1F3F3 200D 1F308                                       ; unqualified         # 🏳‍🌈 E4.0 rainbow flag\n";
+
+    // Entry indexes of SAMPLE
+    static final int GRINNING = 0;
+    static final int ROLLING = 1;
+    static final int SMILING_FQ = 2;
+    static final int SMILING_UQ = 3;
+    static final int SHAKING = 4;
+    static final int HEAD_SHAKING_FQ = 5;
+    static final int HEAD_SHAKING_MQ = 6;
+    static final int WAVING = 7;
+    static final int WAVING_MEDIUM = 8;
+    static final int TECHNOLOGIST = 9;
+    static final int SKIN_TONE = 10;
+    static final int RAINBOW_FQ = 11;
+    static final int RAINBOW_UQ = 12;
+
+    private TestDatasets() {
+    }
+
+    static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static EmojiDataset parse(String text) throws IOException {
+        return EmojiDataset.parse(new ByteArrayInputStream(bytes(text)));
+    }
+
+    static EmojiDataset sample() throws IOException {
+        return parse(SAMPLE);
+    }
+
+    /**
+     * @param size Number of entries.
+     * @return A dataset of single-codepoint, fully-qualified entries U+1F000 upwards, one group.
+     */
+    static EmojiDataset synthetic(int size) throws IOException {
+        StringBuilder sb = new StringBuilder("# Version: 15.1\n# group: g\n# subgroup: s\n");
+        for (int i = 0; i < size; i++) {
+            sb.append(Integer.toHexString(0x1F000 + i).toUpperCase())
+                    .append(" ; fully-qualified # x E1.0 entry ").append(i).append('\n');
+        }
+        return parse(sb.toString());
+    }
+}
@@ -0,0 +1,69 @@
+package app.lzc.emoji.tools;
+
+import app.lzc.emoji.core.GlyphProbe;
+
+import java.awt.Font;
+import java.awt.FontFormatException;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Headless {@link GlyphProbe} for a single TTF/OTF file, backed by java.awt.
+ * <p>
+ * Single codepoints are looked up in the font's cmap. Sequences are shaped with the font's GSUB
+ * rules and count as supported when every codepoint is mapped and shaping fuses them into
+ * exactly one visible glyph, which is how ZWJ sequences, flags and keycaps show up in emoji
+ * fonts. Unlike {@code Paint.hasGlyph} there is no fallback to other fonts.
+ */
+public final class AwtGlyphProbe implements GlyphProbe {
+
+    private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(null, false, false);
+
+    private final Font font;
+    private final int missingGlyph;
+
+    private AwtGlyphProbe(Font font) {
+        this.font = font;
+        this.missingGlyph = font.getMissingGlyphCode();
+    }
+
+    /**
+     * Loads a font file once and returns a factory sharing it between workers; java.awt.Font is
+     * immutable, so sharing it is safe.
+     * @param fontFile The TTF/OTF file.
+     * @return The probe factory.
+     * @throws IOException If the file cannot be read or is not a supported font.
+     */
+    public static GlyphProbe.Factory factory(File fontFile) throws IOException {
+        final Font font;
+        try {
+            font = Font.createFont(Font.TRUETYPE_FONT, fontFile).deriveFont(64f);
+        } catch (FontFormatException e) {
+            throw new IOException("Unsupported font " + fontFile + ": " + e.getMessage(), e);
+        }
+        return () -> new AwtGlyphProbe(font);
+    }
+
+    @Override
+    public boolean hasGlyph(String text) {
+        int first = text.codePointAt(0);
+        if (Character.charCount(first) == text.length()) {
+            return font.canDisplay(first);
+        }
+        char[] chars = text.toCharArray();
+        GlyphVector glyphs = font.layoutGlyphVector(RENDER_CONTEXT, chars, 0, chars.length, Font.LAYOUT_LEFT_TO_RIGHT);
+        int visible = 0;
+        for (int i = 0; i < glyphs.getNumGlyphs(); i++) {
+            if (glyphs.getGlyphCode(i) == missingGlyph) {
+                return false;
+            }
+            // Joiners and variation selectors that survive shaping are zero-width
+            if (glyphs.getGlyphMetrics(i).getAdvance() > 0) {
+                visible++;
+            }
+        }
+        return visible == 1;
+    }
+}
@@ -0,0 +1,210 @@
+package app.lzc.emoji.tools;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.CoverageMatrix;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiStatus;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.GlyphProbe;
+import app.lzc.emoji.core.GlyphProbeEngine;
+import app.lzc.emoji.core.JsonWriter;
+import app.lzc.emoji.core.ProbeResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests many font files against the emoji dataset in parallel, without a device.
+ * <p>
+ * Usage: {@code BatchProbe [options] <font.ttf>...}
+ * <pre>
+ *   --dataset FILE     emoji-test.txt or compiled .bin (default: the file bundled with the app)
+ *   --all-statuses     Test every status instead of fully-qualified and component entries
+ *   --threads N        Fonts tested at the same time (default: one per core)
+ *   --out FILE         Write results there instead of stdout
+ *   --missing          List the unsupported sequences of each font
+ *   --matrix           Probe all fonts in one sweep and write a single coverage matrix instead
+ * </pre>
+ * Output is one JSON object per font and line, in the order the fonts were given. With --matrix
+ * it is one {@link CoverageMatrix} object whose first column is the first readable font; fonts that
+ * cannot be read are reported on stderr and left out of the matrix.
+ */
+public final class BatchProbe {
+
+    private static final String USAGE =
+            "Usage: BatchProbe [--dataset FILE] [--all-statuses] [--threads N] [--out FILE] [--missing] [--matrix] <font>...";
+
+    private BatchProbe() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File datasetFile = DatasetFiles.BUNDLED;
+        int statusMask = EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT);
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outFile = null;
+        boolean listMissing = false;
+        boolean matrix = false;
+        List<File> fonts = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--dataset":
+                        datasetFile = new File(Options.value(args, ++i));
+                        break;
+                    case "--all-statuses":
+                        statusMask = EmojiStatus.ALL;
+                        break;
+                    case "--threads":
+                        threads = Options.positiveInt(args, ++i);
+                        break;
+                    case "--out":
+                        outFile = new File(Options.value(args, ++i));
+                        break;
+                    case "--missing":
+                        listMissing = true;
+                        break;
+                    case "--matrix":
+                        matrix = true;
+                        break;
+                    default:
+                        fonts.add(new File(Options.operand(args[i])));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            Options.exitWithUsage(e.getMessage(), USAGE);
+        }
+        if (fonts.isEmpty()) {
+            Options.exitWithUsage(null, USAGE);
+        }
+
+        final EmojiDataset dataset = DatasetFiles.load(datasetFile);
+        final long[] selection = dataset.select(statusMask);
+        if (matrix) {
+            writeMatrix(dataset, selection, fonts, threads, outFile);
+            return;
+        }
+        final boolean missing = listMissing;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        List<Future<String>> results = new ArrayList<>();
+        for (final File font : fonts) {
+            results.add(executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws IOException {
+                    return probeFont(dataset, selection, font, missing);
+                }
+            }));
+        }
+        executor.shutdown();
+
+        Writer out = outFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8);
+        try (Writer writer = new BufferedWriter(out)) {
+            for (Future<String> result : results) {
+                try {
+                    writer.write(result.get());
+                } catch (ExecutionException e) {
+                    throw new IOException(e.getCause().getMessage(), e.getCause());
+                }
+                writer.write('\n');
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Tests all fonts in one sweep over the dataset, each entry's text built once for all fonts.
+     */
+    private static void writeMatrix(EmojiDataset dataset, long[] selection, List<File> fonts, int threads,
+                                    File outFile) throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>();
+        List<GlyphProbe.Factory> factories = new ArrayList<>();
+        for (File font : fonts) {
+            try {
+                factories.add(AwtGlyphProbe.factory(font));
+                names.add(font.getPath());
+            } catch (IOException e) {
+                // Leave the font out rather than losing the sweep of all the others
+                System.err.println(e.getMessage());
+            }
+        }
+        if (factories.isEmpty()) {
+            throw new IOException("None of the " + fonts.size() + " fonts could be read");
+        }
+        GlyphProbeEngine engine = new GlyphProbeEngine(Math.max(1, threads));
+        ProbeResult[] results;
+        try {
+            results = engine.probeAll(dataset, selection,
+                    factories.toArray(new GlyphProbe.Factory[0]), null);
+        } finally {
+            engine.shutdownNow();
+        }
+        Writer out = outFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8);
+        try (Writer writer = new BufferedWriter(out)) {
+            new CoverageMatrix(names.toArray(new String[0]), results).writeReport(writer);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Tests one font on the calling thread.
+     * @return The JSON line describing the font.
+     */
+    private static String probeFont(EmojiDataset dataset, long[] selection, File fontFile, boolean listMissing) throws IOException {
+        StringBuilder json = new StringBuilder();
+        JsonWriter writer = new JsonWriter(json);
+        writer.beginObject().name("font").value(fontFile.getPath());
+        GlyphProbe probe;
+        try {
+            probe = AwtGlyphProbe.factory(fontFile).create();
+        } catch (IOException e) {
+            writer.name("error").value(e.getMessage()).endObject();
+            return json.toString();
+        }
+
+        long start = System.nanoTime();
+        long[] supported = new long[selection.length];
+        for (int i = 0; i < dataset.size(); i++) {
+            if (Bitsets.get(selection, i) && probe.hasGlyph(dataset.toString(i))) {
+                Bitsets.set(supported, i);
+            }
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        int tested = Bitsets.cardinality(selection);
+        int supportedCount = Bitsets.cardinality(supported);
+        writer.name("dataset").value(EmojiVersions.toString(dataset.unicodeVersion()))
+                .name("tested").value(tested)
+                .name("supported").value(supportedCount)
+                .name("percent").value(tested == 0 ? 0.0 : Math.round(supportedCount * 10000.0 / tested) / 100.0)
+                .name("elapsedMs").value(elapsedMs);
+        if (listMissing) {
+            writer.name("missing").beginArray();
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < dataset.size(); i++) {
+                if (Bitsets.get(selection, i) && !Bitsets.get(supported, i)) {
+                    hex.setLength(0);
+                    dataset.appendHex(i, hex);
+                    writer.value(hex.toString());
+                }
+            }
+            writer.endArray();
+        }
+        writer.endObject();
+        return json.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package app.lzc.emoji.tools;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiDatasetCodec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Loads datasets for the command-line tools.
+ */
+final class DatasetFiles {
+
+    /** The emoji-test.txt bundled with the app, relative to the repository root. */
+    static final File BUNDLED = new File("app/src/main/emoji/emoji-test.txt");
+
+    private DatasetFiles() {
+    }
+
+    /**
+     * @param file Either an emoji-test.txt or a dataset compiled by EmojiDatasetCompiler (.bin).
+     * @return The dataset.
+     * @throws IOException If the file cannot be read or parsed.
+     */
+    static EmojiDataset load(File file) throws IOException {
+        if (file.getName().endsWith(".bin")) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+                return EmojiDatasetCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return EmojiDataset.parse(in);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package app.lzc.emoji.tools;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiStatus;
+import app.lzc.emoji.core.EmojiTestDownloader;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.GlyphProbe;
+import app.lzc.emoji.core.GlyphProbeEngine;
+import app.lzc.emoji.core.ProbeResult;
+import app.lzc.emoji.core.StreamingProbe;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+/**
+ * Runs the app's download pipeline against a server, typically {@link StandInServer}, and
+ * reports the outcome and timings of each attempt.
+ * Usage: {@code DownloadCheck <url> <work-dir> [attempts]}
+ * <p>
+ * The probe used here only sleeps for a fixed time per sequence, so the output shows how much of
+ * the probing overlapped the transfer.
+ */
+public final class DownloadCheck {
+
+    private static final long PROBE_NANOS = 200_000; // Roughly one Paint.hasGlyph call on a slow phone
+
+    private DownloadCheck() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: DownloadCheck <url> <work-dir> [attempts]");
+            System.exit(2);
+        }
+        URL url = new URL(args[0]);
+        File workDir = new File(args[1]);
+        if (!workDir.isDirectory() && !workDir.mkdirs()) {
+            throw new IOException("Cannot create " + workDir);
+        }
+        int attempts = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        EmojiTestDownloader downloader = new EmojiTestDownloader(url, new File(workDir, "emoji-test.txt"));
+        GlyphProbeEngine engine = new GlyphProbeEngine(GlyphProbeEngine.defaultParallelism());
+        GlyphProbe.Factory sleepingProbes = () -> text -> {
+            long end = System.nanoTime() + PROBE_NANOS;
+            while (System.nanoTime() < end) {
+                Thread.yield();
+            }
+            return true;
+        };
+        try {
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                StreamingProbe probe = new StreamingProbe(engine,
+                        EmojiStatus.mask(EmojiStatus.FULLY_QUALIFIED, EmojiStatus.COMPONENT), null, sleepingProbes, null);
+                long start = System.nanoTime();
+                EmojiTestDownloader.Outcome outcome = downloader.download(probe);
+                long transferred = System.nanoTime();
+                if (outcome == EmojiTestDownloader.Outcome.NOT_MODIFIED) {
+                    probe.cancel();
+                    System.out.printf("#%d NOT_MODIFIED in %.1f ms%n", attempt, (transferred - start) / 1e6);
+                    continue;
+                }
+                EmojiDataset dataset = probe.finish();
+                ProbeResult result = probe.await();
+                long done = System.nanoTime();
+                System.out.printf("#%d DOWNLOADED Emoji %s, %d entries, %d probed: transfer+parse %.1f ms, probing finished %.1f ms later%n",
+                        attempt, EmojiVersions.toString(dataset.unicodeVersion()), dataset.size(), result.probedCount(),
+                        (transferred - start) / 1e6, (done - transferred) / 1e6);
+            }
+        } finally {
+            engine.shutdownNow();
+        }
+    }
+}
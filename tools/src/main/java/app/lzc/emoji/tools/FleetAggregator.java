@@ -0,0 +1,292 @@
+package app.lzc.emoji.tools;
+
+import app.lzc.emoji.core.Bitsets;
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiVersions;
+import app.lzc.emoji.core.JsonWriter;
+import app.lzc.emoji.core.SupportReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Merges the {@link SupportReport}s of many devices into support rates per emoji, per emoji
+ * version and per group.
+ * <p>
+ * Usage: {@code FleetAggregator [options] <report file or directory>...}
+ * <pre>
+ *   --dataset FILE     emoji-test.txt or compiled .bin that reports refer to; repeatable
+ *                      (default: the file bundled with the app)
+ *   --threads N        Report files read at the same time (default: one per core)
+ *   --out FILE         Write results there instead of stdout
+ * </pre>
+ * A file holds any number of concatenated reports; directories are searched recursively. Each
+ * worker takes whole files and counts into its own {@link BitSlicedCounters}, one set per dataset
+ * and status mask, and the workers' counters are added once at the end, so memory does not grow
+ * with the number of reports. A file with a malformed report is skipped from that report on.
+ * <p>
+ * Output is one JSON object per dataset and status mask and line. Reports for a dataset that was
+ * not given only get their per-entry counts, without emoji or rollups.
+ */
+public final class FleetAggregator {
+
+    private static final String USAGE =
+            "Usage: FleetAggregator [--dataset FILE]... [--threads N] [--out FILE] <report file or dir>...";
+
+    /**
+     * Counters of the reports for one dataset and status mask.
+     */
+    private static final class Tally {
+        final long datasetFingerprint;
+        final int unicodeVersion;
+        final int statusMask;
+        final BitSlicedCounters counters;
+
+        Tally(SupportReport report) {
+            this.datasetFingerprint = report.datasetFingerprint();
+            this.unicodeVersion = report.unicodeVersion();
+            this.statusMask = report.statusMask();
+            this.counters = new BitSlicedCounters(report.bitCount());
+        }
+    }
+
+    private FleetAggregator() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<File> datasetFiles = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        File outFile = null;
+        List<File> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--dataset":
+                        datasetFiles.add(new File(Options.value(args, ++i)));
+                        break;
+                    case "--threads":
+                        threads = Options.positiveInt(args, ++i);
+                        break;
+                    case "--out":
+                        outFile = new File(Options.value(args, ++i));
+                        break;
+                    default:
+                        inputs.add(new File(Options.operand(args[i])));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            Options.exitWithUsage(e.getMessage(), USAGE);
+        }
+        if (inputs.isEmpty()) {
+            Options.exitWithUsage(null, USAGE);
+        }
+        if (datasetFiles.isEmpty()) {
+            datasetFiles.add(DatasetFiles.BUNDLED);
+        }
+        Map<Long, EmojiDataset> datasets = new HashMap<>();
+        for (File file : datasetFiles) {
+            EmojiDataset dataset = DatasetFiles.load(file);
+            datasets.put(dataset.fingerprint(), dataset);
+        }
+        final List<File> files = new ArrayList<>();
+        for (File input : inputs) {
+            listFiles(input, files);
+        }
+
+        long start = System.nanoTime();
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicInteger skippedFiles = new AtomicInteger();
+        int workers = Math.max(1, Math.min(threads, files.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        List<Future<Map<String, Tally>>> results = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            results.add(executor.submit(new Callable<Map<String, Tally>>() {
+                @Override
+                public Map<String, Tally> call() throws IOException {
+                    Map<String, Tally> tallies = new HashMap<>();
+                    int index;
+                    while ((index = nextFile.getAndIncrement()) < files.size()) {
+                        if (!countFile(files.get(index), tallies)) {
+                            skippedFiles.incrementAndGet();
+                        }
+                    }
+                    return tallies;
+                }
+            }));
+        }
+        executor.shutdown();
+
+        Map<String, Tally> merged = new TreeMap<>(); // Sorted keys keep the output order stable
+        for (Future<Map<String, Tally>> result : results) {
+            Map<String, Tally> tallies;
+            try {
+                tallies = result.get();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause().getMessage(), e.getCause());
+            }
+            for (Map.Entry<String, Tally> entry : tallies.entrySet()) {
+                Tally existing = merged.get(entry.getKey());
+                if (existing == null) {
+                    merged.put(entry.getKey(), entry.getValue());
+                } else {
+                    existing.counters.addAll(entry.getValue().counters);
+                }
+            }
+        }
+        long reports = 0;
+        for (Tally tally : merged.values()) {
+            reports += tally.counters.added();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.err.println("Merged " + reports + " reports from " + files.size() + " files in "
+                + elapsed / 1_000_000 + " ms" + (skippedFiles.get() > 0 ? ", " + skippedFiles.get() + " malformed files" : ""));
+
+        Writer out = outFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : new OutputStreamWriter(new FileOutputStream(outFile), StandardCharsets.UTF_8);
+        try (Writer writer = new BufferedWriter(out)) {
+            for (Tally tally : merged.values()) {
+                writeTally(tally, datasets.get(tally.datasetFingerprint), writer);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void listFiles(File input, List<File> files) {
+        File[] children = input.listFiles();
+        if (children == null) {
+            files.add(input);
+            return;
+        }
+        for (File child : children) {
+            listFiles(child, files);
+        }
+    }
+
+    /**
+     * Counts every report of a file.
+     * @return false if the file holds a malformed report; the reports before it are counted.
+     */
+    private static boolean countFile(File file, Map<String, Tally> tallies) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            SupportReport report;
+            while ((report = SupportReport.read(in)) != null) {
+                String key = Long.toHexString(report.datasetFingerprint()) + "/" + report.statusMask()
+                        + "/" + report.bitCount();
+                Tally tally = tallies.get(key);
+                if (tally == null) {
+                    tally = new Tally(report);
+                    tallies.put(key, tally);
+                }
+                tally.counters.add(report.bits());
+            }
+            return true;
+        } catch (IOException e) {
+            if (!file.isFile()) {
+                throw e;
+            }
+            System.err.println(file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the rates of one dataset and status mask as a single JSON object.
+     * @param dataset The dataset of the reports, or null if it is not known.
+     */
+    private static void writeTally(Tally tally, EmojiDataset dataset, Appendable out) throws IOException {
+        BitSlicedCounters counters = tally.counters;
+        long reports = counters.added();
+        JsonWriter json = new JsonWriter(out);
+        json.beginObject()
+                .name("datasetFingerprint").value(Long.toHexString(tally.datasetFingerprint))
+                .name("dataset").value(EmojiVersions.toString(tally.unicodeVersion))
+                .name("statusMask").value(tally.statusMask)
+                .name("reports").value(reports);
+        long[] selection = dataset == null ? null : dataset.select(tally.statusMask);
+        if (selection == null || Bitsets.cardinality(selection) != counters.bitCount()) {
+            json.name("supported").beginArray();
+            for (int bit = 0; bit < counters.bitCount(); bit++) {
+                json.value(counters.count(bit));
+            }
+            json.endArray().endObject();
+            return;
+        }
+
+        // Bit i of a report belongs to the i-th selected entry
+        long[] versionSupported = new long[dataset.versionCount()];
+        int[] versionEntries = new int[dataset.versionCount()];
+        long[] groupSupported = new long[dataset.groupCount()];
+        int[] groupEntries = new int[dataset.groupCount()];
+        StringBuilder hex = new StringBuilder();
+        json.name("entries").beginArray();
+        int bit = 0;
+        for (int entry = 0; entry < dataset.size(); entry++) {
+            if (!Bitsets.get(selection, entry)) {
+                continue;
+            }
+            long supported = counters.count(bit++);
+            versionSupported[dataset.versionId(entry)] += supported;
+            versionEntries[dataset.versionId(entry)]++;
+            groupSupported[dataset.groupId(entry)] += supported;
+            groupEntries[dataset.groupId(entry)]++;
+            hex.setLength(0);
+            dataset.appendHex(entry, hex);
+            json.beginObject()
+                    .name("hex").value(hex.toString())
+                    .name("name").value(dataset.name(entry))
+                    .name("supported").value(supported)
+                    .name("rate").value(rate(supported, reports))
+                    .endObject();
+        }
+        json.endArray();
+
+        // Rollups: the mean rate of the entries, i.e. supported entries per report and entry
+        json.name("versions").beginArray();
+        for (int id = 0; id < dataset.versionCount(); id++) {
+            if (versionEntries[id] > 0) {
+                json.beginObject()
+                        .name("version").value(EmojiVersions.toString(dataset.version(id)))
+                        .name("entries").value(versionEntries[id])
+                        .name("rate").value(rate(versionSupported[id], reports * versionEntries[id]))
+                        .endObject();
+            }
+        }
+        json.endArray();
+        json.name("groups").beginArray();
+        for (int id = 0; id < dataset.groupCount(); id++) {
+            if (groupEntries[id] > 0) {
+                json.beginObject()
+                        .name("name").value(dataset.groupName(id))
+                        .name("entries").value(groupEntries[id])
+                        .name("rate").value(rate(groupSupported[id], reports * groupEntries[id]))
+                        .endObject();
+            }
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    private static double rate(long supported, long total) {
+        return total == 0 ? 0 : (double) supported / total;
+    }
+}
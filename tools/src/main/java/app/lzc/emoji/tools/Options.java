@@ -0,0 +1,69 @@
+package app.lzc.emoji.tools;
+
+/**
+ * Command-line parsing shared by the tools. A malformed command line is reported with the tool's
+ * usage and exit status 2.
+ */
+final class Options {
+
+    private Options() {
+    }
+
+    /**
+     * @param args The command line.
+     * @param i Index of an option's value, i.e. one past the option.
+     * @return The value.
+     * @throws IllegalArgumentException If the option is the last argument.
+     */
+    static String value(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i - 1]);
+        }
+        return args[i];
+    }
+
+    /**
+     * @param args The command line.
+     * @param i Index of an option's value, i.e. one past the option.
+     * @return The value as a positive int.
+     * @throws IllegalArgumentException If the value is missing or not a positive int.
+     */
+    static int positiveInt(String[] args, int i) {
+        String value = value(args, i);
+        int n;
+        try {
+            n = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            n = 0;
+        }
+        if (n <= 0) {
+            throw new IllegalArgumentException("Not a positive number for " + args[i - 1] + ": " + value);
+        }
+        return n;
+    }
+
+    /**
+     * @param arg An argument that is not a known option.
+     * @return The argument, an operand such as a file.
+     * @throws IllegalArgumentException If it looks like an option.
+     */
+    static String operand(String arg) {
+        if (arg.startsWith("--")) {
+            throw new IllegalArgumentException("Unknown option: " + arg);
+        }
+        return arg;
+    }
+
+    /**
+     * Prints the problem and the usage, then exits with status 2.
+     * @param problem What is wrong with the command line, or null.
+     * @param usage The tool's usage line.
+     */
+    static void exitWithUsage(String problem, String usage) {
+        if (problem != null) {
+            System.err.println(problem);
+        }
+        System.err.println(usage);
+        System.exit(2);
+    }
+}
@@ -0,0 +1,249 @@
+package app.lzc.emoji.tools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in for the unicode.org server, used to exercise {@code EmojiTestDownloader}.
+ * It serves one emoji-test.txt with configurable latency, transfer speed, validators and gzip.
+ * <p>
+ * Options:
+ * <pre>
+ *   --port N             Port to listen on (default 8080)
+ *   --file PATH          File to serve (default app/src/main/emoji/emoji-test.txt)
+ *   --latency-ms N       Delay before each response (default 0)
+ *   --chunk-delay-ms N   Delay between 8 KB body chunks, to simulate a slow link (default 0)
+ *   --etag VALUE|none    ETag to send (default: hash of the file)
+ *   --no-last-modified   Do not send Last-Modified
+ *   --gzip               Compress the body when the client accepts gzip
+ *   --fail-after N       Drop the connection after N body bytes, like a transfer cut off
+ *                        half-way (default: send the whole body)
+ * </pre>
+ * Point the downloader at {@code http://localhost:PORT/emoji-test.txt}. Tests start an instance
+ * in-process on a free port with {@link #start}.
+ */
+public final class StandInServer {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final byte[] body;
+    private final String etag;
+    private final String lastModified;
+    private final boolean gzip;
+    private final long latencyMs;
+    private final long chunkDelayMs;
+    private final int failAfter;
+    private HttpServer http;
+    private ExecutorService executor;
+
+    /**
+     * @param body The file to serve.
+     * @param etag ETag to send, or null for none.
+     * @param lastModified Last-Modified to send, or null for none.
+     * @param gzip Whether to compress the body when the client accepts gzip.
+     * @param latencyMs Delay before each response.
+     * @param chunkDelayMs Delay between body chunks.
+     * @param failAfter Body bytes after which the connection is dropped, or -1 to send them all.
+     */
+    StandInServer(byte[] body, String etag, String lastModified, boolean gzip, long latencyMs, long chunkDelayMs,
+                  int failAfter) {
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.gzip = gzip;
+        this.latencyMs = latencyMs;
+        this.chunkDelayMs = chunkDelayMs;
+        this.failAfter = failAfter;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        File file = new File("app/src/main/emoji/emoji-test.txt");
+        long latencyMs = 0;
+        long chunkDelayMs = 0;
+        String etag = null;
+        boolean sendLastModified = true;
+        boolean gzip = false;
+        int failAfter = -1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--file":
+                    file = new File(args[++i]);
+                    break;
+                case "--latency-ms":
+                    latencyMs = Long.parseLong(args[++i]);
+                    break;
+                case "--chunk-delay-ms":
+                    chunkDelayMs = Long.parseLong(args[++i]);
+                    break;
+                case "--etag":
+                    etag = args[++i];
+                    break;
+                case "--no-last-modified":
+                    sendLastModified = false;
+                    break;
+                case "--gzip":
+                    gzip = true;
+                    break;
+                case "--fail-after":
+                    failAfter = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        byte[] body = Files.readAllBytes(file.toPath());
+        if (etag == null) {
+            etag = etagOf(body);
+        } else if ("none".equals(etag)) {
+            etag = null;
+        }
+        String lastModified = sendLastModified ? httpDate(file.lastModified()) : null;
+
+        StandInServer server = new StandInServer(body, etag, lastModified, gzip, latencyMs, chunkDelayMs, failAfter);
+        URL url = server.start(new InetSocketAddress(port));
+        System.out.println("Serving " + file + " (" + body.length + " bytes) on " + url
+                + " etag=" + etag + " gzip=" + gzip + " latency=" + latencyMs + "ms");
+    }
+
+    /**
+     * Starts serving in the background.
+     * @param address Address to listen on; port 0 picks a free port.
+     * @return The URL of the served file.
+     * @throws IOException If the server cannot listen on the address.
+     */
+    URL start(InetSocketAddress address) throws IOException {
+        http = HttpServer.create(address, 0);
+        http.createContext("/", this::handle);
+        executor = Executors.newCachedThreadPool();
+        http.setExecutor(executor);
+        http.start();
+        return new URL("http://localhost:" + http.getAddress().getPort() + "/emoji-test.txt");
+    }
+
+    /**
+     * Stops a server started with {@link #start}.
+     */
+    void stop() {
+        http.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param body A file.
+     * @return The ETag served for it by default.
+     */
+    static String etagOf(byte[] body) {
+        return "\"" + sha256(body).substring(0, 16) + "\"";
+    }
+
+    /**
+     * @param millis A time.
+     * @return The time in the format of the Last-Modified header.
+     */
+    static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            sleep(latencyMs);
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (etag != null) {
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+            if (lastModified != null) {
+                exchange.getResponseHeaders().set("Last-Modified", lastModified);
+            }
+            // If-None-Match takes precedence over If-Modified-Since (RFC 9110, 13.2.2)
+            boolean notModified = ifNoneMatch != null
+                    ? etag != null && ifNoneMatch.equals(etag)
+                    : ifModifiedSince != null && ifModifiedSince.equals(lastModified);
+            if (notModified) {
+                log(exchange, 304, 0);
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            byte[] payload = body;
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (gzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                    out.write(body);
+                }
+                payload = compressed.toByteArray();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            log(exchange, 200, payload.length);
+            exchange.sendResponseHeaders(200, payload.length);
+            int sent = failAfter < 0 ? payload.length : Math.min(failAfter, payload.length);
+            OutputStream out = exchange.getResponseBody();
+            for (int off = 0; off < sent; off += CHUNK_SIZE) {
+                out.write(payload, off, Math.min(CHUNK_SIZE, sent - off));
+                out.flush();
+                sleep(chunkDelayMs);
+            }
+            if (sent < payload.length) {
+                System.out.println("Dropping the connection after " + sent + " bytes");
+            }
+            out.close(); // Closes the connection if the body is incomplete
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void log(HttpExchange exchange, int status, int bytes) {
+        System.out.println(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " -> " + status + " (" + bytes + " bytes)");
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
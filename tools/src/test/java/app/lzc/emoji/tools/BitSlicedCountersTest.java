@@ -0,0 +1,110 @@
+package app.lzc.emoji.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class BitSlicedCountersTest {
+
+    private static final int BITS = 150; // Three words, the last one partial
+
+    private static void assertCounts(long[] expected, BitSlicedCounters counters) {
+        for (int bit = 0; bit < BITS; bit++) {
+            assertEquals("bit " + bit, expected[bit], counters.count(bit));
+        }
+    }
+
+    /**
+     * @return Random bitsets whose bit 0 is always set and bit 149 never is.
+     */
+    private static long[][] reports(int count, long seed) {
+        Random random = new Random(seed);
+        long[][] reports = new long[count][3];
+        for (long[] report : reports) {
+            for (int w = 0; w < report.length; w++) {
+                report[w] = random.nextLong() & random.nextLong(); // About a quarter of the bits
+            }
+            report[0] |= 1L;
+            report[2] &= (1L << (BITS - 128 - 1)) - 1;
+        }
+        return reports;
+    }
+
+    private static void countNaively(long[] report, long[] counts) {
+        for (int bit = 0; bit < BITS; bit++) {
+            if ((report[bit >>> 6] & (1L << bit)) != 0) {
+                counts[bit]++;
+            }
+        }
+    }
+
+    @Test
+    public void matchesANaiveCount() {
+        BitSlicedCounters counters = new BitSlicedCounters(BITS);
+        long[] expected = new long[BITS];
+        assertCounts(expected, counters);
+
+        for (long[] report : reports(300, 1)) {
+            counters.add(report);
+            countNaively(report, expected);
+        }
+        assertCounts(expected, counters);
+        assertEquals(300, counters.added());
+        assertEquals(300, counters.count(0)); // Nine planes
+        assertEquals(0, counters.count(BITS - 1));
+    }
+
+    @Test
+    public void carryRipplesThroughEveryPlane() {
+        BitSlicedCounters counters = new BitSlicedCounters(BITS);
+        long[] bit = {1L << 5, 0, 1L << 20};
+        for (int i = 0; i < 255; i++) {
+            counters.add(bit);
+        }
+        assertEquals(255, counters.count(5));
+        counters.add(bit); // 0b11111111 + 1 carries out of all eight planes
+        assertEquals(256, counters.count(5));
+        assertEquals(256, counters.count(148));
+        assertEquals(0, counters.count(4));
+        assertEquals(0, counters.count(6));
+    }
+
+    @Test
+    public void mergedCountersMatchANaiveCount() {
+        BitSlicedCounters first = new BitSlicedCounters(BITS);
+        BitSlicedCounters second = new BitSlicedCounters(BITS);
+        long[] expected = new long[BITS];
+        // Unequal halves, so the merged counters have different numbers of planes
+        for (long[] report : reports(200, 2)) {
+            first.add(report);
+            countNaively(report, expected);
+        }
+        for (long[] report : reports(57, 3)) {
+            second.add(report);
+            countNaively(report, expected);
+        }
+
+        BitSlicedCounters merged = new BitSlicedCounters(BITS);
+        merged.addAll(second);
+        merged.addAll(first);
+        assertCounts(expected, merged);
+        assertEquals(257, merged.added());
+        assertEquals(257, merged.count(0));
+
+        second.addAll(first);
+        assertCounts(expected, second);
+    }
+
+    @Test
+    public void mergeNeedsTheSameBitCount() {
+        try {
+            new BitSlicedCounters(BITS).addAll(new BitSlicedCounters(BITS + 1));
+            fail("Bit counts differ");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
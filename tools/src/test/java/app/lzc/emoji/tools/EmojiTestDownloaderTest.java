@@ -0,0 +1,145 @@
+package app.lzc.emoji.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import app.lzc.emoji.core.EmojiDataset;
+import app.lzc.emoji.core.EmojiTestDownloader;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link EmojiTestDownloader} against {@link StandInServer} on the loopback interface.
+ */
+public class EmojiTestDownloaderTest {
+
+    private static final String LAST_MODIFIED = StandInServer.httpDate(1_723_679_514_000L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<StandInServer> servers = new ArrayList<>();
+    private byte[] body;
+    private File destination;
+    private File derived;
+
+    @Before
+    public void setUp() throws IOException {
+        body = Files.readAllBytes(DatasetFiles.BUNDLED.toPath());
+        destination = new File(folder.getRoot(), "emoji-test.txt");
+        derived = new File(folder.getRoot(), "emoji-test.bin");
+    }
+
+    @After
+    public void tearDown() {
+        for (StandInServer server : servers) {
+            server.stop();
+        }
+    }
+
+    private URL serve(byte[] file, String etag, String lastModified, boolean gzip, int failAfter) throws IOException {
+        StandInServer server = new StandInServer(file, etag, lastModified, gzip, 0, 0, failAfter);
+        servers.add(server);
+        return server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    private EmojiTestDownloader downloader(URL url) {
+        EmojiTestDownloader downloader = new EmojiTestDownloader(url, destination);
+        downloader.setDerivedFiles(derived);
+        return downloader;
+    }
+
+    private void writeDerived() throws IOException {
+        Files.write(derived.toPath(), "compiled".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void notModifiedWithStoredEtag() throws Exception {
+        EmojiTestDownloader downloader = downloader(serve(body, StandInServer.etagOf(body), null, false, -1));
+
+        EmojiDataset.Builder first = new EmojiDataset.Builder();
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED, downloader.download(first));
+        assertArrayEquals(body, Files.readAllBytes(destination.toPath()));
+        assertEquals(DatasetFiles.load(DatasetFiles.BUNDLED).fingerprint(), first.build().fingerprint());
+
+        writeDerived();
+        EmojiDataset.Builder second = new EmojiDataset.Builder();
+        assertEquals(EmojiTestDownloader.Outcome.NOT_MODIFIED, downloader.download(second));
+        assertEquals(0, second.size());
+        assertTrue("Derived file of an unchanged copy was deleted", derived.isFile());
+    }
+
+    @Test
+    public void notModifiedWithStoredLastModified() throws Exception {
+        EmojiTestDownloader downloader = downloader(serve(body, null, LAST_MODIFIED, false, -1));
+
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED, downloader.download(new EmojiDataset.Builder()));
+        assertEquals(EmojiTestDownloader.Outcome.NOT_MODIFIED, downloader.download(new EmojiDataset.Builder()));
+    }
+
+    @Test
+    public void changedFileIsDownloadedAgain() throws Exception {
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED,
+                downloader(serve(body, StandInServer.etagOf(body), LAST_MODIFIED, false, -1)).download(new EmojiDataset.Builder()));
+        writeDerived();
+
+        byte[] changed = new String(body, StandardCharsets.UTF_8).replace("# Version: 16.0", "# Version: 16.1")
+                .getBytes(StandardCharsets.UTF_8);
+        EmojiDataset.Builder builder = new EmojiDataset.Builder();
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED,
+                downloader(serve(changed, StandInServer.etagOf(changed), LAST_MODIFIED, false, -1)).download(builder));
+        assertArrayEquals(changed, Files.readAllBytes(destination.toPath()));
+        assertFalse("Derived file of the previous copy was kept", derived.exists());
+    }
+
+    @Test
+    public void gzipBodyIsStoredDecompressed() throws Exception {
+        EmojiDataset.Builder builder = new EmojiDataset.Builder();
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED,
+                downloader(serve(body, StandInServer.etagOf(body), LAST_MODIFIED, true, -1)).download(builder));
+        assertArrayEquals(body, Files.readAllBytes(destination.toPath()));
+        assertEquals(DatasetFiles.load(DatasetFiles.BUNDLED).fingerprint(), builder.build().fingerprint());
+    }
+
+    @Test
+    public void interruptedTransferKeepsPreviousCopy() throws Exception {
+        URL original = serve(body, StandInServer.etagOf(body), LAST_MODIFIED, false, -1);
+        assertEquals(EmojiTestDownloader.Outcome.DOWNLOADED, downloader(original).download(new EmojiDataset.Builder()));
+        writeDerived();
+
+        byte[] changed = new String(body, StandardCharsets.UTF_8).replace("# Version: 16.0", "# Version: 16.1")
+                .getBytes(StandardCharsets.UTF_8);
+        for (boolean gzip : new boolean[]{false, true}) {
+            try {
+                downloader(serve(changed, StandInServer.etagOf(changed), null, gzip, 20_000)) // Less than either body
+                        .download(new EmojiDataset.Builder());
+                fail("Incomplete transfer accepted, gzip=" + gzip);
+            } catch (IOException e) {
+                // Expected
+            }
+            assertArrayEquals(body, Files.readAllBytes(destination.toPath()));
+            assertFalse(new File(destination.getPath() + ".part").exists());
+            assertTrue("Derived file deleted by a failed download", derived.isFile());
+        }
+
+        // The validators still describe the previous copy
+        assertEquals(EmojiTestDownloader.Outcome.NOT_MODIFIED, downloader(original).download(new EmojiDataset.Builder()));
+    }
+}